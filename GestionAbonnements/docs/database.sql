@@ -77,6 +77,7 @@ CREATE TABLE IF NOT EXISTS abonnements (
     INDEX idx_dates (date_debut, date_fin),
     INDEX idx_auto_renew (auto_renew),
     INDEX idx_churn_score (churn_score),
+    INDEX idx_date_fin (date_fin),
     
     -- Contraintes métier
     CONSTRAINT chk_date_fin CHECK (date_fin > date_debut),
@@ -109,6 +110,7 @@ CREATE TABLE IF NOT EXISTS participations (
     INDEX idx_contexte_social (contexte_social),
     INDEX idx_date_inscription (date_inscription),
     INDEX idx_badge (badge_associe),
+    INDEX idx_evenement_statut (evenement_id, statut),
     
     -- Contrainte d'unicité : un utilisateur ne peut participer qu'une fois par événement
     UNIQUE KEY uk_user_evenement (user_id, evenement_id),
@@ -151,6 +153,7 @@ CREATE TABLE IF NOT EXISTS tickets (
     INDEX idx_code_unique (code_unique),
     INDEX idx_date_creation (date_creation),
     INDEX idx_date_expiration (date_expiration),
+    INDEX idx_statut_expiration (statut, date_expiration),
     INDEX idx_coordonnees (latitude, longitude),
     INDEX idx_lieu (lieu)
 ) ENGINE=InnoDB;
@@ -184,11 +187,30 @@ CREATE TABLE IF NOT EXISTS recommandations (
     INDEX idx_date_expiration (date_expiration),
     INDEX idx_est_utilisee (est_utilisee),
     INDEX idx_conversion_score (conversion_score),
+    INDEX idx_user_top (user_id, est_utilisee, score),
+    UNIQUE KEY uk_user_evenement (user_id, evenement_suggere_id),
     
     -- Contrainte métier
     CONSTRAINT chk_date_expiration CHECK (date_expiration > date_generation)
 ) ENGINE=InnoDB;
 
+-- =====================================================
+-- TABLE DES INTERACTIONS SUR LES RECOMMANDATIONS
+-- =====================================================
+-- Journal en ajout seul (impressions, clics, conversions), écrit par lots.
+-- Sans clé étrangère : l'historique survit au renouvellement des recommandations.
+CREATE TABLE IF NOT EXISTS recommandation_interactions (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    recommandation_id BIGINT NOT NULL,
+    user_id BIGINT,
+    algorithme ENUM('COLLABORATIVE', 'CONTENT_BASED', 'NLP', 'HYBRIDE', 'ML_TENSORFLOW', 'CLUSTERING'),
+    type ENUM('IMPRESSION', 'CLIC', 'CONVERSION') NOT NULL,
+    created_at TIMESTAMP(3) NOT NULL,
+    
+    INDEX idx_recommandation_id (recommandation_id),
+    INDEX idx_created_at (created_at)
+) ENGINE=InnoDB;
+
 -- =====================================================
 -- TABLE DES PAIEMENTS
 -- =====================================================
@@ -317,7 +339,8 @@ CREATE TABLE IF NOT EXISTS repas (
     prix DECIMAL(10,2) NOT NULL,
     date DATE NOT NULL,
     participant_id BIGINT NOT NULL,
-    INDEX idx_participant (participant_id),
+    -- Un repas par participant et par jour ; sert aussi les recherches par participant
+    UNIQUE KEY uk_participant_date (participant_id, date),
     INDEX idx_date (date)
 ) ENGINE=InnoDB;
 
@@ -325,8 +348,10 @@ CREATE TABLE IF NOT EXISTS presence (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
     participant_id BIGINT NOT NULL,
     date DATE NOT NULL,
+    service_repas ENUM('PETIT_DEJEUNER', 'DEJEUNER', 'DINER') NOT NULL DEFAULT 'DEJEUNER',
     abonnement_actif BOOLEAN DEFAULT TRUE,
-    INDEX idx_participant (participant_id),
+    -- Un pointage par participant, jour et service : rend l'enregistrement idempotent
+    UNIQUE KEY uk_participant_date_service (participant_id, date, service_repas),
     INDEX idx_date (date)
 ) ENGINE=InnoDB;
 
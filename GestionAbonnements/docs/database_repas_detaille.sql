@@ -29,6 +29,40 @@ CREATE TABLE IF NOT EXISTS repas_detaille (
     INDEX idx_actif (actif)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- Catalogue des ingrédients (créé aussi par IngredientServiceImpl)
+CREATE TABLE IF NOT EXISTS ingredients (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    nom VARCHAR(100) NOT NULL,
+    categorie VARCHAR(50) NOT NULL,
+    prix_supplement DECIMAL(10,2) DEFAULT 0.00,
+    calories INT DEFAULT 0,
+    icon_url VARCHAR(255),
+    actif BOOLEAN DEFAULT TRUE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Ingrédients d'un repas (remplace la colonne texte repas_detaille.ingredients)
+CREATE TABLE IF NOT EXISTS repas_ingredient (
+    repas_id BIGINT NOT NULL,
+    ingredient_id BIGINT NOT NULL,
+    ordre INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (repas_id, ingredient_id),
+    INDEX idx_ingredient_repas (ingredient_id, repas_id),
+    FOREIGN KEY (repas_id) REFERENCES repas_detaille(id) ON DELETE CASCADE,
+    FOREIGN KEY (ingredient_id) REFERENCES ingredients(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Allergènes d'un repas (remplace la colonne texte repas_detaille.allergenes)
+-- code : forme normalisée (ProfilAlimentaire.normaliserAllergene), ex. « Œufs » -> OEUF
+CREATE TABLE IF NOT EXISTS repas_allergene (
+    repas_id BIGINT NOT NULL,
+    code VARCHAR(50) NOT NULL,
+    libelle VARCHAR(100) NOT NULL,
+    ordre INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (repas_id, code),
+    INDEX idx_allergene_repas (code, repas_id),
+    FOREIGN KEY (repas_id) REFERENCES repas_detaille(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- Table pour compositions de menus
 CREATE TABLE IF NOT EXISTS composition_menu (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -0,0 +1,21 @@
+-- Migration : clé unique (user_id, evenement_suggere_id) de recommandations
+--
+-- CREATE TABLE IF NOT EXISTS ne modifie pas une table déjà créée. Script à
+-- lancer par un administrateur, après une sauvegarde de la table : sans la
+-- clé, l'application cherche la ligne existante avant chaque écriture.
+-- Pour chaque couple en double, la recommandation déjà utilisée est gardée,
+-- sinon la plus récente ; le SELECT liste les lignes qui seront supprimées.
+
+SELECT r1.* FROM recommandations r1
+JOIN recommandations r2 ON r1.user_id = r2.user_id
+    AND r1.evenement_suggere_id = r2.evenement_suggere_id
+    AND (r2.est_utilisee > r1.est_utilisee
+         OR (r2.est_utilisee = r1.est_utilisee AND r2.id > r1.id));
+
+DELETE r1 FROM recommandations r1
+JOIN recommandations r2 ON r1.user_id = r2.user_id
+    AND r1.evenement_suggere_id = r2.evenement_suggere_id
+    AND (r2.est_utilisee > r1.est_utilisee
+         OR (r2.est_utilisee = r1.est_utilisee AND r2.id > r1.id));
+
+ALTER TABLE recommandations ADD UNIQUE KEY uk_user_evenement (user_id, evenement_suggere_id);
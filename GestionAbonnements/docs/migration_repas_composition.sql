@@ -0,0 +1,47 @@
+-- Migration : ingrédients et allergènes des repas détaillés en tables de liaison
+--
+-- Les colonnes texte repas_detaille.ingredients et repas_detaille.allergenes
+-- (valeurs séparées par des virgules) sont remplacées par repas_ingredient
+-- (liée à ingredients) et repas_allergene, indexées dans les deux sens.
+--
+-- 1. Créer les tables (idempotent, également fait au démarrage par RepasDetailleServiceImpl)
+CREATE TABLE IF NOT EXISTS repas_ingredient (
+    repas_id BIGINT NOT NULL,
+    ingredient_id BIGINT NOT NULL,
+    ordre INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (repas_id, ingredient_id),
+    INDEX idx_ingredient_repas (ingredient_id, repas_id),
+    FOREIGN KEY (repas_id) REFERENCES repas_detaille(id) ON DELETE CASCADE,
+    FOREIGN KEY (ingredient_id) REFERENCES ingredients(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE IF NOT EXISTS repas_allergene (
+    repas_id BIGINT NOT NULL,
+    code VARCHAR(50) NOT NULL,
+    libelle VARCHAR(100) NOT NULL,
+    ordre INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (repas_id, code),
+    INDEX idx_allergene_repas (code, repas_id),
+    FOREIGN KEY (repas_id) REFERENCES repas_detaille(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE IF NOT EXISTS schema_migrations (
+    nom VARCHAR(100) PRIMARY KEY,
+    appliquee_le TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 2. Reprise des données : faite au démarrage de l'application par
+--    RepasDetailleServiceImpl, en une transaction. Chaque ingrédient est relié
+--    à l'entrée de même nom (sans accents ni casse) de ingredients, ou ajouté
+--    inactif en catégorie EXTRA ; chaque allergène reçoit son code normalisé.
+--    La reprise est inscrite dans schema_migrations (nom = 'repas_composition')
+--    et n'est plus refaite ensuite. Les colonnes texte ne sont pas modifiées
+--    par la reprise, et l'application continue de les écrire à chaque création
+--    ou modification de repas : tant qu'elles existent, un retour à la version
+--    précédente est possible sans perte d'ingrédients ni d'allergènes.
+
+-- 3. Une fois toutes les instances à jour et la reprise vérifiée, les colonnes
+--    texte peuvent être vidées puis supprimées (étape sans retour arrière ;
+--    les instances redémarrées cessent alors de les écrire) :
+-- UPDATE repas_detaille SET ingredients = NULL, allergenes = NULL;
+-- ALTER TABLE repas_detaille DROP COLUMN ingredients, DROP COLUMN allergenes;
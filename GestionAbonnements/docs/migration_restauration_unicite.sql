@@ -0,0 +1,31 @@
+-- Migration : clés uniques des tables de restauration sur une base existante
+--
+-- CREATE TABLE IF NOT EXISTS ne modifie pas une table déjà créée. Script à
+-- lancer par un administrateur, après une sauvegarde des tables concernées :
+-- l'application ne fait que constater la présence des clés et, sans elles,
+-- vérifie les doublons avant chaque écriture.
+-- Les doublons sont supprimés en gardant la ligne la plus ancienne ; les
+-- requêtes SELECT permettent de les revoir avant suppression.
+
+-- repas : un repas par participant et par jour
+SELECT r1.* FROM repas r1
+JOIN repas r2 ON r1.participant_id = r2.participant_id AND r1.date = r2.date AND r1.id > r2.id;
+
+DELETE r1 FROM repas r1
+JOIN repas r2 ON r1.participant_id = r2.participant_id AND r1.date = r2.date AND r1.id > r2.id;
+
+ALTER TABLE repas ADD UNIQUE KEY uk_participant_date (participant_id, date);
+
+-- presence : service de repas, puis un pointage par participant, jour et service
+ALTER TABLE presence ADD COLUMN service_repas
+    ENUM('PETIT_DEJEUNER', 'DEJEUNER', 'DINER') NOT NULL DEFAULT 'DEJEUNER' AFTER date;
+
+SELECT p1.* FROM presence p1
+JOIN presence p2 ON p1.participant_id = p2.participant_id AND p1.date = p2.date
+    AND p1.service_repas = p2.service_repas AND p1.id > p2.id;
+
+DELETE p1 FROM presence p1
+JOIN presence p2 ON p1.participant_id = p2.participant_id AND p1.date = p2.date
+    AND p1.service_repas = p2.service_repas AND p1.id > p2.id;
+
+ALTER TABLE presence ADD UNIQUE KEY uk_participant_date_service (participant_id, date, service_repas);
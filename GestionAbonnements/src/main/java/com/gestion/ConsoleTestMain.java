@@ -514,6 +514,7 @@ public class ConsoleTestMain {
             System.out.println("16) Lister les tickets valides");
             System.out.println("17) Lister les tickets expirés");
             System.out.println("18) Valider un ticket par code unique");
+            System.out.println("19) Scanner un ticket à l'entrée (contrôle d'accès)");
             System.out.println("0) Retour au menu principal");
             System.out.println("======================================");
             System.out.print("👉 Votre choix : ");
@@ -550,6 +551,7 @@ public class ConsoleTestMain {
                     case 16 -> listerTicketsValides();
                     case 17 -> listerTicketsExpires();
                     case 18 -> validerTicketParCode();
+                    case 19 -> scannerTicketEntree();
                     case 0  -> {
                         System.out.println("Retour au menu principal...");
                         quitter = true;
@@ -828,6 +830,13 @@ public class ConsoleTestMain {
         System.out.println("\nTicket avec code " + code + " : " + (valide ? "VALIDE ✅" : "INVALIDE ou inexistant ❌"));
     }
 
+    private static void scannerTicketEntree() {
+        System.out.print("Code unique scanné : ");
+        String code = sc.nextLine().trim();
+        Ticket.ResultatScan resultat = ticketService.scannerTicket(code);
+        System.out.println("\n" + (resultat == Ticket.ResultatScan.ACCEPTE ? "✅ " : "❌ ") + resultat.getLabel());
+    }
+
     private static void afficherListeTickets(List<Ticket> tickets, String titre) {
         if (tickets.isEmpty()) {
             System.out.println("Aucun ticket trouvé pour : " + titre);
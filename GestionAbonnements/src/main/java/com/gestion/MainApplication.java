@@ -68,6 +68,13 @@ public class MainApplication extends Application {
 package com.gestion;
 
 import com.gestion.controllers.MainController;
+import com.gestion.services.InteractionTracker;
+import com.gestion.services.ItemSimilarityIndex;
+import com.gestion.services.PresenceCheckIn;
+import com.gestion.services.RecommandationCache;
+import com.gestion.services.RecommendationBatchJob;
+import com.gestion.services.TicketExpirySweeper;
+import com.gestion.tools.MyConnection;
 import javafx.animation.FadeTransition;
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -90,6 +97,8 @@ public class MainApplication extends Application {
 
     private static Stage primaryStage;
     private static MainController mainController;
+    private TicketExpirySweeper ticketExpirySweeper;
+    private RecommendationBatchJob recommendationBatchJob;
 
     public static void main(String[] args) {
         launch(args);
@@ -149,6 +158,19 @@ public class MainApplication extends Application {
 
             System.out.println("LAMMA Voyage démarrée avec succès !");
 
+            ticketExpirySweeper = new TicketExpirySweeper(MyConnection.getInstance(),
+                    TicketExpirySweeper.Config.fromSystemProperties());
+            ticketExpirySweeper.start();
+
+            recommendationBatchJob = new RecommendationBatchJob(MyConnection.getInstance(),
+                    RecommendationBatchJob.Config.fromSystemProperties());
+            recommendationBatchJob.start();
+
+            // Matrice et index de similarité chargés en fond pour ne pas retarder l'affichage
+            Thread chargementMatrice = new Thread(ItemSimilarityIndex::getInstance, "reco-index-load");
+            chargementMatrice.setDaemon(true);
+            chargementMatrice.start();
+
             // Charge une vue par défaut au démarrage (optionnel)
             // loadView("/views/abonnements/abonnement-list.fxml");  // décommente si besoin
 
@@ -170,6 +192,33 @@ public class MainApplication extends Application {
         }
     }
 
+    /**
+     * Arrête les tâches de fond puis ferme le pool de connexions.
+     */
+    @Override
+    public void stop() {
+        if (ticketExpirySweeper != null) {
+            ticketExpirySweeper.close();
+            System.out.println("Expiration des tickets : " + ticketExpirySweeper.getStats());
+        }
+        if (recommendationBatchJob != null) {
+            recommendationBatchJob.close();
+            System.out.println("Précalcul des recommandations : " + recommendationBatchJob.getStats());
+        }
+        System.out.println("Cache des recommandations : " + RecommandationCache.getStats());
+        PresenceCheckIn pointages = PresenceCheckIn.siDemarre();
+        if (pointages != null) {
+            pointages.close();
+            System.out.println("Pointage des présences : " + pointages.getStats());
+        }
+        InteractionTracker suiviInteractions = InteractionTracker.siDemarre();
+        if (suiviInteractions != null) {
+            suiviInteractions.close();
+            System.out.println("Interactions sur les recommandations : " + suiviInteractions.getStats());
+        }
+        MyConnection.getInstance().closeConnection();
+    }
+
     /**
      * Charge une nouvelle vue dans le conteneur du MainController (moduleStackPane)
      * avec une transition fade simple.
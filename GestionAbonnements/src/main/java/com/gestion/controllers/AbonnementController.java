@@ -2,6 +2,7 @@ package com.gestion.controllers;
 
 import com.gestion.criteria.AbonnementCriteria;
 import com.gestion.entities.Abonnement;
+import com.gestion.entities.AbonnementAnalytics;
 import com.gestion.interfaces.AbonnementService;
 import com.gestion.services.AbonnementServiceImpl;
 
@@ -56,6 +57,10 @@ public class AbonnementController {
         return abonnementService.search(criteria);
     }
 
+    public long count(AbonnementCriteria criteria) {
+        return abonnementService.count(criteria);
+    }
+
     public List<Abonnement> findProchesExpiration(int jours) {
         return abonnementService.findAbonnementsProchesExpiration(jours);
     }
@@ -68,6 +73,10 @@ public class AbonnementController {
         return abonnementService.getTotalPointsAccumulesByUserId(userId);
     }
 
+    public AbonnementAnalytics getAnalytics(int topN) {
+        return abonnementService.getAnalytics(topN);
+    }
+
     public Abonnement update(Abonnement abonnement) {
         return abonnementService.update(abonnement);
     }
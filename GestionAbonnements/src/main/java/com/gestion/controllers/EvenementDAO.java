@@ -2,6 +2,7 @@ package com.gestion.controllers;
 
 import com.gestion.tools.MyConnection;
 import com.gestion.entities.Evenement;
+import com.gestion.services.EventKeywordIndex;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -38,6 +39,7 @@ public class EvenementDAO {
                 if (rs.next()) {
                     int id = rs.getInt(1);
                     e.setIdEvent(id);
+                    indexer(e);
                     return id;
                 }
             }
@@ -102,7 +104,10 @@ public class EvenementDAO {
             ps.setString(6, e.getLieu());
             ps.setInt(7, e.getIdEvent());
 
-            return ps.executeUpdate() > 0;
+            boolean modifie = ps.executeUpdate() > 0;
+            if (modifie)
+                indexer(e);
+            return modifie;
         }
     }
 
@@ -114,10 +119,21 @@ public class EvenementDAO {
                 PreparedStatement ps = cn.prepareStatement(sql)) {
 
             ps.setInt(1, id);
-            return ps.executeUpdate() > 0;
+            boolean supprime = ps.executeUpdate() > 0;
+            EventKeywordIndex index = EventKeywordIndex.siChargee();
+            if (supprime && index != null)
+                index.retirer(id);
+            return supprime;
         }
     }
 
+    // ===================== INDEX MOTS-CLÉS =====================
+    private void indexer(Evenement e) {
+        EventKeywordIndex index = EventKeywordIndex.siChargee();
+        if (index != null)
+            index.indexer(e.getIdEvent(), e.getTitre(), e.getDescription());
+    }
+
     // ===================== MAPPER =====================
     private Evenement mapResultSet(ResultSet rs) throws SQLException {
         Evenement e = new Evenement();
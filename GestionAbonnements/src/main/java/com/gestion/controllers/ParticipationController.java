@@ -171,6 +171,10 @@ public class ParticipationController {
         return participationService.search(criteria);
     }
 
+    public long count(ParticipationCriteria criteria) {
+        return participationService.count(criteria);
+    }
+
     // ===== UPDATE =====
     public Participation update(Participation participation) {
         return participationService.update(participation);
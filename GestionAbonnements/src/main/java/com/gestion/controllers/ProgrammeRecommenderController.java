@@ -66,6 +66,7 @@ import java.util.List;
 /*package com.gestion.controllers;
 
 import com.gestion.entities.ProgrammeRecommender;
+import com.gestion.tools.MyConnection;
 
 import java.sql.*;
 import java.time.LocalTime;
@@ -75,11 +76,10 @@ import java.util.List;
 public class ProgrammeRecommenderController {
 
     private static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/gestion_evenements",
-                "root",
-                ""
-        );
+        Connection c = MyConnection.getInstance().getConnection();
+        if (c == null)
+            throw new SQLException("Aucune connexion disponible");
+        return c;
     }
 
     public void save(ProgrammeRecommender p) {
@@ -169,6 +169,7 @@ public class ProgrammeRecommenderController {
 
 import com.gestion.entities.ProgrammeRecommender;
 import com.gestion.services.ProgrammeRecommenderService;
+import com.gestion.tools.MyConnection;
 
 import java.sql.*;
 import java.time.LocalTime;
@@ -178,11 +179,10 @@ import java.util.List;
 public class ProgrammeRecommenderController {
 
     private static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/gestion_evenements",
-                "root",
-                ""
-        );
+        Connection c = MyConnection.getInstance().getConnection();
+        if (c == null)
+            throw new SQLException("Aucune connexion disponible");
+        return c;
     }
 
     public void save(ProgrammeRecommender p) {
@@ -297,6 +297,7 @@ private static final ProgrammeRecommenderController programmeRecommenderControll
 package com.gestion.controllers;
 
 import com.gestion.entities.ProgrammeRecommender;
+import com.gestion.tools.MyConnection;
 
 import java.sql.*;
 import java.time.LocalTime;
@@ -309,12 +310,11 @@ import java.util.List;
  */
 public class ProgrammeRecommenderController {
 
-    private static final String URL = "jdbc:mysql://localhost:3306/lamma_db";
-    private static final String USER = "root";
-    private static final String PASSWORD = "";
-
     private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        Connection c = MyConnection.getInstance().getConnection();
+        if (c == null)
+            throw new SQLException("Aucune connexion disponible");
+        return c;
     }
 
     /**
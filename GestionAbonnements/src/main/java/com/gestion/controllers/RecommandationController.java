@@ -71,6 +71,7 @@ import java.util.List;
 package com.gestion.controllers;
 
 import com.gestion.entities.ProgrammeRecommender;
+import com.gestion.tools.MyConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -78,12 +79,11 @@ import java.util.List;
 
 public class RecommandationController {
 
-    private static final String URL = "jdbc:mysql://localhost:3306/gestion_evenements";
-    private static final String USER = "root";
-    private static final String PASSWORD = "";
-
     private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        Connection c = MyConnection.getInstance().getConnection();
+        if (c == null)
+            throw new SQLException("Aucune connexion disponible");
+        return c;
     }
 
     public void save(ProgrammeRecommender p) {
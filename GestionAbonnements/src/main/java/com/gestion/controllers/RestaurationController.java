@@ -3,11 +3,15 @@ package com.gestion.controllers;
 import com.gestion.entities.ParticipantRestauration;
 import com.gestion.entities.Restauration;
 import com.gestion.interfaces.RestaurationService;
+import com.gestion.services.KitchenDemandForecast;
+import com.gestion.services.PresenceCheckIn;
 import com.gestion.services.RestaurationServiceImpl;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -105,9 +109,25 @@ public class RestaurationController {
         return service.findPresencesByParticipantId(participantId);
     }
 
+    /**
+     * Pointage au guichet pour le service en cours ; écrit en base par lots
+     * par {@link PresenceCheckIn}.
+     */
+    public PresenceCheckIn.Resultat pointerPresence(Long participantId, boolean abonnementActif) {
+        return PresenceCheckIn.getInstance().pointer(participantId, LocalDate.now(),
+                Restauration.ServiceRepas.a(LocalTime.now()), abonnementActif);
+    }
+
+    public int pointerPresences(List<Long> participantIds, LocalDate date, Restauration.ServiceRepas service) {
+        return PresenceCheckIn.getInstance().pointer(participantIds, date, service, true);
+    }
+
+    public long getRepasServis(LocalDate date, Restauration.ServiceRepas service) {
+        return PresenceCheckIn.getInstance().getServis(date, service);
+    }
+
     public boolean hasPresenceForDay(Long participantId, LocalDate date) {
-        return service.findAllPresences().stream()
-                .anyMatch(p -> participantId.equals(p.getParticipantId()) && date.equals(p.getDatePresence()));
+        return service.hasPresenceForParticipantAndDate(participantId, date);
     }
 
     public boolean isAbonnementActif(Long participantId) {
@@ -124,4 +144,14 @@ public class RestaurationController {
     public List<ParticipantRestauration> getBesoinsByParticipantId(Long participantId) {
         return service.findBesoinsByParticipantId(participantId);
     }
+
+    public List<ParticipantRestauration> getBesoinsByEvenementId(Long evenementId) {
+        return service.findBesoinsByEvenementId(evenementId);
+    }
+
+    // ================= PRÉVISION CUISINE =================
+
+    public Optional<KitchenDemandForecast.Prevision> getPrevisionCuisine(Long evenementId) {
+        return KitchenDemandForecast.getInstance().prevision(evenementId);
+    }
 }
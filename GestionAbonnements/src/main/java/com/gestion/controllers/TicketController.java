@@ -139,10 +139,12 @@ import java.util.List;
 
 package com.gestion.controllers;
 
+import com.gestion.entities.Participation;
 import com.gestion.entities.Ticket;
 import com.gestion.interfaces.TicketService;
 import com.gestion.services.TicketServiceImpl;
 
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -197,6 +199,14 @@ public class TicketController {
         return ticketService.findByFormat(Ticket.FormatTicket.valueOf(format.toUpperCase()));
     }
 
+    public List<Ticket> getByCoordonnees(Double latitude, Double longitude, Double rayonKm) {
+        return ticketService.findByCoordonnees(latitude, longitude, rayonKm);
+    }
+
+    public List<Ticket> getTicketsValidesProches(Double latitude, Double longitude, Double rayonKm) {
+        return ticketService.findTicketsValidesProches(latitude, longitude, rayonKm);
+    }
+
     public Ticket creerTicketSelonChoix(Long participationId, Long userId,
                                         String typeStr, Double latitude, Double longitude,
                                         String lieu, String formatStr) {
@@ -208,6 +218,14 @@ public class TicketController {
         return ticketService.create(ticket);
     }
 
+    public List<Ticket> emettreTicketsEnMasse(List<Participation> participations, String typeStr,
+                                              String formatStr, Double latitude, Double longitude,
+                                              String lieu) {
+        Ticket.TypeTicket type = Ticket.TypeTicket.valueOf(typeStr.toUpperCase());
+        Ticket.FormatTicket format = Ticket.FormatTicket.valueOf(formatStr.toUpperCase());
+        return ticketService.emettreTicketsEnMasse(participations, type, format, latitude, longitude, lieu);
+    }
+
     public Ticket marquerCommeUtilise(Long id) {
         return ticketService.marquerCommeUtilise(id);
     }
@@ -219,4 +237,12 @@ public class TicketController {
     public boolean validerTicket(String codeUnique) {
         return ticketService.validerTicket(codeUnique);
     }
+
+    public Ticket.ResultatScan scannerTicket(String codeUnique) {
+        return ticketService.scannerTicket(codeUnique);
+    }
+
+    public int exporterSnapshotHorsLigne(Long evenementId, Path fichier) {
+        return ticketService.exporterSnapshotHorsLigne(evenementId, fichier);
+    }
 }
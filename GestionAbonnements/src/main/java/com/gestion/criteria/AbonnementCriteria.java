@@ -7,6 +7,7 @@ import java.time.LocalDate;
 /**
  * Critères de recherche et tri pour les abonnements.
  * Utilisé par l'API GET /api/abonnements?statut=actif&sort=dateDebut DESC
+ * Pagination par limit/offset ou par curseur ({@link #seekAfter}).
  */
 public class AbonnementCriteria {
     private Abonnement.StatutAbonnement statut;
@@ -16,8 +17,13 @@ public class AbonnementCriteria {
     private LocalDate dateFinApres;
     private Boolean autoRenew;
     private Integer pointsMinimum;
-    private String sortBy;   // dateDebut, dateFin, prix, statut, pointsAccumules, churnScore
+    private Double churnScoreMinimum;
+    private String sortBy;   // dateDebut, dateFin, prix, statut, pointsAccumules, churnScore, id
     private String sortOrder; // ASC, DESC
+    private Integer limit;
+    private Integer offset;
+    private Object seekValue; // valeur de la colonne de tri de la dernière ligne reçue
+    private Long seekId;
 
     public AbonnementCriteria() {
         this.sortBy = "dateDebut";
@@ -38,8 +44,46 @@ public class AbonnementCriteria {
     public void setAutoRenew(Boolean autoRenew) { this.autoRenew = autoRenew; }
     public Integer getPointsMinimum() { return pointsMinimum; }
     public void setPointsMinimum(Integer pointsMinimum) { this.pointsMinimum = pointsMinimum; }
+    public Double getChurnScoreMinimum() { return churnScoreMinimum; }
+    public void setChurnScoreMinimum(Double churnScoreMinimum) { this.churnScoreMinimum = churnScoreMinimum; }
     public String getSortBy() { return sortBy; }
     public void setSortBy(String sortBy) { this.sortBy = sortBy != null ? sortBy : "dateDebut"; }
     public String getSortOrder() { return sortOrder; }
     public void setSortOrder(String sortOrder) { this.sortOrder = "DESC".equalsIgnoreCase(sortOrder != null ? sortOrder : "") ? "DESC" : "ASC"; }
+    public Integer getLimit() { return limit; }
+    public void setLimit(Integer limit) {
+        if (limit != null && limit <= 0) throw new IllegalArgumentException("limit doit être positif ou null");
+        this.limit = limit;
+    }
+    public Integer getOffset() { return offset; }
+    public void setOffset(Integer offset) {
+        if (offset != null && offset < 0) throw new IllegalArgumentException("offset doit être positif ou null");
+        this.offset = offset;
+    }
+    public Object getSeekValue() { return seekValue; }
+    public Long getSeekId() { return seekId; }
+    public boolean hasSeek() { return seekId != null; }
+
+    /**
+     * Positionne la page suivante après l'abonnement donné (dernière ligne de la
+     * page précédente), selon la colonne de tri courante. Null repart du début.
+     */
+    public void seekAfter(Abonnement last) {
+        if (last == null) {
+            this.seekValue = null;
+            this.seekId = null;
+            return;
+        }
+        String key = sortBy == null ? "" : sortBy.trim().toLowerCase();
+        this.seekValue = switch (key) {
+            case "datefin" -> last.getDateFin();
+            case "prix" -> last.getPrix();
+            case "statut" -> last.getStatut();
+            case "pointsaccumules" -> last.getPointsAccumules();
+            case "churnscore" -> last.getChurnScore();
+            case "id" -> last.getId();
+            default -> last.getDateDebut();
+        };
+        this.seekId = last.getId();
+    }
 }
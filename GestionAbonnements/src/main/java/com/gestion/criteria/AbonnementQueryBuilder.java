@@ -0,0 +1,155 @@
+package com.gestion.criteria;
+
+import com.gestion.entities.Abonnement.StatutAbonnement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compile un {@link AbonnementCriteria} en une requête préparée sur
+ * {@code abonnements}.
+ * <p>
+ * Les filtres portent sur les colonnes indexées (statut, type, user_id,
+ * date_fin, auto_renew, churn_score). Le tri passe par une liste blanche et se
+ * termine par {@code id}, ce qui permet une pagination par curseur sur
+ * {@code (colonne de tri, id)} en plus du classique limit/offset.
+ */
+public final class AbonnementQueryBuilder {
+
+    /** Clés de tri acceptées (minuscules) → colonnes SQL. */
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "datedebut", "date_debut",
+            "datefin", "date_fin",
+            "prix", "prix",
+            "statut", "statut",
+            "pointsaccumules", "points_accumules",
+            "churnscore", "churn_score",
+            "id", "id");
+
+    private static final String DEFAULT_SORT = "date_debut";
+
+    private AbonnementQueryBuilder() {
+    }
+
+    public static SqlQuery select(AbonnementCriteria criteria) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM abonnements");
+        List<String> where = filters(criteria, params);
+
+        String column = sortColumn(criteria.getSortBy());
+        String direction = "ASC".equals(criteria.getSortOrder()) ? "ASC" : "DESC";
+
+        if (criteria.hasSeek()) {
+            String op = "ASC".equals(direction) ? ">" : "<";
+            if ("id".equals(column)) {
+                where.add("id " + op + " ?");
+            } else {
+                if (criteria.getSeekValue() == null) {
+                    throw new IllegalArgumentException("Curseur sans valeur pour la colonne de tri " + column);
+                }
+                String expr = seekExpression(column);
+                Object value = seekParam(column, criteria.getSeekValue());
+                where.add("(" + expr + " " + op + " ? OR (" + expr + " = ? AND id " + op + " ?))");
+                params.add(value);
+                params.add(value);
+            }
+            params.add(criteria.getSeekId());
+        }
+
+        appendWhere(sql, where);
+        sql.append(" ORDER BY ").append(column).append(' ').append(direction);
+        if (!"id".equals(column)) {
+            sql.append(", id ").append(direction);
+        }
+
+        if (criteria.getLimit() != null) {
+            sql.append(" LIMIT ?");
+            params.add(criteria.getLimit());
+            if (criteria.getOffset() != null && !criteria.hasSeek()) {
+                sql.append(" OFFSET ?");
+                params.add(criteria.getOffset());
+            }
+        }
+        return new SqlQuery(sql.toString(), params);
+    }
+
+    public static SqlQuery count(AbonnementCriteria criteria) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM abonnements");
+        appendWhere(sql, filters(criteria, params));
+        return new SqlQuery(sql.toString(), params);
+    }
+
+    private static List<String> filters(AbonnementCriteria c, List<Object> params) {
+        List<String> where = new ArrayList<>();
+        if (c.getUserId() != null) {
+            where.add("user_id = ?");
+            params.add(c.getUserId());
+        }
+        if (c.getStatut() != null) {
+            where.add("statut = ?");
+            params.add(c.getStatut());
+        }
+        if (c.getType() != null) {
+            where.add("type = ?");
+            params.add(c.getType());
+        }
+        if (c.getDateFinApres() != null) {
+            where.add("date_fin >= ?");
+            params.add(c.getDateFinApres());
+        }
+        if (c.getDateFinAvant() != null) {
+            where.add("date_fin <= ?");
+            params.add(c.getDateFinAvant());
+        }
+        if (c.getAutoRenew() != null) {
+            where.add("auto_renew = ?");
+            params.add(c.getAutoRenew());
+        }
+        if (c.getPointsMinimum() != null) {
+            where.add("points_accumules >= ?");
+            params.add(c.getPointsMinimum());
+        }
+        if (c.getChurnScoreMinimum() != null) {
+            where.add("churn_score >= ?");
+            params.add(c.getChurnScoreMinimum());
+        }
+        return where;
+    }
+
+    private static void appendWhere(StringBuilder sql, List<String> where) {
+        if (!where.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", where));
+        }
+    }
+
+    /**
+     * Expression comparée au curseur. {@code ORDER BY statut} trie un ENUM
+     * selon son rang de déclaration, pas selon le libellé : le curseur compare
+     * donc le rang ({@code statut + 0}).
+     */
+    private static String seekExpression(String column) {
+        return "statut".equals(column) ? "statut + 0" : column;
+    }
+
+    /**
+     * Valeur du curseur liée à la requête. Le rang MySQL d'un statut commence
+     * à 1 et {@link StatutAbonnement} déclare ses valeurs dans l'ordre de
+     * l'ENUM ; {@code churn_score} est un FLOAT, un double non arrondi ne lui
+     * serait jamais égal.
+     */
+    private static Object seekParam(String column, Object value) {
+        if (value instanceof StatutAbonnement statut)
+            return statut.ordinal() + 1;
+        if ("churn_score".equals(column) && value instanceof Number n)
+            return n.floatValue();
+        return value;
+    }
+
+    private static String sortColumn(String sortBy) {
+        if (sortBy == null)
+            return DEFAULT_SORT;
+        return SORT_COLUMNS.getOrDefault(sortBy.trim().toLowerCase(), DEFAULT_SORT);
+    }
+}
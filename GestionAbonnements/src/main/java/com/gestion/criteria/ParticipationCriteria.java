@@ -74,6 +74,9 @@ import java.util.Objects;
  * - statut
  * - type
  * - hebergementNuits
+ *
+ * Pagination : {@code limit} borne la page, et {@link #seekAfter} positionne la
+ * page suivante après la dernière ligne reçue (keyset sur date_inscription, id).
  */
 public class ParticipationCriteria {
 
@@ -86,6 +89,9 @@ public class ParticipationCriteria {
     private LocalDateTime dateInscriptionTo;
     private String sortBy;     // dateInscription, statut, type, hebergementNuits
     private String sortOrder;  // ASC, DESC
+    private Integer limit;
+    private LocalDateTime seekDateInscription;
+    private Long seekId;
 
     public ParticipationCriteria() {
         this.sortBy = "dateInscription";
@@ -131,6 +137,18 @@ public class ParticipationCriteria {
         return sortOrder;
     }
 
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public LocalDateTime getSeekDateInscription() {
+        return seekDateInscription;
+    }
+
+    public Long getSeekId() {
+        return seekId;
+    }
+
     // ────────────────────────────────────────────────
     // Setters avec validation de base
     // ────────────────────────────────────────────────
@@ -205,6 +223,38 @@ public class ParticipationCriteria {
         }
     }
 
+    public void setLimit(Integer limit) {
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("limit doit être positif ou null");
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Positionne la page suivante juste après la participation donnée
+     * (dernière ligne de la page précédente). Null repart de la première page.
+     */
+    public void seekAfter(Participation last) {
+        if (last == null) {
+            this.seekDateInscription = null;
+            this.seekId = null;
+            return;
+        }
+        seekAfter(last.getDateInscription(), last.getId());
+    }
+
+    public void seekAfter(LocalDateTime dateInscription, Long id) {
+        if ((dateInscription == null) != (id == null)) {
+            throw new IllegalArgumentException("Le curseur exige dateInscription et id");
+        }
+        this.seekDateInscription = dateInscription;
+        this.seekId = id;
+    }
+
+    public boolean hasSeek() {
+        return seekDateInscription != null && seekId != null;
+    }
+
     // ────────────────────────────────────────────────
     // Validation de la plage de dates
     // ────────────────────────────────────────────────
@@ -243,6 +293,9 @@ public class ParticipationCriteria {
                 ", dateInscriptionTo=" + dateInscriptionTo +
                 ", sortBy='" + sortBy + '\'' +
                 ", sortOrder='" + sortOrder + '\'' +
+                ", limit=" + limit +
+                ", seekDateInscription=" + seekDateInscription +
+                ", seekId=" + seekId +
                 '}';
     }
 
@@ -259,11 +312,15 @@ public class ParticipationCriteria {
                 Objects.equals(dateInscriptionFrom, that.dateInscriptionFrom) &&
                 Objects.equals(dateInscriptionTo, that.dateInscriptionTo) &&
                 Objects.equals(sortBy, that.sortBy) &&
-                Objects.equals(sortOrder, that.sortOrder);
+                Objects.equals(sortOrder, that.sortOrder) &&
+                Objects.equals(limit, that.limit) &&
+                Objects.equals(seekDateInscription, that.seekDateInscription) &&
+                Objects.equals(seekId, that.seekId);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(userId, evenementId, statut, type, contexteSocial, dateInscriptionFrom, dateInscriptionTo, sortBy, sortOrder);
+        return Objects.hash(userId, evenementId, statut, type, contexteSocial, dateInscriptionFrom, dateInscriptionTo, sortBy, sortOrder,
+                limit, seekDateInscription, seekId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.gestion.criteria;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compile un {@link ParticipationCriteria} en une seule requête préparée.
+ * <p>
+ * Chaque critère renseigné ajoute un prédicat sur une colonne indexée de
+ * {@code participations}. Le tri passe par une liste blanche de colonnes et se
+ * termine toujours par {@code id} pour que l'ordre soit total ; c'est ce qui
+ * rend la pagination par curseur (keyset) sur {@code (date_inscription, id)}
+ * stable et en temps constant par page, quelle que soit sa profondeur.
+ */
+public final class ParticipationQueryBuilder {
+
+    /** Clés de tri acceptées (minuscules) → colonnes SQL. */
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "dateinscription", "date_inscription",
+            "statut", "statut",
+            "type", "type",
+            "hebergementnuits", "hebergement_nuits");
+
+    private static final String DEFAULT_SORT = "date_inscription";
+
+    private ParticipationQueryBuilder() {
+    }
+
+    /**
+     * {@code SELECT *} filtré, trié, éventuellement paginé.
+     */
+    public static SqlQuery select(ParticipationCriteria criteria) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM participations");
+        List<String> where = filters(criteria, params);
+
+        String column = sortColumn(criteria.getSortBy());
+        String direction = "ASC".equals(criteria.getSortOrder()) ? "ASC" : "DESC";
+
+        if (criteria.hasSeek()) {
+            if (!DEFAULT_SORT.equals(column)) {
+                throw new IllegalArgumentException("La pagination par curseur exige un tri par dateInscription");
+            }
+            String op = "ASC".equals(direction) ? ">" : "<";
+            where.add("(date_inscription " + op + " ? OR (date_inscription = ? AND id " + op + " ?))");
+            params.add(criteria.getSeekDateInscription());
+            params.add(criteria.getSeekDateInscription());
+            params.add(criteria.getSeekId());
+        }
+
+        appendWhere(sql, where);
+        sql.append(" ORDER BY ").append(column).append(' ').append(direction);
+        if (!DEFAULT_SORT.equals(column)) {
+            sql.append(", ").append(DEFAULT_SORT).append(' ').append(direction);
+        }
+        sql.append(", id ").append(direction);
+
+        if (criteria.getLimit() != null) {
+            sql.append(" LIMIT ?");
+            params.add(criteria.getLimit());
+        }
+        return new SqlQuery(sql.toString(), params);
+    }
+
+    /**
+     * {@code SELECT COUNT(*)} sur les mêmes filtres, sans tri ni curseur.
+     */
+    public static SqlQuery count(ParticipationCriteria criteria) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM participations");
+        appendWhere(sql, filters(criteria, params));
+        return new SqlQuery(sql.toString(), params);
+    }
+
+    private static List<String> filters(ParticipationCriteria c, List<Object> params) {
+        List<String> where = new ArrayList<>();
+        if (c.getUserId() != null) {
+            where.add("user_id = ?");
+            params.add(c.getUserId());
+        }
+        if (c.getEvenementId() != null) {
+            where.add("evenement_id = ?");
+            params.add(c.getEvenementId());
+        }
+        if (c.getStatut() != null) {
+            where.add("statut = ?");
+            params.add(c.getStatut());
+        }
+        if (c.getType() != null) {
+            where.add("type = ?");
+            params.add(c.getType());
+        }
+        if (c.getContexteSocial() != null) {
+            where.add("contexte_social = ?");
+            params.add(c.getContexteSocial());
+        }
+        if (c.getDateInscriptionFrom() != null) {
+            where.add("date_inscription >= ?");
+            params.add(c.getDateInscriptionFrom());
+        }
+        if (c.getDateInscriptionTo() != null) {
+            where.add("date_inscription <= ?");
+            params.add(c.getDateInscriptionTo());
+        }
+        return where;
+    }
+
+    private static void appendWhere(StringBuilder sql, List<String> where) {
+        if (!where.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", where));
+        }
+    }
+
+    private static String sortColumn(String sortBy) {
+        if (sortBy == null)
+            return DEFAULT_SORT;
+        return SORT_COLUMNS.getOrDefault(sortBy.trim().toLowerCase(), DEFAULT_SORT);
+    }
+}
@@ -0,0 +1,57 @@
+package com.gestion.criteria;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Requête SQL compilée à partir de critères : texte paramétré + valeurs à lier.
+ * Aucune valeur utilisateur n'est concaténée dans le SQL.
+ */
+public class SqlQuery {
+
+    private final String sql;
+    private final List<Object> params;
+
+    public SqlQuery(String sql, List<Object> params) {
+        this.sql = sql;
+        this.params = Collections.unmodifiableList(new ArrayList<>(params));
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<Object> getParams() {
+        return params;
+    }
+
+    /**
+     * Lie les paramètres dans l'ordre, en convertissant les types java.time.
+     */
+    public void bind(PreparedStatement ps) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            Object value = params.get(i);
+            if (value instanceof LocalDateTime ldt) {
+                ps.setTimestamp(i + 1, Timestamp.valueOf(ldt));
+            } else if (value instanceof LocalDate ld) {
+                ps.setDate(i + 1, Date.valueOf(ld));
+            } else if (value instanceof Enum<?> e) {
+                ps.setString(i + 1, e.name());
+            } else {
+                ps.setObject(i + 1, value);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return sql + " " + params;
+    }
+}
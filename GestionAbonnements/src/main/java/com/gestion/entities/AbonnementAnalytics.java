@@ -0,0 +1,92 @@
+package com.gestion.entities;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Instantané des indicateurs abonnements (revenus, points, rétention),
+ * calculé en base par agrégats SQL.
+ */
+public class AbonnementAnalytics {
+
+    private final LocalDateTime genereLe;
+    private final Map<String, BigDecimal> revenuParMois = new TreeMap<>();
+    private final Map<String, BigDecimal> revenuCumuleParMois = new TreeMap<>();
+    private final Map<Abonnement.TypeAbonnement, BigDecimal> revenuParType = new EnumMap<>(Abonnement.TypeAbonnement.class);
+    private final Map<Abonnement.TypeAbonnement, Long> nombreParType = new EnumMap<>(Abonnement.TypeAbonnement.class);
+    private final Map<Abonnement.StatutAbonnement, BigDecimal> revenuParStatut = new EnumMap<>(Abonnement.StatutAbonnement.class);
+    private final Map<Abonnement.StatutAbonnement, Long> nombreParStatut = new EnumMap<>(Abonnement.StatutAbonnement.class);
+    private final List<TopPoints> topPoints = new ArrayList<>();
+    private final List<Cohorte> cohortes = new ArrayList<>();
+    private BigDecimal revenuTotal = BigDecimal.ZERO;
+    private long nombreTotal;
+    private long pointsTotal;
+
+    public AbonnementAnalytics(LocalDateTime genereLe) {
+        this.genereLe = genereLe;
+    }
+
+    public LocalDateTime getGenereLe() { return genereLe; }
+    public Map<String, BigDecimal> getRevenuParMois() { return revenuParMois; }
+    public Map<String, BigDecimal> getRevenuCumuleParMois() { return revenuCumuleParMois; }
+    public Map<Abonnement.TypeAbonnement, BigDecimal> getRevenuParType() { return revenuParType; }
+    public Map<Abonnement.TypeAbonnement, Long> getNombreParType() { return nombreParType; }
+    public Map<Abonnement.StatutAbonnement, BigDecimal> getRevenuParStatut() { return revenuParStatut; }
+    public Map<Abonnement.StatutAbonnement, Long> getNombreParStatut() { return nombreParStatut; }
+    public List<TopPoints> getTopPoints() { return topPoints; }
+    public List<Cohorte> getCohortes() { return cohortes; }
+    public BigDecimal getRevenuTotal() { return revenuTotal; }
+    public void setRevenuTotal(BigDecimal revenuTotal) { this.revenuTotal = revenuTotal; }
+    public long getNombreTotal() { return nombreTotal; }
+    public void setNombreTotal(long nombreTotal) { this.nombreTotal = nombreTotal; }
+    public long getPointsTotal() { return pointsTotal; }
+    public void setPointsTotal(long pointsTotal) { this.pointsTotal = pointsTotal; }
+
+    /**
+     * Abonnement du classement par points.
+     */
+    public static class TopPoints {
+        private final long abonnementId;
+        private final long userId;
+        private final int points;
+
+        public TopPoints(long abonnementId, long userId, int points) {
+            this.abonnementId = abonnementId;
+            this.userId = userId;
+            this.points = points;
+        }
+
+        public long getAbonnementId() { return abonnementId; }
+        public long getUserId() { return userId; }
+        public int getPoints() { return points; }
+    }
+
+    /**
+     * Cohorte d'utilisateurs regroupés par mois de premier abonnement.
+     */
+    public static class Cohorte {
+        private final String mois;
+        private final long taille;
+        private final long retenus;
+
+        public Cohorte(String mois, long taille, long retenus) {
+            this.mois = mois;
+            this.taille = taille;
+            this.retenus = retenus;
+        }
+
+        public String getMois() { return mois; }
+        public long getTaille() { return taille; }
+        public long getRetenus() { return retenus; }
+
+        /** Part des utilisateurs de la cohorte ayant encore un abonnement actif, en %. */
+        public double getTauxRetention() {
+            return taille == 0 ? 0.0 : 100.0 * retenus / taille;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.gestion.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Résultat du report en base d'un journal de scans hors ligne.
+ */
+public class BilanRejeu {
+
+    private int appliques;
+    /** Scans refusés en base : ticket déjà utilisé (autre porte) ou plus valide. */
+    private final List<ScanHorsLigne> doublons = new ArrayList<>();
+
+    public int getAppliques() { return appliques; }
+    public void ajouterApplique() { appliques++; }
+    public List<ScanHorsLigne> getDoublons() { return doublons; }
+
+    public int getTotal() {
+        return appliques + doublons.size();
+    }
+
+    @Override
+    public String toString() {
+        return "Rejeu : " + appliques + " appliqué(s), " + doublons.size() + " doublon(s)";
+    }
+}
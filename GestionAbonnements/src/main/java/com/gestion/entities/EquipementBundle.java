@@ -0,0 +1,74 @@
+package com.gestion.entities;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Bundle d'équipements d'une recommandation : des sections nommées par
+ * contexte (« pour_couple », « analyse_preferences »...), chacune associant un
+ * équipement à la variante conseillée. Immuable.
+ */
+public final class EquipementBundle {
+
+    public static final EquipementBundle VIDE = new EquipementBundle(Map.of());
+
+    private final Map<String, Map<String, String>> sections;
+
+    private EquipementBundle(Map<String, Map<String, String>> sections) {
+        this.sections = sections;
+    }
+
+    @JsonCreator
+    public static EquipementBundle of(Map<String, Map<String, String>> sections) {
+        if (sections == null || sections.isEmpty())
+            return VIDE;
+        Map<String, Map<String, String>> copie = new LinkedHashMap<>();
+        sections.forEach((nom, items) -> copie.put(nom,
+                Collections.unmodifiableMap(new LinkedHashMap<>(items != null ? items : Map.of()))));
+        return new EquipementBundle(Collections.unmodifiableMap(copie));
+    }
+
+    /** Sections dans leur ordre d'origine ; non modifiable. */
+    @JsonValue
+    public Map<String, Map<String, String>> getSections() {
+        return sections;
+    }
+
+    public Map<String, String> getSection(String nom) {
+        return sections.getOrDefault(nom, Map.of());
+    }
+
+    public boolean estVide() {
+        return sections.isEmpty();
+    }
+
+    /** Une section dont le nom contient {@code contexte} (sans tenir compte de la casse). */
+    public boolean concerne(String contexte) {
+        String c = contexte.toLowerCase();
+        return sections.keySet().stream().anyMatch(k -> k.toLowerCase().contains(c));
+    }
+
+    public void forEach(BiConsumer<String, Map<String, String>> action) {
+        sections.forEach(action);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof EquipementBundle b && sections.equals(b.sections);
+    }
+
+    @Override
+    public int hashCode() {
+        return sections.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return sections.toString();
+    }
+}
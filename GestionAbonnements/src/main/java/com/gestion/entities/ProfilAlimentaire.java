@@ -0,0 +1,138 @@
+package com.gestion.entities;
+
+import com.gestion.tools.TextUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Restrictions alimentaires d'un participant : régimes exigés et allergènes
+ * exclus. Lu depuis les libellés saisis dans {@link ParticipantRestauration}
+ * (« Végétarien, Sans gluten », « arachides, lait »). Immuable.
+ */
+public final class ProfilAlimentaire {
+
+    public enum Regime { VEGETARIEN, VEGAN, SANS_GLUTEN, HALAL }
+
+    public static final ProfilAlimentaire AUCUN =
+            new ProfilAlimentaire(EnumSet.noneOf(Regime.class), Set.of());
+
+    /** Synonymes ramenés au nom d'allergène des repas, après normalisation. */
+    private static final Map<String, String> SYNONYMES = Map.of(
+            "LACTOSE", "LAIT",
+            "CACAHUETE", "ARACHIDE",
+            "FRUITS_DE_MER", "CRUSTACE");
+
+    private final Set<Regime> regimes;
+    private final Set<String> allergenes;
+
+    private ProfilAlimentaire(Set<Regime> regimes, Set<String> allergenes) {
+        this.regimes = Collections.unmodifiableSet(regimes);
+        this.allergenes = Collections.unmodifiableSet(allergenes);
+    }
+
+    public static ProfilAlimentaire de(Collection<Regime> regimes, Collection<String> allergenes) {
+        EnumSet<Regime> r = regimes.isEmpty() ? EnumSet.noneOf(Regime.class) : EnumSet.copyOf(regimes);
+        Set<String> a = new TreeSet<>();
+        for (String allergene : allergenes) {
+            String n = normaliserAllergene(allergene);
+            if (!n.isEmpty())
+                a.add(n);
+        }
+        return r.isEmpty() && a.isEmpty() ? AUCUN : new ProfilAlimentaire(r, a);
+    }
+
+    /**
+     * Profil lu depuis un libellé de restrictions (régimes, séparés par des
+     * virgules) et une liste d'allergies ; l'un et l'autre peuvent être nuls.
+     */
+    public static ProfilAlimentaire lire(String restrictions, String allergies) {
+        EnumSet<Regime> r = EnumSet.noneOf(Regime.class);
+        if (restrictions != null) {
+            String t = TextUtils.plier(restrictions);
+            if (t.contains("vegan") || t.contains("vegetalien"))
+                r.add(Regime.VEGAN);
+            if (t.contains("vegetarien"))
+                r.add(Regime.VEGETARIEN);
+            if (t.contains("gluten") || t.contains("coeliaque"))
+                r.add(Regime.SANS_GLUTEN);
+            if (t.contains("halal"))
+                r.add(Regime.HALAL);
+        }
+        return de(r, allergies == null || allergies.isBlank() ? Set.of() : List.of(allergies.split("[,;/]")));
+    }
+
+    /** Union des deux profils : un participant peut déclarer plusieurs besoins. */
+    public ProfilAlimentaire avec(ProfilAlimentaire autre) {
+        if (autre == null || autre.estVide())
+            return this;
+        if (estVide())
+            return autre;
+        EnumSet<Regime> r = EnumSet.noneOf(Regime.class);
+        r.addAll(regimes);
+        r.addAll(autre.regimes);
+        Set<String> a = new TreeSet<>(allergenes);
+        a.addAll(autre.allergenes);
+        return new ProfilAlimentaire(r, a);
+    }
+
+    /** Le repas respecte chaque régime exigé et ne contient aucun allergène exclu. */
+    public boolean accepte(RepasDetaille repas) {
+        if (!regimesDe(repas).containsAll(regimes))
+            return false;
+        for (String a : repas.getAllergenes()) {
+            if (allergenes.contains(normaliserAllergene(a)))
+                return false;
+        }
+        return true;
+    }
+
+    public static EnumSet<Regime> regimesDe(RepasDetaille repas) {
+        EnumSet<Regime> r = EnumSet.noneOf(Regime.class);
+        if (repas.isVegetarien()) r.add(Regime.VEGETARIEN);
+        if (repas.isVegan()) r.add(Regime.VEGAN);
+        if (repas.isSansGluten()) r.add(Regime.SANS_GLUTEN);
+        if (repas.isHalal()) r.add(Regime.HALAL);
+        return r;
+    }
+
+    /**
+     * Forme canonique d'un allergène : majuscules sans accents, espaces en
+     * {@code _}, sans marque de pluriel (« Œufs » → {@code OEUF}).
+     */
+    public static String normaliserAllergene(String allergene) {
+        if (allergene == null)
+            return "";
+        String n = TextUtils.plier(allergene).trim().replaceAll("\\s+", "_").toUpperCase();
+        if (n.length() > 3 && n.endsWith("S"))
+            n = n.substring(0, n.length() - 1);
+        return SYNONYMES.getOrDefault(n, n);
+    }
+
+    public Set<Regime> getRegimes() { return regimes; }
+    public Set<String> getAllergenes() { return allergenes; }
+
+    public boolean estVide() {
+        return regimes.isEmpty() && allergenes.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ProfilAlimentaire p && regimes.equals(p.regimes) && allergenes.equals(p.allergenes);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * regimes.hashCode() + allergenes.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return regimes + " sans " + allergenes;
+    }
+}
@@ -1,13 +1,16 @@
 package com.gestion.entities;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import com.gestion.tools.JsonCodec;
 
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.Map;
 
 /**
@@ -22,7 +25,14 @@ public class Recommandation {
     private double score;
     private String raison;
     private AlgorithmeReco algorithmeUsed;
-    private Map<String, Object> equipementBundle;
+    /**
+     * Bundle typé, décodé à la demande depuis {@link #equipementBundleJson}.
+     * Volatils : une recommandation en cache est lue par plusieurs threads.
+     */
+    private volatile EquipementBundle equipementBundle;
+    /** JSON lu en base ; conservé après décodage, null si le bundle a été affecté. */
+    @JsonIgnore
+    private volatile String equipementBundleJson;
     private String sourceScraped;
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     @JsonSerialize(using = LocalDateTimeSerializer.class)
@@ -53,6 +63,13 @@ public class Recommandation {
         }
     }
 
+    private static final Map<AlgorithmeReco, EquipementBundle> BUNDLES_PAR_DEFAUT = new EnumMap<>(AlgorithmeReco.class);
+
+    static {
+        for (AlgorithmeReco a : AlgorithmeReco.values())
+            BUNDLES_PAR_DEFAUT.put(a, genererEquipementBundle(a));
+    }
+
     // Constructeurs
     public Recommandation() {}
 
@@ -67,8 +84,8 @@ public class Recommandation {
         this.dateExpiration = dateGeneration.plusDays(7); // Expiration après 7 jours
         this.estUtilisee = false;
         
-        // Génération automatique du bundle d'équipements
-        this.equipementBundle = genererEquipementBundle(algorithmeUsed);
+        // Bundle d'équipements par défaut de l'algorithme (instance partagée, immuable)
+        this.equipementBundle = BUNDLES_PAR_DEFAUT.get(algorithmeUsed);
     }
 
     // Getters et Setters
@@ -120,12 +137,44 @@ public class Recommandation {
         this.algorithmeUsed = algorithmeUsed;
     }
 
-    public Map<String, Object> getEquipementBundle() {
-        return equipementBundle;
+    /**
+     * Bundle d'équipements ; le JSON chargé depuis la base n'est décodé qu'au
+     * premier appel. Deux premiers appels concurrents décodent chacun le même
+     * JSON, sans jamais voir ni bundle ni JSON.
+     */
+    public EquipementBundle getEquipementBundle() {
+        EquipementBundle bundle = equipementBundle;
+        if (bundle == null) {
+            String json = equipementBundleJson;
+            if (json != null) {
+                bundle = JsonCodec.lireBundle(json);
+                equipementBundle = bundle;
+            }
+        }
+        return bundle;
     }
 
-    public void setEquipementBundle(Map<String, Object> equipementBundle) {
+    public void setEquipementBundle(EquipementBundle equipementBundle) {
         this.equipementBundle = equipementBundle;
+        this.equipementBundleJson = null;
+    }
+
+    /**
+     * JSON du bundle pour la base : le texte chargé tel quel, sinon le bundle
+     * affecté réencodé.
+     */
+    @JsonIgnore
+    public String getEquipementBundleJson() {
+        String json = equipementBundleJson;
+        if (json != null)
+            return json;
+        return JsonCodec.ecrireBundle(equipementBundle);
+    }
+
+    /** Enregistre le JSON lu en base sans le décoder. */
+    public void setEquipementBundleJson(String json) {
+        this.equipementBundleJson = json;
+        this.equipementBundle = null;
     }
 
     public String getSourceScraped() {
@@ -161,8 +210,8 @@ public class Recommandation {
     }
 
     // Méthodes utilitaires
-    private Map<String, Object> genererEquipementBundle(AlgorithmeReco algorithme) {
-        return switch (algorithme) {
+    private static EquipementBundle genererEquipementBundle(AlgorithmeReco algorithme) {
+        return EquipementBundle.of(switch (algorithme) {
             case COLLABORATIVE -> Map.of(
                 "pour_couple", Map.of(
                     "tente", "2p_confort_queen",
@@ -210,7 +259,7 @@ public class Recommandation {
                     "recommandation", "groupe_specifique"
                 )
             );
-        };
+        });
     }
 
     public boolean estValide() {
@@ -240,9 +289,10 @@ public class Recommandation {
         desc.append("Algorithme: ").append(algorithmeUsed.getLabel()).append("\n");
         desc.append("Raison: ").append(raison).append("\n");
         
-        if (equipementBundle != null && !equipementBundle.isEmpty()) {
+        EquipementBundle bundle = getEquipementBundle();
+        if (bundle != null && !bundle.estVide()) {
             desc.append("Équipements suggérés:\n");
-            equipementBundle.forEach((key, value) -> 
+            bundle.forEach((key, value) -> 
                 desc.append("  - ").append(key).append(": ").append(value).append("\n"));
         }
         
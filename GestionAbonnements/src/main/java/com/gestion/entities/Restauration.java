@@ -2,6 +2,7 @@ package com.gestion.entities;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalTime;
 
 /**
  * Entité unifiée pour la restauration : Menu, Option, Repas, Restriction, Presence.
@@ -13,6 +14,18 @@ public class Restauration {
         MENU, OPTION, REPAS, RESTRICTION, PRESENCE
     }
 
+    /** Service de repas d'une présence ; une présence par participant, jour et service. */
+    public enum ServiceRepas {
+        PETIT_DEJEUNER, DEJEUNER, DINER;
+
+        /** Service en cours à cette heure : petit-déjeuner avant 10h30, déjeuner avant 16h. */
+        public static ServiceRepas a(LocalTime heure) {
+            if (heure.isBefore(LocalTime.of(10, 30)))
+                return PETIT_DEJEUNER;
+            return heure.isBefore(LocalTime.of(16, 0)) ? DEJEUNER : DINER;
+        }
+    }
+
     private Long id;
     private TypeRestauration type;
 
@@ -38,6 +51,7 @@ public class Restauration {
 
     // Presence
     private LocalDate datePresence;
+    private ServiceRepas serviceRepas = ServiceRepas.DEJEUNER;
     private boolean abonnementActif;
 
     public Restauration() {}
@@ -89,6 +103,12 @@ public class Restauration {
         return r;
     }
 
+    public static Restauration presence(Long participantId, LocalDate date, ServiceRepas service, boolean abonnementActif) {
+        Restauration r = presence(participantId, date, abonnementActif);
+        r.setServiceRepas(service);
+        return r;
+    }
+
     // ================= GETTERS / SETTERS =================
 
     public Long getId() { return id; }
@@ -136,6 +156,9 @@ public class Restauration {
     public LocalDate getDatePresence() { return datePresence; }
     public void setDatePresence(LocalDate datePresence) { this.datePresence = datePresence; }
 
+    public ServiceRepas getServiceRepas() { return serviceRepas; }
+    public void setServiceRepas(ServiceRepas serviceRepas) { this.serviceRepas = serviceRepas; }
+
     public boolean isAbonnementActif() { return abonnementActif; }
     public void setAbonnementActif(boolean abonnementActif) { this.abonnementActif = abonnementActif; }
 }
@@ -0,0 +1,32 @@
+package com.gestion.entities;
+
+import java.time.LocalDateTime;
+
+/**
+ * Passage de ticket enregistré par un scanner hors ligne, en attente de
+ * report dans la table tickets.
+ */
+public class ScanHorsLigne {
+
+    private final long ticketId;
+    private final String codeUnique;
+    private final LocalDateTime scanneLe;
+    private final String scannerId;
+
+    public ScanHorsLigne(long ticketId, String codeUnique, LocalDateTime scanneLe, String scannerId) {
+        this.ticketId = ticketId;
+        this.codeUnique = codeUnique;
+        this.scanneLe = scanneLe;
+        this.scannerId = scannerId;
+    }
+
+    public long getTicketId() { return ticketId; }
+    public String getCodeUnique() { return codeUnique; }
+    public LocalDateTime getScanneLe() { return scanneLe; }
+    public String getScannerId() { return scannerId; }
+
+    @Override
+    public String toString() {
+        return "Scan " + codeUnique + " (ticket #" + ticketId + ") par " + scannerId + " à " + scanneLe;
+    }
+}
@@ -454,6 +454,19 @@ public class Ticket {
         public String getLabel() { return label; }
     }
 
+    /** Issue d'un passage de ticket au contrôle d'accès. */
+    public enum ResultatScan {
+        ACCEPTE("Accès autorisé"),
+        DEJA_UTILISE("Ticket déjà utilisé"),
+        EXPIRE("Ticket expiré"),
+        ANNULE("Ticket annulé"),
+        INCONNU("Code inconnu");
+
+        private final String label;
+        ResultatScan(String label) { this.label = label; }
+        public String getLabel() { return label; }
+    }
+
     public Ticket() {
         this.dateCreation = LocalDateTime.now();
         this.statut = StatutTicket.VALIDE;
@@ -2,6 +2,7 @@ package com.gestion.interfaces;
 
 import com.gestion.criteria.AbonnementCriteria;
 import com.gestion.entities.Abonnement;
+import com.gestion.entities.AbonnementAnalytics;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -23,6 +24,7 @@ public interface AbonnementService {
 
     // SCRUD : Recherche et tri avancés
     List<Abonnement> search(AbonnementCriteria criteria);
+    long count(AbonnementCriteria criteria);
     BigDecimal getTotalPointsAccumules();
     BigDecimal getTotalPointsAccumulesByUserId(Long userId);
     Abonnement update(Abonnement abonnement);
@@ -57,6 +59,8 @@ public interface AbonnementService {
     BigDecimal calculerRevenuParMois(int mois, int annee);
     List<Abonnement> findAbonnementsRisqueChurn(double seuil);
     double calculerTauxRetention(int mois);
+    /** Revenus par mois/type/statut, top points et cohortes de rétention, en un aller-retour. */
+    AbonnementAnalytics getAnalytics(int topN);
     
     // Validation et contraintes métier
     boolean validerAbonnement(Abonnement abonnement);
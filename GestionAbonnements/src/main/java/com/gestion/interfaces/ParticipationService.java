@@ -141,6 +141,11 @@ public interface ParticipationService {
     // ────────────────────────────────────────────────
     List<Participation> search(ParticipationCriteria criteria);
 
+    /**
+     * Nombre total de participations correspondant aux filtres (tri et curseur ignorés)
+     */
+    long count(ParticipationCriteria criteria);
+
     Participation update(Participation participation);
 
     boolean delete(Long id);
@@ -41,6 +41,7 @@ public interface RecommandationService {
     List<Recommandation> genererRecommandationsContentBased(Long userId, int limite);
     List<Recommandation> genererRecommandationsNLP(Long userId, String description, int limite);
     List<Recommandation> genererRecommandationsHybrides(Long userId, int limite);
+    List<Recommandation> genererRecommandationsHybrides(Long userId, String description, int limite);
     List<Recommandation> genererRecommandationsTensorFlow(Long userId, int limite);
     List<Recommandation> genererRecommandationsParClustering(Long userId, int limite);
     
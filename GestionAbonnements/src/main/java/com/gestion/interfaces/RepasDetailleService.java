@@ -29,6 +29,8 @@ public interface RepasDetailleService {
     List<RepasDetaille> findByCaloriesRange(Integer min, Integer max);
     List<RepasDetaille> findByRestrictions(boolean vegetarien, boolean vegan, boolean sansGluten, boolean halal);
     List<RepasDetaille> findByAllergene(String allergene);
+    List<RepasDetaille> findByIngredientId(Long ingredientId);
+    List<RepasDetaille> findByIngredient(String nom);
     List<RepasDetaille> searchByName(String nom);
     
     // Analytics
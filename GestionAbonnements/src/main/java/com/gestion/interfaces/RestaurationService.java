@@ -50,6 +50,7 @@ public interface RestaurationService {
     // Présences
     List<Restauration> findAllPresences();
     List<Restauration> findPresencesByParticipantId(Long participantId);
+    boolean hasPresenceForParticipantAndDate(Long participantId, LocalDate date);
 
     // =====================================================
     // 🔹 GESTION BESOIN PARTICIPATION (ParticipantRestauration)
@@ -58,6 +59,7 @@ public interface RestaurationService {
     ParticipantRestauration createBesoin(ParticipantRestauration besoin);
     Optional<ParticipantRestauration> findBesoinById(Long id);
     List<ParticipantRestauration> findBesoinsByParticipantId(Long participantId);
+    List<ParticipantRestauration> findBesoinsByEvenementId(Long evenementId);
     ParticipantRestauration updateBesoin(ParticipantRestauration besoin);
     boolean deleteBesoin(Long id);
 
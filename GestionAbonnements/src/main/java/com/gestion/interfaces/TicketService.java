@@ -55,7 +55,11 @@ import java.util.Optional;
 }*/
 package com.gestion.interfaces;
 
+import com.gestion.entities.BilanRejeu;
+import com.gestion.entities.Participation;
+import com.gestion.entities.ScanHorsLigne;
 import com.gestion.entities.Ticket;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -92,6 +96,8 @@ public interface TicketService {
 
     // Recherche géographique
     List<Ticket> findByCoordonnees(Double latitude, Double longitude, Double rayonKm);
+    /** Tickets valides dans le rayon, servis par un index en mémoire (vues carte). */
+    List<Ticket> findTicketsValidesProches(Double latitude, Double longitude, Double rayonKm);
     List<Ticket> findByLieu(String lieu);
 
     // Opérations métier
@@ -100,12 +106,38 @@ public interface TicketService {
                                  Double latitude, Double longitude,
                                  String lieu, Ticket.FormatTicket format);
 
+    /**
+     * Émet un ticket par participation en une seule transaction groupée ;
+     * les tickets renvoyés portent leur id.
+     */
+    List<Ticket> emettreTicketsEnMasse(List<Participation> participations,
+                                       Ticket.TypeTicket type, Ticket.FormatTicket format,
+                                       Double latitude, Double longitude, String lieu);
+
     Ticket marquerCommeUtilise(Long id);
     Ticket annulerTicket(Long id);
     List<Ticket> findTicketsValides();
     List<Ticket> findTicketsExpires();
     boolean validerTicket(String codeUnique);
 
+    /**
+     * Contrôle d'accès : accepte le ticket et le marque UTILISE en une seule
+     * opération atomique s'il est encore valide.
+     */
+    Ticket.ResultatScan scannerTicket(String codeUnique);
+
+    // Contrôle d'accès hors ligne
+    /**
+     * Exporte les tickets valides d'un événement dans un instantané binaire
+     * projetable en mémoire ; renvoie le nombre de tickets exportés.
+     */
+    int exporterSnapshotHorsLigne(Long evenementId, Path fichier);
+
+    /**
+     * Reporte en base, en un seul lot, des passages enregistrés hors ligne.
+     */
+    BilanRejeu rejouerScans(List<ScanHorsLigne> scans);
+
     // Recherche temporelle
     List<Ticket> findByDateCreationBetween(LocalDateTime debut, LocalDateTime fin);
     List<Ticket> findByDateExpirationBefore(LocalDateTime date);
@@ -0,0 +1,175 @@
+package com.gestion.services;
+
+import com.gestion.entities.Abonnement;
+import com.gestion.entities.AbonnementAnalytics;
+import com.gestion.tools.MyConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indicateurs abonnements calculés par agrégats SQL (SUM / GROUP BY / fenêtres)
+ * en un seul aller-retour, mis en cache par tranche de temps.
+ * <p>
+ * Une entrée de cache reste valide tant que la tranche courante
+ * ({@link #BUCKET_MS}) n'a pas changé et qu'aucune écriture sur les abonnements
+ * n'a appelé {@link #invalidate()}.
+ */
+public class AbonnementAnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbonnementAnalyticsService.class);
+
+    static final long BUCKET_MS = 30_000;
+    private static final int MAX_ENTRIES = 16;
+
+    /** Clé : topN. Partagé entre instances car les contrôleurs instancient leurs services. */
+    private static final Map<Integer, CacheEntry> CACHE = new ConcurrentHashMap<>();
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    /*
+     * Une ligne par agrégat : (dimension, clé, v1, v2, v3).
+     * MOIS    : mois, revenu, nombre, revenu cumulé (fenêtre)
+     * TYPE    : type, revenu, nombre, points
+     * STATUT  : statut, revenu, nombre, points
+     * TOP     : id abonnement, points, user_id, -
+     * COHORTE : mois du 1er abonnement, utilisateurs retenus, taille, -
+     */
+    private static final String SQL_ANALYTICS = """
+            SELECT 'MOIS' AS dim, m.mois AS cle, m.revenu AS v1, m.nb AS v2,
+                   SUM(m.revenu) OVER (ORDER BY m.mois) AS v3
+            FROM (SELECT DATE_FORMAT(date_debut, '%Y-%m') AS mois, SUM(prix) AS revenu, COUNT(*) AS nb
+                  FROM abonnements GROUP BY mois) m
+            UNION ALL
+            SELECT 'TYPE', type, SUM(prix), COUNT(*), SUM(points_accumules)
+            FROM abonnements GROUP BY type
+            UNION ALL
+            SELECT 'STATUT', statut, SUM(prix), COUNT(*), SUM(points_accumules)
+            FROM abonnements GROUP BY statut
+            UNION ALL
+            SELECT 'TOP', CAST(t.id AS CHAR), t.points_accumules, t.user_id, NULL
+            FROM (SELECT id, user_id, points_accumules,
+                         ROW_NUMBER() OVER (ORDER BY points_accumules DESC, id) AS rang
+                  FROM abonnements) t
+            WHERE t.rang <= ?
+            UNION ALL
+            SELECT 'COHORTE', u.cohorte, SUM(u.retenu), COUNT(*), NULL
+            FROM (SELECT user_id, DATE_FORMAT(MIN(date_debut), '%Y-%m') AS cohorte,
+                         MAX(statut = 'ACTIF' AND date_fin >= CURDATE()) AS retenu
+                  FROM abonnements GROUP BY user_id) u
+            GROUP BY u.cohorte
+            """;
+
+    private final MyConnection dbConnection;
+
+    public AbonnementAnalyticsService() {
+        this.dbConnection = MyConnection.getInstance();
+    }
+
+    /**
+     * Indicateurs complets, servis depuis le cache si la tranche est encore valide.
+     * Si le calcul échoue, des indicateurs vides sont renvoyés sans être mis en
+     * cache : l'appel suivant refait la requête.
+     */
+    public AbonnementAnalytics getAnalytics(int topN) {
+        long bucket = System.currentTimeMillis() / BUCKET_MS;
+        long generation = GENERATION.get();
+        CacheEntry entry = CACHE.get(topN);
+        if (entry != null && entry.bucket == bucket && entry.generation == generation) {
+            return entry.value;
+        }
+        AbonnementAnalytics value;
+        try {
+            value = load(topN);
+        } catch (SQLException | RuntimeException e) {
+            logger.error("Erreur calcul analytics abonnements", e);
+            return new AbonnementAnalytics(LocalDateTime.now());
+        }
+        if (CACHE.size() >= MAX_ENTRIES) {
+            CACHE.clear();
+        }
+        CACHE.put(topN, new CacheEntry(bucket, generation, value));
+        return value;
+    }
+
+    /**
+     * À appeler après toute écriture sur la table abonnements.
+     */
+    public static void invalidate() {
+        GENERATION.incrementAndGet();
+    }
+
+    private AbonnementAnalytics load(int topN) throws SQLException {
+        AbonnementAnalytics a = new AbonnementAnalytics(LocalDateTime.now());
+        BigDecimal revenuTotal = BigDecimal.ZERO;
+        long nombreTotal = 0;
+        long pointsTotal = 0;
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(SQL_ANALYTICS)) {
+            ps.setInt(1, Math.max(topN, 0));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String dim = rs.getString("dim");
+                    String cle = rs.getString("cle");
+                    BigDecimal v1 = nz(rs.getBigDecimal("v1"));
+                    long v2 = rs.getLong("v2");
+                    BigDecimal v3 = nz(rs.getBigDecimal("v3"));
+                    switch (dim) {
+                        case "MOIS" -> {
+                            a.getRevenuParMois().put(cle, v1);
+                            a.getRevenuCumuleParMois().put(cle, v3);
+                        }
+                        case "TYPE" -> {
+                            Abonnement.TypeAbonnement type = Abonnement.TypeAbonnement.valueOf(cle);
+                            a.getRevenuParType().put(type, v1);
+                            a.getNombreParType().put(type, v2);
+                            revenuTotal = revenuTotal.add(v1);
+                            nombreTotal += v2;
+                            pointsTotal += v3.longValue();
+                        }
+                        case "STATUT" -> {
+                            Abonnement.StatutAbonnement statut = Abonnement.StatutAbonnement.valueOf(cle);
+                            a.getRevenuParStatut().put(statut, v1);
+                            a.getNombreParStatut().put(statut, v2);
+                        }
+                        case "TOP" -> a.getTopPoints().add(
+                                new AbonnementAnalytics.TopPoints(Long.parseLong(cle), v2, v1.intValue()));
+                        case "COHORTE" -> a.getCohortes().add(
+                                new AbonnementAnalytics.Cohorte(cle, v2, v1.longValue()));
+                        default -> logger.warn("Dimension analytics inconnue : {}", dim);
+                    }
+                }
+            }
+        }
+        a.getTopPoints().sort((x, y) -> Integer.compare(y.getPoints(), x.getPoints()));
+        a.getCohortes().sort((x, y) -> x.getMois().compareTo(y.getMois()));
+        a.setRevenuTotal(revenuTotal);
+        a.setNombreTotal(nombreTotal);
+        a.setPointsTotal(pointsTotal);
+        return a;
+    }
+
+    private static BigDecimal nz(BigDecimal v) {
+        return v != null ? v : BigDecimal.ZERO;
+    }
+
+    private static final class CacheEntry {
+        final long bucket;
+        final long generation;
+        final AbonnementAnalytics value;
+
+        CacheEntry(long bucket, long generation, AbonnementAnalytics value) {
+            this.bucket = bucket;
+            this.generation = generation;
+            this.value = value;
+        }
+    }
+}
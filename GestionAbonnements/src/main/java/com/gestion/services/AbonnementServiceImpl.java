@@ -1,7 +1,10 @@
 package com.gestion.services;
 
 import com.gestion.criteria.AbonnementCriteria;
+import com.gestion.criteria.AbonnementQueryBuilder;
+import com.gestion.criteria.SqlQuery;
 import com.gestion.entities.Abonnement;
+import com.gestion.entities.AbonnementAnalytics;
 import com.gestion.interfaces.AbonnementService;
 import com.gestion.tools.MyConnection;
 import org.slf4j.Logger;
@@ -20,9 +23,11 @@ public class AbonnementServiceImpl implements AbonnementService {
 
     private static final Logger logger = LoggerFactory.getLogger(AbonnementServiceImpl.class);
     private final MyConnection dbConnection;
+    private final AbonnementAnalyticsService analyticsService;
 
     public AbonnementServiceImpl() {
         this.dbConnection = MyConnection.getInstance();
+        this.analyticsService = new AbonnementAnalyticsService();
     }
 
     @Override
@@ -45,6 +50,7 @@ public class AbonnementServiceImpl implements AbonnementService {
                 if (keys.next())
                     a.setId(keys.getLong(1));
             }
+            AbonnementAnalyticsService.invalidate();
             return a;
         } catch (SQLException e) {
             logger.error("Error create abonnement", e);
@@ -106,7 +112,9 @@ public class AbonnementServiceImpl implements AbonnementService {
 
     @Override
     public List<Abonnement> findByUserId(Long userId) {
-        return findAll().stream().filter(a -> a.getUserId().equals(userId)).toList();
+        AbonnementCriteria c = parIdDecroissant();
+        c.setUserId(userId);
+        return search(c);
     }
 
     @Override
@@ -124,6 +132,7 @@ public class AbonnementServiceImpl implements AbonnementService {
             ps.setDouble(8, a.getChurnScore());
             ps.setLong(9, a.getId());
             ps.executeUpdate();
+            AbonnementAnalyticsService.invalidate();
             return a;
         } catch (SQLException e) {
             logger.error("Error update abonnement", e);
@@ -137,7 +146,9 @@ public class AbonnementServiceImpl implements AbonnementService {
         try (Connection conn = dbConnection.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, id);
-            return ps.executeUpdate() > 0;
+            boolean deleted = ps.executeUpdate() > 0;
+            AbonnementAnalyticsService.invalidate();
+            return deleted;
         } catch (SQLException e) {
             logger.error("Error delete abonnement", e);
             return false;
@@ -146,42 +157,119 @@ public class AbonnementServiceImpl implements AbonnementService {
 
     @Override
     public List<Abonnement> findAll(String sortBy, String sortOrder) {
-        return findAll();
+        AbonnementCriteria c = new AbonnementCriteria();
+        c.setSortBy(sortBy);
+        c.setSortOrder(sortOrder);
+        return search(c);
     }
 
     @Override
     public List<Abonnement> search(AbonnementCriteria criteria) {
-        return findAll();
+        if (criteria == null)
+            return findAll();
+        SqlQuery q = AbonnementQueryBuilder.select(criteria);
+        List<Abonnement> list = new ArrayList<>();
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(q.getSql())) {
+            q.bind(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    list.add(map(rs));
+            }
+        } catch (SQLException e) {
+            logger.error("Error search abonnements: {}", q, e);
+        }
+        return list;
+    }
+
+    @Override
+    public long count(AbonnementCriteria criteria) {
+        SqlQuery q = AbonnementQueryBuilder.count(criteria != null ? criteria : new AbonnementCriteria());
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(q.getSql())) {
+            q.bind(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next())
+                    return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Error count abonnements: {}", q, e);
+        }
+        return 0;
+    }
+
+    /** Critères vides triés comme {@link #findAll()} (id décroissant). */
+    private AbonnementCriteria parIdDecroissant() {
+        AbonnementCriteria c = new AbonnementCriteria();
+        c.setSortBy("id");
+        c.setSortOrder("DESC");
+        return c;
     }
 
     @Override
     public BigDecimal getTotalPointsAccumules() {
-        return BigDecimal.valueOf(findAll().stream().mapToInt(Abonnement::getPointsAccumules).sum());
+        return aggregate("SELECT COALESCE(SUM(points_accumules), 0) FROM abonnements", null);
     }
 
     @Override
     public BigDecimal getTotalPointsAccumulesByUserId(Long userId) {
-        return BigDecimal.valueOf(findByUserId(userId).stream().mapToInt(Abonnement::getPointsAccumules).sum());
+        return aggregate("SELECT COALESCE(SUM(points_accumules), 0) FROM abonnements WHERE user_id = ?",
+                ps -> ps.setLong(1, userId));
+    }
+
+    /**
+     * Indicateurs consolidés pour le tableau de bord (cache par tranche de temps).
+     */
+    @Override
+    public AbonnementAnalytics getAnalytics(int topN) {
+        return analyticsService.getAnalytics(topN);
+    }
+
+    /**
+     * Exécute un agrégat SQL scalaire et retourne sa valeur (0 si absente).
+     */
+    private BigDecimal aggregate(String sql, SQLConsumer<PreparedStatement> setter) {
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (setter != null)
+                setter.accept(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getBigDecimal(1) != null)
+                    return rs.getBigDecimal(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Error aggregate abonnements: {}", sql, e);
+        }
+        return BigDecimal.ZERO;
     }
 
     @Override
     public List<Abonnement> findByStatut(Abonnement.StatutAbonnement statut) {
-        return findAll().stream().filter(a -> a.getStatut() == statut).toList();
+        AbonnementCriteria c = parIdDecroissant();
+        c.setStatut(statut);
+        return search(c);
     }
 
     @Override
     public List<Abonnement> findByType(Abonnement.TypeAbonnement type) {
-        return findAll().stream().filter(a -> a.getType() == type).toList();
+        AbonnementCriteria c = parIdDecroissant();
+        c.setType(type);
+        return search(c);
     }
 
     @Override
     public List<Abonnement> findByDateFinBefore(LocalDate date) {
-        return findAll().stream().filter(a -> a.getDateFin().isBefore(date)).toList();
+        AbonnementCriteria c = parIdDecroissant();
+        c.setDateFinAvant(date.minusDays(1));
+        return search(c);
     }
 
     @Override
     public List<Abonnement> findByDateFinBetween(LocalDate debut, LocalDate fin) {
-        return findAll().stream().filter(a -> !a.getDateFin().isBefore(debut) && !a.getDateFin().isAfter(fin)).toList();
+        AbonnementCriteria c = parIdDecroissant();
+        c.setDateFinApres(debut);
+        c.setDateFinAvant(fin);
+        return search(c);
     }
 
     @Override
@@ -191,12 +279,16 @@ public class AbonnementServiceImpl implements AbonnementService {
 
     @Override
     public List<Abonnement> findByAutoRenew(boolean autoRenew) {
-        return findAll().stream().filter(a -> a.isAutoRenew() == autoRenew).toList();
+        AbonnementCriteria c = parIdDecroissant();
+        c.setAutoRenew(autoRenew);
+        return search(c);
     }
 
     @Override
     public List<Abonnement> findByPointsMinimum(int pointsMin) {
-        return findAll().stream().filter(a -> a.getPointsAccumules() >= pointsMin).toList();
+        AbonnementCriteria c = parIdDecroissant();
+        c.setPointsMinimum(pointsMin);
+        return search(c);
     }
 
     @Override
@@ -272,38 +364,78 @@ public class AbonnementServiceImpl implements AbonnementService {
 
     @Override
     public List<Abonnement> findTopUtilisateursParPoints(int limite) {
-        return findAll().stream().sorted(Comparator.comparingInt(Abonnement::getPointsAccumules).reversed())
-                .limit(limite).toList();
+        AbonnementCriteria c = new AbonnementCriteria();
+        c.setSortBy("pointsAccumules");
+        c.setSortOrder("DESC");
+        if (limite <= 0)
+            throw new IllegalArgumentException("limite doit être positive : " + limite);
+        c.setLimit(limite);
+        return search(c);
     }
 
     @Override
     public long countByStatut(Abonnement.StatutAbonnement statut) {
-        return findByStatut(statut).size();
+        AbonnementCriteria c = new AbonnementCriteria();
+        c.setStatut(statut);
+        return count(c);
     }
 
     @Override
     public long countByType(Abonnement.TypeAbonnement type) {
-        return findByType(type).size();
+        AbonnementCriteria c = new AbonnementCriteria();
+        c.setType(type);
+        return count(c);
     }
 
     @Override
     public BigDecimal calculerRevenuTotal() {
-        return findAll().stream().map(Abonnement::getPrix).reduce(BigDecimal.ZERO, BigDecimal::add);
+        return aggregate("SELECT COALESCE(SUM(prix), 0) FROM abonnements", null);
     }
 
     @Override
     public BigDecimal calculerRevenuParMois(int mois, int annee) {
-        return BigDecimal.ZERO;
+        LocalDate debut = LocalDate.of(annee, mois, 1);
+        return aggregate("SELECT COALESCE(SUM(prix), 0) FROM abonnements WHERE date_debut >= ? AND date_debut < ?",
+                ps -> {
+                    ps.setDate(1, Date.valueOf(debut));
+                    ps.setDate(2, Date.valueOf(debut.plusMonths(1)));
+                });
     }
 
     @Override
     public List<Abonnement> findAbonnementsRisqueChurn(double seuil) {
-        return findAll().stream().filter(a -> a.getChurnScore() >= seuil).toList();
+        AbonnementCriteria c = parIdDecroissant();
+        c.setChurnScoreMinimum(seuil);
+        return search(c);
     }
 
+    /**
+     * Part (en %) des utilisateurs abonnés il y a {@code mois} mois qui ont
+     * encore un abonnement actif aujourd'hui.
+     */
     @Override
     public double calculerTauxRetention(int mois) {
-        return 100.0;
+        String sql = """
+                SELECT COUNT(*), COALESCE(SUM(u.retenu), 0)
+                FROM (SELECT user_id,
+                             MAX(statut = 'ACTIF' AND date_fin >= CURDATE()) AS retenu,
+                             MAX(date_debut <= ? AND date_fin >= ?) AS present
+                      FROM abonnements GROUP BY user_id) u
+                WHERE u.present = 1
+                """;
+        Date reference = Date.valueOf(LocalDate.now().minusMonths(mois));
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, reference);
+            ps.setDate(2, reference);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getLong(1) > 0)
+                    return 100.0 * rs.getLong(2) / rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Error calculerTauxRetention", e);
+        }
+        return 0.0;
     }
 
     @Override
@@ -350,4 +482,9 @@ public class AbonnementServiceImpl implements AbonnementService {
     public boolean synchroniserAvecPaiement(Long id) {
         return true;
     }
+
+    @FunctionalInterface
+    interface SQLConsumer<T> {
+        void accept(T t) throws SQLException;
+    }
 }
@@ -0,0 +1,106 @@
+package com.gestion.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Filtrage collaboratif calculé en mémoire, au lieu d'un aller-retour par
+ * couple (utilisateur, événement).
+ * <p>
+ * Voisins, participations et popularité viennent de la {@link InteractionMatrix}
+ * résidente, les événements similaires de l'{@link ItemSimilarityIndex}
+ * précalculé : aucun accès base par requête. Le score d'un candidat {@code e} reste
+ * celui de {@link RecommandationServiceImpl#calculerScoreCollaboratif} :
+ * <pre>
+ * 0.7 × |similaires(e) ∩ événements(u)| / |similaires(e)| + 0.3 × min(1, participations(e) / 100)
+ * </pre>
+ * où {@code similaires(e)} sont les {@value #SIMILAIRES_MAX} événements les
+ * plus proches dans l'index. Les voisins sont les {@value #VOISINS_MAX}
+ * utilisateurs les plus proches au sens de Jaccard.
+ */
+public class CollaborativeFilteringEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(CollaborativeFilteringEngine.class);
+
+    static final int VOISINS_MAX = 10;
+    static final int SIMILAIRES_MAX = 10;
+    private static final double POPULARITE_MAX = 100.0;
+    /** Budget de latence par utilisateur au-delà duquel un avertissement est loggé. */
+    private static final long BUDGET_MS = 50;
+
+    private final InteractionMatrix matrice;
+    private final ItemSimilarityIndex similarites;
+
+    public CollaborativeFilteringEngine(InteractionMatrix matrice, ItemSimilarityIndex similarites) {
+        this.matrice = matrice;
+        this.similarites = similarites;
+    }
+
+    /**
+     * Score de chaque événement candidat (participé par un voisin, pas encore
+     * par l'utilisateur), chaque événement n'apparaissant qu'une fois.
+     */
+    public Map<Long, Double> scorer(long userId) {
+        long debut = System.nanoTime();
+        Set<Long> mesEvenements = ensemble(matrice.evenementsDe(userId));
+        Set<Long> candidats = new HashSet<>();
+        for (InteractionMatrix.Voisin v : matrice.voisins(userId, VOISINS_MAX, InteractionMatrix.Mesure.JACCARD)) {
+            for (int e : matrice.evenementsDe(v.userId()))
+                candidats.add((long) e);
+        }
+        candidats.removeAll(mesEvenements);
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        for (Long e : candidats)
+            scores.put(e, score(e, mesEvenements));
+
+        long ms = (System.nanoTime() - debut) / 1_000_000;
+        if (ms > BUDGET_MS)
+            logger.warn("Filtrage collaboratif utilisateur {} : {} candidats en {} ms (budget {} ms)",
+                    userId, candidats.size(), ms, BUDGET_MS);
+        else
+            logger.debug("Filtrage collaboratif utilisateur {} : {} candidats en {} ms",
+                    userId, candidats.size(), ms);
+        return scores;
+    }
+
+    /**
+     * Score d'un seul couple (utilisateur, événement).
+     */
+    public double scorer(long userId, long evenementId) {
+        return score(evenementId, ensemble(matrice.evenementsDe(userId)));
+    }
+
+    private double score(long evenementId, Set<Long> mesEvenements) {
+        List<ItemSimilarityIndex.Similaire> sim = similarites.similaires(evenementId, SIMILAIRES_MAX);
+        if (sim.isEmpty())
+            return 0.0;
+        int intersection = 0;
+        for (ItemSimilarityIndex.Similaire s : sim)
+            if (mesEvenements.contains(s.evenementId()))
+                intersection++;
+        double similarite = (double) intersection / sim.size();
+        double pop = popularite(matrice, evenementId);
+        return Math.min(1.0, similarite * 0.7 + pop * 0.3);
+    }
+
+    /**
+     * Participations à l'événement ramenées entre 0 et 1 (plafond à
+     * {@value #POPULARITE_MAX}), lues dans la matrice d'interactions.
+     */
+    static double popularite(InteractionMatrix matrice, long evenementId) {
+        return Math.min(1.0, matrice.popularite(evenementId) / POPULARITE_MAX);
+    }
+
+    private static Set<Long> ensemble(int[] ids) {
+        Set<Long> set = new HashSet<>(ids.length * 2);
+        for (int id : ids)
+            set.add((long) id);
+        return set;
+    }
+}
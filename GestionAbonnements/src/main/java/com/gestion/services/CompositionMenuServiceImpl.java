@@ -1,6 +1,7 @@
 package com.gestion.services;
 
 import com.gestion.entities.CompositionMenu;
+import com.gestion.entities.ProfilAlimentaire;
 import com.gestion.interfaces.CompositionMenuService;
 import com.gestion.tools.MyConnection;
 import org.slf4j.Logger;
@@ -9,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -64,6 +66,9 @@ public class CompositionMenuServiceImpl implements CompositionMenuService {
                     composition.setId(keys.getLong(1));
             }
             logger.info("Composition menu créée: ID {}", composition.getId());
+            KitchenDemandForecast prevision = KitchenDemandForecast.siChargee();
+            if (prevision != null)
+                prevision.participantModifie(composition.getParticipantId(), composition.getEvenementId());
         } catch (SQLException e) {
             logger.error("Erreur create composition menu", e);
         }
@@ -93,6 +98,10 @@ public class CompositionMenuServiceImpl implements CompositionMenuService {
 
     @Override
     public CompositionMenu update(CompositionMenu composition) {
+        // L'ancienne composition n'est relue que si une prévision suit des événements
+        KitchenDemandForecast prevision = KitchenDemandForecast.siChargee();
+        Optional<CompositionMenu> avant = prevision != null && prevision.suitDesEvenements()
+                ? findById(composition.getId()) : Optional.empty();
         String sql = "UPDATE composition_menu SET " +
                 "menu_id=?, repas_id=?, ordre=?, type_repas=?, date=?, participant_id=?, evenement_id=?, actif=?, notes=? "
                 +
@@ -113,6 +122,10 @@ public class CompositionMenuServiceImpl implements CompositionMenuService {
 
             ps.executeUpdate();
             logger.info("Composition menu mise à jour: ID {}", composition.getId());
+            if (prevision != null) {
+                avant.ifPresent(a -> prevision.participantModifie(a.getParticipantId(), a.getEvenementId()));
+                prevision.participantModifie(composition.getParticipantId(), composition.getEvenementId());
+            }
         } catch (SQLException e) {
             logger.error("Erreur update composition menu", e);
         }
@@ -121,12 +134,16 @@ public class CompositionMenuServiceImpl implements CompositionMenuService {
 
     @Override
     public boolean delete(Long id) {
+        KitchenDemandForecast prevision = KitchenDemandForecast.siChargee();
+        Optional<CompositionMenu> avant = prevision != null && prevision.suitDesEvenements()
+                ? findById(id) : Optional.empty();
         String sql = "DELETE FROM composition_menu WHERE id = ?";
         try (Connection c = dbConnection.getConnection();
                 PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setLong(1, id);
             int affected = ps.executeUpdate();
             logger.info("Composition menu supprimée: ID {}", id);
+            avant.ifPresent(a -> prevision.participantModifie(a.getParticipantId(), a.getEvenementId()));
             return affected > 0;
         } catch (SQLException e) {
             logger.error("Erreur delete composition menu", e);
@@ -170,7 +187,11 @@ public class CompositionMenuServiceImpl implements CompositionMenuService {
         try (Connection c = dbConnection.getConnection();
                 PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setLong(1, menuId);
-            return ps.executeUpdate() > 0;
+            boolean supprime = ps.executeUpdate() > 0;
+            KitchenDemandForecast prevision = KitchenDemandForecast.siChargee();
+            if (supprime && prevision != null)
+                prevision.invaliderTout();
+            return supprime;
         } catch (SQLException e) {
             logger.error("Erreur deleteByMenuId", e);
         }
@@ -183,7 +204,11 @@ public class CompositionMenuServiceImpl implements CompositionMenuService {
         try (Connection c = dbConnection.getConnection();
                 PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setLong(1, repasId);
-            return ps.executeUpdate() > 0;
+            boolean supprime = ps.executeUpdate() > 0;
+            KitchenDemandForecast prevision = KitchenDemandForecast.siChargee();
+            if (supprime && prevision != null)
+                prevision.invaliderTout();
+            return supprime;
         } catch (SQLException e) {
             logger.error("Erreur deleteByRepasId", e);
         }
@@ -208,17 +233,40 @@ public class CompositionMenuServiceImpl implements CompositionMenuService {
         return updated;
     }
 
+    /**
+     * Propose un plat par service (petit-déjeuner, déjeuner, dîner) compatible
+     * avec les restrictions du participant. À compatibilité égale, le plat
+     * déjà le plus demandé ce jour-là est préféré, pour regrouper la
+     * production. Les compositions renvoyées ne sont pas enregistrées.
+     */
     @Override
     public List<CompositionMenu> generateMenuFromRestrictions(Long participantId, Long evenementId, LocalDate date) {
-        // Logique simplifiée: récupérer les repas compatibles avec les restrictions du
-        // participant
-        // Cette méthode devrait utiliser ParticipantRestauration pour obtenir les
-        // restrictions
-        // Pour l'instant, retourne une liste vide - à implémenter selon les besoins
-        // métier
         logger.info("Génération menu depuis restrictions pour participant {} événement {} date {}",
                 participantId, evenementId, date);
-        return new ArrayList<>();
+        KitchenDemandForecast prevision = KitchenDemandForecast.getInstance();
+        ProfilAlimentaire profil = prevision.profil(participantId, evenementId);
+        Optional<KitchenDemandForecast.Journee> journee = prevision.prevision(evenementId)
+                .flatMap(p -> date != null ? p.journee(date) : Optional.empty());
+        IndexCompatibiliteRepas index = IndexCompatibiliteRepas.getInstance();
+
+        List<CompositionMenu> menu = new ArrayList<>();
+        for (String type : List.of("PETIT_DEJEUNER", "DEJEUNER", "DINER")) {
+            index.compatibles(profil, type).stream()
+                    .max(Comparator.comparingInt(
+                            r -> journee.map(j -> j.portions(r.getId())).orElse(0)))
+                    .ifPresent(r -> {
+                        CompositionMenu c = new CompositionMenu();
+                        c.setRepasId(r.getId());
+                        c.setRepas(r);
+                        c.setOrdre(menu.size() + 1);
+                        c.setTypeRepas(type);
+                        c.setDate(date);
+                        c.setParticipantId(participantId);
+                        c.setEvenementId(evenementId);
+                        menu.add(c);
+                    });
+        }
+        return menu;
     }
 
     // Helpers
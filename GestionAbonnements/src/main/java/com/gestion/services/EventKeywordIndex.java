@@ -0,0 +1,280 @@
+package com.gestion.services;
+
+import com.gestion.tools.IntObjectMap;
+import com.gestion.tools.MyConnection;
+import com.gestion.tools.TextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index inversé des événements sur {@code evenement.titre} et
+ * {@code description}, pour la recherche par mots-clés du NLP.
+ * <p>
+ * Chaque terme (normalisé par {@link TextUtils#tokeniser}, donc sans accents)
+ * pointe vers une liste triée d'ids d'événements avec la fréquence du terme ;
+ * les termes du titre comptent {@value #POIDS_TITRE} fois. Le classement est
+ * BM25 ({@code k1 = 1.2, b = 0.75}). L'index est chargé au premier appel puis
+ * tenu à jour par {@link com.gestion.controllers.EvenementDAO} à chaque ajout,
+ * modification ou suppression.
+ */
+public class EventKeywordIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventKeywordIndex.class);
+
+    static final int POIDS_TITRE = 2;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static volatile EventKeywordIndex instance;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    /** Termes distincts (triés) et longueur de chaque événement indexé. */
+    private final IntObjectMap<Document> documents = new IntObjectMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long longueurTotale;
+
+    EventKeywordIndex() {
+    }
+
+    /**
+     * Index partagé, chargé au premier appel.
+     */
+    public static EventKeywordIndex getInstance() {
+        if (instance == null) {
+            synchronized (EventKeywordIndex.class) {
+                if (instance == null)
+                    instance = charger(MyConnection.getInstance());
+            }
+        }
+        return instance;
+    }
+
+    /** Instance déjà chargée, ou null : pour les hooks d'écriture qui ne doivent pas forcer un chargement. */
+    public static EventKeywordIndex siChargee() {
+        return instance;
+    }
+
+    static EventKeywordIndex charger(MyConnection dbConnection) {
+        long debut = System.nanoTime();
+        EventKeywordIndex index = new EventKeywordIndex();
+        String sql = "SELECT id_event, titre, description FROM evenement";
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next())
+                index.indexer(rs.getInt("id_event"), rs.getString("titre"), rs.getString("description"));
+        } catch (SQLException e) {
+            logger.error("Erreur chargement de l'index des mots-clés", e);
+        }
+        logger.info("Index des mots-clés : {} événements, {} termes en {} ms",
+                index.documents.size(), index.postings.size(), (System.nanoTime() - debut) / 1_000_000);
+        return index;
+    }
+
+    // ------------------------------------------------------- mise à jour
+
+    /**
+     * (Ré)indexe un événement ; remplace sa version précédente s'il y en a une.
+     */
+    public void indexer(int evenementId, String titre, String description) {
+        Map<String, Integer> tf = new HashMap<>();
+        for (String t : TextUtils.tokeniser(titre))
+            tf.merge(t, POIDS_TITRE, Integer::sum);
+        for (String t : TextUtils.tokeniser(description))
+            tf.merge(t, 1, Integer::sum);
+        int longueur = tf.values().stream().mapToInt(Integer::intValue).sum();
+        String[] termes = tf.keySet().toArray(new String[0]);
+        Arrays.sort(termes);
+
+        lock.writeLock().lock();
+        try {
+            retirerSansVerrou(evenementId);
+            for (Map.Entry<String, Integer> e : tf.entrySet())
+                postings.computeIfAbsent(e.getKey(), k -> new Postings()).ajouter(evenementId, e.getValue());
+            documents.put(evenementId, new Document(termes, longueur));
+            longueurTotale += longueur;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void retirer(int evenementId) {
+        lock.writeLock().lock();
+        try {
+            retirerSansVerrou(evenementId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void retirerSansVerrou(int evenementId) {
+        Document doc = documents.get(evenementId);
+        if (doc == null)
+            return;
+        for (String t : doc.termes) {
+            Postings p = postings.get(t);
+            if (p != null && p.retirer(evenementId) && p.taille == 0)
+                postings.remove(t);
+        }
+        documents.remove(evenementId);
+        longueurTotale -= doc.longueur;
+    }
+
+    // ---------------------------------------------------------------- lecture
+
+    /**
+     * Les {@code limite} événements les mieux classés (BM25) pour ces
+     * mots-clés, du plus pertinent au moins pertinent.
+     */
+    public List<Resultat> rechercher(Collection<String> motsCles, int limite) {
+        Set<String> termes = termesRequete(motsCles);
+        if (termes.isEmpty() || limite <= 0)
+            return List.of();
+
+        lock.readLock().lock();
+        try {
+            int n = documents.size();
+            if (n == 0)
+                return List.of();
+            double longueurMoyenne = (double) longueurTotale / n;
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String t : termes) {
+                Postings p = postings.get(t);
+                if (p == null)
+                    continue;
+                double idf = Math.log(1 + (n - p.taille + 0.5) / (p.taille + 0.5));
+                for (int i = 0; i < p.taille; i++) {
+                    int doc = p.docs[i];
+                    int f = p.tfs[i];
+                    double norme = K1 * (1 - B + B * documents.get(doc).longueur / longueurMoyenne);
+                    scores.merge(doc, idf * f * (K1 + 1) / (f + norme), Double::sum);
+                }
+            }
+
+            PriorityQueue<Resultat> top = new PriorityQueue<>(limite + 1, Comparator.comparingDouble(Resultat::score));
+            for (Map.Entry<Integer, Double> e : scores.entrySet()) {
+                top.add(new Resultat(e.getKey(), e.getValue()));
+                if (top.size() > limite)
+                    top.poll();
+            }
+            List<Resultat> result = new ArrayList<>(top);
+            result.sort(Comparator.comparingDouble(Resultat::score).reversed()
+                    .thenComparingLong(Resultat::evenementId));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Part des mots-clés (0..1) présents dans le titre ou la description de
+     * l'événement, sans relire le texte.
+     */
+    public double couverture(long evenementId, Collection<String> motsCles) {
+        Set<String> termes = termesRequete(motsCles);
+        if (termes.isEmpty())
+            return 0.0;
+        lock.readLock().lock();
+        try {
+            Document doc = documents.get((int) evenementId);
+            if (doc == null)
+                return 0.0;
+            long trouves = termes.stream().filter(t -> Arrays.binarySearch(doc.termes, t) >= 0).count();
+            return (double) trouves / termes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Ids de tous les événements indexés. */
+    public int[] evenements() {
+        lock.readLock().lock();
+        try {
+            int[] ids = new int[documents.size()];
+            int[] n = {0};
+            documents.forEach((id, doc) -> ids[n[0]++] = id);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getNombreTermes() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Set<String> termesRequete(Collection<String> motsCles) {
+        Set<String> termes = new LinkedHashSet<>();
+        if (motsCles != null)
+            for (String m : motsCles)
+                termes.addAll(TextUtils.tokeniser(m));
+        return termes;
+    }
+
+    // ------------------------------------------------------------- interne
+
+    private record Document(String[] termes, int longueur) {
+    }
+
+    /** Liste triée (id d'événement, fréquence) d'un terme. */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] tfs = new int[4];
+        int taille;
+
+        void ajouter(int doc, int tf) {
+            int i = Arrays.binarySearch(docs, 0, taille, doc);
+            if (i >= 0) {
+                tfs[i] = tf;
+                return;
+            }
+            i = -i - 1;
+            if (taille == docs.length) {
+                docs = Arrays.copyOf(docs, taille * 2);
+                tfs = Arrays.copyOf(tfs, taille * 2);
+            }
+            System.arraycopy(docs, i, docs, i + 1, taille - i);
+            System.arraycopy(tfs, i, tfs, i + 1, taille - i);
+            docs[i] = doc;
+            tfs[i] = tf;
+            taille++;
+        }
+
+        boolean retirer(int doc) {
+            int i = Arrays.binarySearch(docs, 0, taille, doc);
+            if (i < 0)
+                return false;
+            System.arraycopy(docs, i + 1, docs, i, taille - i - 1);
+            System.arraycopy(tfs, i + 1, tfs, i, taille - i - 1);
+            taille--;
+            return true;
+        }
+    }
+
+    /**
+     * Événement trouvé et son score BM25.
+     */
+    public record Resultat(long evenementId, double score) {
+    }
+}
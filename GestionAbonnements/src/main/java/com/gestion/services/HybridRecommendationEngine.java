@@ -0,0 +1,247 @@
+package com.gestion.services;
+
+import com.gestion.entities.Recommandation;
+import com.gestion.interfaces.RecommandationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Recommandations hybrides : les stratégies collaborative, content-based et
+ * NLP génèrent leurs candidats en parallèle, puis chaque événement est
+ * rescoré par moyenne pondérée des scores obtenus.
+ * <p>
+ * Chaque stratégie a son propre délai : au-delà, elle est ignorée pour cet
+ * appel (liste vide) et les poids sont renormalisés sur les stratégies qui ont
+ * répondu ; une stratégie lente ne fait donc pas attendre la page plus que le
+ * délai le plus long. Les tâches tournent sur un pool borné partagé ; si sa
+ * file est pleine, la stratégie est ignorée plutôt que d'exécuter le calcul
+ * sur le thread appelant.
+ */
+public class HybridRecommendationEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(HybridRecommendationEngine.class);
+
+    /** Chaque stratégie fournit ce multiple de la limite demandée avant fusion. */
+    private static final int SUR_ECHANTILLONNAGE = 3;
+    private static final double SEUIL = 0.3;
+
+    private static final ThreadPoolExecutor EXECUTOR = creerExecutor();
+
+    private final RecommandationService service;
+    private final Config config;
+
+    public HybridRecommendationEngine(RecommandationService service, Config config) {
+        this.service = service;
+        this.config = config;
+    }
+
+    /**
+     * Top {@code limite} des candidats fusionnés. Sans description, la
+     * stratégie NLP n'est pas lancée.
+     */
+    public List<Recommandation> generer(long userId, String description, int limite) {
+        long debut = System.nanoTime();
+        int n = limite * SUR_ECHANTILLONNAGE;
+
+        Map<Recommandation.AlgorithmeReco, CompletableFuture<List<Recommandation>>> etapes =
+                new EnumMap<>(Recommandation.AlgorithmeReco.class);
+        etapes.put(Recommandation.AlgorithmeReco.COLLABORATIVE,
+                lancer("collaborative", config.timeoutCollaboratifMs,
+                        () -> service.genererRecommandationsCollaboratives(userId, n)));
+        etapes.put(Recommandation.AlgorithmeReco.CONTENT_BASED,
+                lancer("content-based", config.timeoutContentBasedMs,
+                        () -> service.genererRecommandationsContentBased(userId, n)));
+        if (description != null && !description.isBlank())
+            etapes.put(Recommandation.AlgorithmeReco.NLP,
+                    lancer("NLP", config.timeoutNlpMs,
+                            () -> service.genererRecommandationsNLP(userId, description, n)));
+
+        Map<Recommandation.AlgorithmeReco, List<Recommandation>> resultats =
+                new EnumMap<>(Recommandation.AlgorithmeReco.class);
+        for (Map.Entry<Recommandation.AlgorithmeReco, CompletableFuture<List<Recommandation>>> e : etapes.entrySet()) {
+            List<Recommandation> resultat = e.getValue().join();
+            if (resultat != null)
+                resultats.put(e.getKey(), resultat);
+        }
+        List<Recommandation> result = fusionner(userId, resultats, limite);
+        logger.debug("Recommandations hybrides utilisateur {} : stratégies {} en {} ms",
+                userId, resultats.keySet(), (System.nanoTime() - debut) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Même fusion, stratégies collaborative et content-based exécutées sur le
+     * thread appelant et sans délai : pour les traitements par lots.
+     */
+    public List<Recommandation> genererSansDelai(long userId, int limite) {
+        int n = limite * SUR_ECHANTILLONNAGE;
+        Map<Recommandation.AlgorithmeReco, List<Recommandation>> resultats =
+                new EnumMap<>(Recommandation.AlgorithmeReco.class);
+        resultats.put(Recommandation.AlgorithmeReco.COLLABORATIVE, service.genererRecommandationsCollaboratives(userId, n));
+        resultats.put(Recommandation.AlgorithmeReco.CONTENT_BASED, service.genererRecommandationsContentBased(userId, n));
+        return fusionner(userId, resultats, limite);
+    }
+
+    /**
+     * Fusionne les résultats des stratégies qui ont répondu : moyenne pondérée
+     * des scores par événement, poids renormalisés sur ces seules stratégies.
+     */
+    List<Recommandation> fusionner(long userId, Map<Recommandation.AlgorithmeReco, List<Recommandation>> resultats,
+            int limite) {
+        Map<Long, Map<Recommandation.AlgorithmeReco, Double>> candidats = new HashMap<>();
+        double poidsRepondus = 0.0;
+        for (Map.Entry<Recommandation.AlgorithmeReco, List<Recommandation>> e : resultats.entrySet()) {
+            poidsRepondus += poids(e.getKey());
+            for (Recommandation r : e.getValue())
+                candidats.computeIfAbsent(r.getEvenementSuggereId(), k -> new EnumMap<>(Recommandation.AlgorithmeReco.class))
+                        .merge(e.getKey(), r.getScore(), Math::max);
+        }
+        if (poidsRepondus == 0.0)
+            return new ArrayList<>();
+
+        double total = poidsRepondus;
+        return candidats.entrySet().stream()
+                .map(c -> {
+                    double score = 0.0;
+                    for (Map.Entry<Recommandation.AlgorithmeReco, Double> s : c.getValue().entrySet())
+                        score += poids(s.getKey()) * s.getValue();
+                    score /= total;
+                    return new Recommandation(userId, c.getKey(), Math.min(1.0, score),
+                            raison(c.getValue(), score), Recommandation.AlgorithmeReco.HYBRIDE);
+                })
+                .filter(r -> r.getScore() > SEUIL)
+                .sorted((r1, r2) -> Double.compare(r2.getScore(), r1.getScore()))
+                .limit(limite)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Score hybride d'un couple (utilisateur, événement), sans la part NLP
+     * qui demande une description.
+     */
+    public double scorer(long userId, long evenementId) {
+        double collaboratif = service.calculerScoreCollaboratif(userId, evenementId);
+        double contentBased = service.calculerScoreContentBased(userId, evenementId);
+        double p = config.poidsCollaboratif + config.poidsContentBased;
+        if (p == 0.0)
+            return 0.0;
+        return (config.poidsCollaboratif * collaboratif + config.poidsContentBased * contentBased) / p;
+    }
+
+    /**
+     * Lance une stratégie ; le futur rend null si elle échoue, dépasse son
+     * délai ou est refusée. Au délai dépassé la tâche est interrompue, pour
+     * libérer sa place dans le pool et sa connexion.
+     */
+    private CompletableFuture<List<Recommandation>> lancer(String nom, long timeoutMs,
+            Supplier<List<Recommandation>> etape) {
+        try {
+            CompletableFuture<List<Recommandation>> resultat = new CompletableFuture<>();
+            Future<?> tache = EXECUTOR.submit(() -> {
+                try {
+                    resultat.complete(etape.get());
+                } catch (RuntimeException e) {
+                    resultat.completeExceptionally(e);
+                }
+            });
+            return resultat
+                    .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                    .whenComplete((r, ex) -> {
+                        if (ex != null)
+                            tache.cancel(true);
+                    })
+                    .exceptionally(ex -> {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        logger.warn("Stratégie {} ignorée : {}", nom, cause instanceof TimeoutException
+                                ? "délai de " + timeoutMs + " ms dépassé" : cause.getMessage());
+                        return null;
+                    });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Stratégie {} ignorée : pool de recommandation saturé", nom);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private double poids(Recommandation.AlgorithmeReco algorithme) {
+        return switch (algorithme) {
+            case COLLABORATIVE -> config.poidsCollaboratif;
+            case CONTENT_BASED -> config.poidsContentBased;
+            case NLP -> config.poidsNlp;
+            default -> 0.0;
+        };
+    }
+
+    private static String raison(Map<Recommandation.AlgorithmeReco, Double> scores, double score) {
+        String sources = scores.keySet().stream()
+                .map(Recommandation.AlgorithmeReco::getLabel)
+                .collect(Collectors.joining(", "));
+        return String.format("Recommandé par plusieurs approches (%s) (score combiné: %.1f%%)", sources, score * 100);
+    }
+
+    private static ThreadPoolExecutor creerExecutor() {
+        int threads = Integer.getInteger("lamma.reco.hybride.threads",
+                Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())));
+        AtomicInteger compteur = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Integer.getInteger("lamma.reco.hybride.queue", 64)),
+                r -> {
+                    Thread t = new Thread(r, "reco-hybride-" + compteur.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Poids et délais par stratégie ; surchargeables par propriétés système
+     * {@code lamma.reco.hybride.*}.
+     */
+    public static class Config {
+        double poidsCollaboratif = 0.4;
+        double poidsContentBased = 0.35;
+        double poidsNlp = 0.25;
+        long timeoutCollaboratifMs = 150;
+        long timeoutContentBasedMs = 100;
+        long timeoutNlpMs = 200;
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.poidsCollaboratif = doubleProp("lamma.reco.hybride.poidsCollaboratif", c.poidsCollaboratif);
+            c.poidsContentBased = doubleProp("lamma.reco.hybride.poidsContentBased", c.poidsContentBased);
+            c.poidsNlp = doubleProp("lamma.reco.hybride.poidsNlp", c.poidsNlp);
+            c.timeoutCollaboratifMs = Long.getLong("lamma.reco.hybride.timeoutCollaboratifMs", c.timeoutCollaboratifMs);
+            c.timeoutContentBasedMs = Long.getLong("lamma.reco.hybride.timeoutContentBasedMs", c.timeoutContentBasedMs);
+            c.timeoutNlpMs = Long.getLong("lamma.reco.hybride.timeoutNlpMs", c.timeoutNlpMs);
+            return c;
+        }
+
+        private static double doubleProp(String nom, double defaut) {
+            String v = System.getProperty(nom);
+            return v != null ? Double.parseDouble(v) : defaut;
+        }
+
+        public Config poidsCollaboratif(double v) { this.poidsCollaboratif = v; return this; }
+        public Config poidsContentBased(double v) { this.poidsContentBased = v; return this; }
+        public Config poidsNlp(double v) { this.poidsNlp = v; return this; }
+        public Config timeoutCollaboratifMs(long v) { this.timeoutCollaboratifMs = v; return this; }
+        public Config timeoutContentBasedMs(long v) { this.timeoutContentBasedMs = v; return this; }
+        public Config timeoutNlpMs(long v) { this.timeoutNlpMs = v; return this; }
+    }
+}
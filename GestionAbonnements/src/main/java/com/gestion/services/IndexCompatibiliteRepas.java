@@ -0,0 +1,187 @@
+package com.gestion.services;
+
+import com.gestion.entities.ProfilAlimentaire;
+import com.gestion.entities.ProfilAlimentaire.Regime;
+import com.gestion.entities.RepasDetaille;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Index de compatibilité alimentaire du catalogue des repas actifs.
+ * <p>
+ * Chaque plat est résumé par un masque {@code long} : un bit par régime
+ * qu'il ne respecte pas (bits 0 à 3, dans l'ordre de {@link Regime}) et un
+ * bit par allergène qu'il contient (bits 4 à 62, attribués à la
+ * construction). Un profil devient le masque de ses régimes exigés et de ses
+ * allergènes exclus ; un plat est compatible si les deux masques n'ont aucun
+ * bit commun. Le filtrage du catalogue est ainsi un parcours d'un tableau de
+ * {@code long}.
+ * <p>
+ * Au-delà de 59 allergènes distincts, les suivants partagent le bit 63 : un
+ * plat qui en contient un est alors revérifié par
+ * {@link ProfilAlimentaire#accepte}. L'index est reconstruit à la première
+ * demande après une modification du catalogue.
+ */
+public final class IndexCompatibiliteRepas {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexCompatibiliteRepas.class);
+
+    private static final int PREMIER_BIT_ALLERGENE = Regime.values().length;
+    private static final int BIT_DEBORDEMENT = 63;
+    private static final long DEBORDEMENT = 1L << BIT_DEBORDEMENT;
+
+    private static final IndexCompatibiliteRepas INSTANCE =
+            new IndexCompatibiliteRepas(() -> new RepasDetailleServiceImpl().findAll());
+
+    private final Supplier<List<RepasDetaille>> chargeur;
+    private volatile Catalogue catalogue;
+
+    private IndexCompatibiliteRepas(Supplier<List<RepasDetaille>> chargeur) {
+        this.chargeur = chargeur;
+    }
+
+    public static IndexCompatibiliteRepas getInstance() {
+        return INSTANCE;
+    }
+
+    /** Repas actifs du catalogue, dans l'ordre de chargement (par nom). */
+    public List<RepasDetaille> tous() {
+        return catalogue().liste;
+    }
+
+    /** Repas actifs compatibles avec le profil. */
+    public List<RepasDetaille> compatibles(ProfilAlimentaire profil) {
+        return compatibles(profil, null);
+    }
+
+    /** Repas actifs compatibles avec le profil, limités à un type de repas si non nul. */
+    public List<RepasDetaille> compatibles(ProfilAlimentaire profil, String typeRepas) {
+        Catalogue c = catalogue();
+        long interdits = c.masque(profil);
+        List<RepasDetaille> resultat = new ArrayList<>();
+        long[] masques = c.masques;
+        for (int i = 0; i < masques.length; i++) {
+            if ((masques[i] & interdits) != 0 && !c.accepteDebordement(i, interdits, profil))
+                continue;
+            RepasDetaille r = c.repas[i];
+            if (typeRepas == null || typeRepas.equalsIgnoreCase(r.getTypeRepas()))
+                resultat.add(r);
+        }
+        return resultat;
+    }
+
+    /**
+     * Test de compatibilité pour filtrer une liste quelconque de repas ; un
+     * repas absent de l'index (inactif ou créé depuis) est vérifié par
+     * {@link ProfilAlimentaire#accepte}.
+     */
+    public Predicate<RepasDetaille> filtre(ProfilAlimentaire profil) {
+        if (profil.estVide())
+            return r -> true;
+        Catalogue c = catalogue();
+        long interdits = c.masque(profil);
+        return r -> {
+            Integer i = r.getId() != null ? c.positions.get(r.getId()) : null;
+            if (i == null)
+                return profil.accepte(r);
+            return (c.masques[i] & interdits) == 0 || c.accepteDebordement(i, interdits, profil);
+        };
+    }
+
+    /** À appeler après toute création, modification ou suppression de repas. */
+    public void invalider() {
+        catalogue = null;
+    }
+
+    private Catalogue catalogue() {
+        Catalogue c = catalogue;
+        if (c == null) {
+            synchronized (this) {
+                c = catalogue;
+                if (c == null) {
+                    c = Catalogue.de(chargeur.get());
+                    catalogue = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    /** Instantané immuable du catalogue et de ses masques. */
+    private static final class Catalogue {
+        final RepasDetaille[] repas;
+        final long[] masques;
+        final List<RepasDetaille> liste;
+        final Map<Long, Integer> positions;
+        final Map<String, Integer> bits;
+
+        private Catalogue(RepasDetaille[] repas, long[] masques, Map<Long, Integer> positions,
+                Map<String, Integer> bits) {
+            this.repas = repas;
+            this.masques = masques;
+            this.liste = List.of(repas);
+            this.positions = positions;
+            this.bits = bits;
+        }
+
+        static Catalogue de(List<RepasDetaille> catalogue) {
+            long debut = System.nanoTime();
+            RepasDetaille[] repas = catalogue.toArray(new RepasDetaille[0]);
+            long[] masques = new long[repas.length];
+            Map<Long, Integer> positions = new HashMap<>(repas.length * 2);
+            Map<String, Integer> bits = new HashMap<>();
+            for (int i = 0; i < repas.length; i++) {
+                RepasDetaille r = repas[i];
+                long m = 0;
+                for (Regime regime : EnumSet.complementOf(ProfilAlimentaire.regimesDe(r)))
+                    m |= 1L << regime.ordinal();
+                for (String a : r.getAllergenes()) {
+                    String n = ProfilAlimentaire.normaliserAllergene(a);
+                    if (n.isEmpty())
+                        continue;
+                    int bit = bits.computeIfAbsent(n,
+                            k -> Math.min(PREMIER_BIT_ALLERGENE + bits.size(), BIT_DEBORDEMENT));
+                    m |= 1L << bit;
+                }
+                masques[i] = m;
+                if (r.getId() != null)
+                    positions.put(r.getId(), i);
+            }
+            logger.info("Index de compatibilité : {} repas, {} allergènes en {} µs",
+                    repas.length, bits.size(), (System.nanoTime() - debut) / 1_000);
+            return new Catalogue(repas, masques, positions, bits);
+        }
+
+        /**
+         * Masque d'un profil : régimes exigés et allergènes exclus. Un
+         * allergène qu'aucun plat ne contient n'exclut rien et n'a pas de bit.
+         */
+        long masque(ProfilAlimentaire profil) {
+            long m = 0;
+            for (Regime regime : profil.getRegimes())
+                m |= 1L << regime.ordinal();
+            for (String a : profil.getAllergenes()) {
+                Integer bit = bits.get(a);
+                if (bit != null)
+                    m |= 1L << bit;
+            }
+            return m;
+        }
+
+        /**
+         * Seul le bit partagé des allergènes en débordement est commun : le
+         * plat est revérifié allergène par allergène.
+         */
+        boolean accepteDebordement(int i, long interdits, ProfilAlimentaire profil) {
+            return (masques[i] & interdits) == DEBORDEMENT && profil.accepte(repas[i]);
+        }
+    }
+}
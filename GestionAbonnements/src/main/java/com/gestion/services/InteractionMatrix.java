@@ -0,0 +1,344 @@
+package com.gestion.services;
+
+import com.gestion.tools.IntObjectMap;
+import com.gestion.tools.MyConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Matrice creuse utilisateurs × événements résidente en mémoire, construite
+ * depuis {@code participations} (hors participations annulées).
+ * <p>
+ * Chaque ligne est un {@code int[]} trié : ids d'événements par utilisateur, et
+ * ids d'utilisateurs par événement pour l'index inverse. Une interaction coûte
+ * donc 8 octets (4 dans chaque sens), sans {@code Long} boxé. Les tableaux
+ * publiés ne sont jamais modifiés : une mise à jour remplace la ligne par une
+ * copie, ce qui permet de rendre les lignes sans les copier.
+ * <p>
+ * Les ids sont supposés tenir sur 32 bits ({@code evenement.id_event} est un INT).
+ */
+public class InteractionMatrix {
+
+    private static final Logger logger = LoggerFactory.getLogger(InteractionMatrix.class);
+
+    private static final int[] VIDE = new int[0];
+    private static volatile InteractionMatrix instance;
+
+    /** Mesure de similarité entre deux ensembles d'événements. */
+    public enum Mesure { JACCARD, COSINUS }
+
+    private final IntObjectMap<int[]> parUtilisateur;
+    private final IntObjectMap<int[]> parEvenement;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long interactions;
+
+    InteractionMatrix(IntObjectMap<int[]> parUtilisateur, IntObjectMap<int[]> parEvenement, long interactions) {
+        this.parUtilisateur = parUtilisateur;
+        this.parEvenement = parEvenement;
+        this.interactions = interactions;
+    }
+
+    /**
+     * Matrice partagée, chargée au premier appel. Si la base ne répond pas,
+     * une matrice vide est rendue sans être conservée : l'appel suivant
+     * retente le chargement.
+     */
+    public static InteractionMatrix getInstance() {
+        InteractionMatrix m = instance;
+        if (m == null) {
+            synchronized (InteractionMatrix.class) {
+                m = instance;
+                if (m == null) {
+                    m = charger(MyConnection.getInstance());
+                    if (m == null)
+                        return new InteractionMatrix(new IntObjectMap<>(), new IntObjectMap<>(), 0);
+                    instance = m;
+                }
+            }
+        }
+        return m;
+    }
+
+    /** Instance déjà chargée, ou null : pour les hooks d'écriture qui ne doivent pas forcer un chargement. */
+    static InteractionMatrix siChargee() {
+        return instance;
+    }
+
+    /** Matrice complète des participations non annulées, ou null si la lecture échoue. */
+    static InteractionMatrix charger(MyConnection dbConnection) {
+        long debut = System.nanoTime();
+        long[] paires = new long[1024];
+        int n = 0;
+        String sql = "SELECT user_id, evenement_id FROM participations WHERE statut <> 'ANNULE'";
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (n == paires.length)
+                        paires = Arrays.copyOf(paires, n * 2);
+                    paires[n++] = pack(Math.toIntExact(rs.getLong(1)), Math.toIntExact(rs.getLong(2)));
+                }
+            }
+        } catch (SQLException e) {
+            // Une matrice partielle fausserait les scores jusqu'au redémarrage
+            logger.error("Erreur chargement de la matrice d'interactions", e);
+            return null;
+        }
+
+        IntObjectMap<int[]> parUtilisateur = grouper(paires, n);
+        for (int i = 0; i < n; i++)
+            paires[i] = pack((int) paires[i], (int) (paires[i] >>> 32));
+        IntObjectMap<int[]> parEvenement = grouper(paires, n);
+
+        InteractionMatrix m = new InteractionMatrix(parUtilisateur, parEvenement, n);
+        logger.info("Matrice d'interactions : {} utilisateurs, {} événements, {} interactions en {} ms",
+                parUtilisateur.size(), parEvenement.size(), n, (System.nanoTime() - debut) / 1_000_000);
+        return m;
+    }
+
+    // ---------------------------------------------------------------- lecture
+
+    /** Événements de l'utilisateur, triés. Ne pas modifier le tableau rendu. */
+    public int[] evenementsDe(long userId) {
+        return ligne(parUtilisateur, userId);
+    }
+
+    /** Participants de l'événement, triés. Ne pas modifier le tableau rendu. */
+    public int[] participantsDe(long evenementId) {
+        return ligne(parEvenement, evenementId);
+    }
+
+    public int popularite(long evenementId) {
+        return participantsDe(evenementId).length;
+    }
+
+    public boolean participe(long userId, long evenementId) {
+        return Arrays.binarySearch(evenementsDe(userId), (int) evenementId) >= 0;
+    }
+
+    public double similarite(long userA, long userB, Mesure mesure) {
+        int[] a = evenementsDe(userA);
+        int[] b = evenementsDe(userB);
+        return similarite(intersection(a, b), a.length, b.length, mesure);
+    }
+
+    /**
+     * Les {@code k} utilisateurs les plus proches de {@code userId} (au moins un
+     * événement en commun), du plus similaire au moins similaire.
+     */
+    public List<Voisin> voisins(long userId, int k, Mesure mesure) {
+        int[] miens = evenementsDe(userId);
+        if (miens.length == 0 || k <= 0)
+            return List.of();
+
+        // Co-participants de tous mes événements, triés : la longueur de chaque
+        // séquence d'un même id est la taille de l'intersection.
+        int total = 0;
+        int[][] lignes = new int[miens.length][];
+        for (int i = 0; i < miens.length; i++) {
+            lignes[i] = participantsDe(miens[i]);
+            total += lignes[i].length;
+        }
+        int[] tous = new int[total];
+        int pos = 0;
+        for (int[] l : lignes) {
+            System.arraycopy(l, 0, tous, pos, l.length);
+            pos += l.length;
+        }
+        Arrays.sort(tous);
+
+        PriorityQueue<Voisin> top = new PriorityQueue<>(k + 1, Comparator.comparingDouble(Voisin::similarite));
+        for (int i = 0; i < tous.length; ) {
+            int autre = tous[i];
+            int j = i;
+            while (j < tous.length && tous[j] == autre)
+                j++;
+            if (autre != (int) userId) {
+                int communs = j - i;
+                double s = similarite(communs, miens.length, evenementsDe(autre).length, mesure);
+                top.add(new Voisin(autre, communs, s));
+                if (top.size() > k)
+                    top.poll();
+            }
+            i = j;
+        }
+        List<Voisin> result = new ArrayList<>(top);
+        result.sort(Comparator.comparingDouble(Voisin::similarite).reversed()
+                .thenComparingLong(Voisin::userId));
+        return result;
+    }
+
+    /** Utilisateurs ayant au moins une participation, triés. */
+    public int[] utilisateurs() {
+        lock.readLock().lock();
+        try {
+            int[] ids = new int[parUtilisateur.size()];
+            int[] n = {0};
+            parUtilisateur.forEach((u, ligne) -> ids[n[0]++] = u);
+            Arrays.sort(ids);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getInteractions() {
+        lock.readLock().lock();
+        try {
+            return interactions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getNombreUtilisateurs() {
+        lock.readLock().lock();
+        try {
+            return parUtilisateur.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------- mise à jour
+
+    public void ajouter(long userId, long evenementId) {
+        int u = Math.toIntExact(userId);
+        int e = Math.toIntExact(evenementId);
+        lock.writeLock().lock();
+        try {
+            int[] ev = parUtilisateur.get(u);
+            int[] avec = inserer(ev != null ? ev : VIDE, e);
+            if (avec == ev)
+                return;
+            parUtilisateur.put(u, avec);
+            int[] us = parEvenement.get(e);
+            parEvenement.put(e, inserer(us != null ? us : VIDE, u));
+            interactions++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void retirer(long userId, long evenementId) {
+        int u = Math.toIntExact(userId);
+        int e = Math.toIntExact(evenementId);
+        lock.writeLock().lock();
+        try {
+            int[] ev = parUtilisateur.get(u);
+            if (ev == null || Arrays.binarySearch(ev, e) < 0)
+                return;
+            remplacer(parUtilisateur, u, retirer(ev, e));
+            remplacer(parEvenement, e, retirer(parEvenement.get(e), u));
+            interactions--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------- interne
+
+    private int[] ligne(IntObjectMap<int[]> map, long id) {
+        lock.readLock().lock();
+        try {
+            int[] l = map.get((int) id);
+            return l != null ? l : VIDE;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void remplacer(IntObjectMap<int[]> map, int key, int[] ligne) {
+        if (ligne.length == 0)
+            map.remove(key);
+        else
+            map.put(key, ligne);
+    }
+
+    /** Copie triée avec {@code v}, ou {@code sorted} lui-même s'il le contient déjà. */
+    private static int[] inserer(int[] sorted, int v) {
+        int i = Arrays.binarySearch(sorted, v);
+        if (i >= 0)
+            return sorted;
+        i = -i - 1;
+        int[] r = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, r, 0, i);
+        r[i] = v;
+        System.arraycopy(sorted, i, r, i + 1, sorted.length - i);
+        return r;
+    }
+
+    private static int[] retirer(int[] sorted, int v) {
+        int i = Arrays.binarySearch(sorted, v);
+        if (i < 0)
+            return sorted;
+        int[] r = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, r, 0, i);
+        System.arraycopy(sorted, i + 1, r, i, sorted.length - i - 1);
+        return r;
+    }
+
+    static int intersection(int[] a, int[] b) {
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else { n++; i++; j++; }
+        }
+        return n;
+    }
+
+    private static double similarite(int communs, int tailleA, int tailleB, Mesure mesure) {
+        if (communs == 0)
+            return 0.0;
+        return switch (mesure) {
+            case JACCARD -> (double) communs / (tailleA + tailleB - communs);
+            case COSINUS -> communs / Math.sqrt((double) tailleA * tailleB);
+        };
+    }
+
+    private static long pack(int hi, int lo) {
+        return ((long) hi << 32) | (lo & 0xffffffffL);
+    }
+
+    /** Regroupe des paires (clé haute, valeur basse) en lignes triées par clé. */
+    private static IntObjectMap<int[]> grouper(long[] paires, int n) {
+        Arrays.sort(paires, 0, n);
+        IntObjectMap<int[]> map = new IntObjectMap<>();
+        for (int i = 0; i < n; ) {
+            int key = (int) (paires[i] >>> 32);
+            int j = i;
+            while (j < n && (int) (paires[j] >>> 32) == key)
+                j++;
+            int[] ligne = new int[j - i];
+            int len = 0;
+            for (int x = i; x < j; x++) {
+                int v = (int) paires[x];
+                if (len == 0 || ligne[len - 1] != v)
+                    ligne[len++] = v;
+            }
+            map.put(key, len == ligne.length ? ligne : Arrays.copyOf(ligne, len));
+            i = j;
+        }
+        return map;
+    }
+
+    /**
+     * Utilisateur voisin et sa similarité avec l'utilisateur de référence.
+     */
+    public record Voisin(long userId, int communs, double similarite) {
+    }
+}
@@ -0,0 +1,473 @@
+package com.gestion.services;
+
+import com.gestion.entities.Recommandation;
+import com.gestion.entities.Recommandation.AlgorithmeReco;
+import com.gestion.tools.MyConnection;
+import com.gestion.tools.RingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Suivi des interactions sur les recommandations : impressions, clics et
+ * conversions.
+ * <p>
+ * L'enregistrement ne fait que déposer l'événement dans un {@link RingBuffer}
+ * et incrémenter des compteurs en mémoire (global, par algorithme, par
+ * utilisateur, par recommandation) : l'interface n'attend jamais la base et
+ * les taux se lisent sans parcourir les événements bruts. Un écrivain de fond
+ * vide la file par lots JDBC dans la table en ajout seul
+ * {@code recommandation_interactions} ; au démarrage il recharge les compteurs
+ * depuis cette table. Si la file est pleine (base indisponible), l'événement
+ * est compté comme perdu.
+ * <p>
+ * Au démarrage, seules les interactions de la fenêtre
+ * {@code lamma.reco.interactions.retentionMs} sont rechargées. Les compteurs
+ * par utilisateur et par recommandation sans activité depuis cette durée sont
+ * retirés périodiquement ; les compteurs global et par algorithme ne le sont
+ * pas et cumulent tout ce qui a été compté depuis le démarrage du processus
+ * (fenêtre rechargée comprise). La table garde tout l'historique.
+ * <p>
+ * Partagé par tous les services ; {@link #close()} à l'arrêt écrit ce qui reste.
+ */
+public final class InteractionTracker implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(InteractionTracker.class);
+
+    public enum TypeInteraction {
+        IMPRESSION, CLIC, CONVERSION;
+
+        /** Accepte aussi « click » et « vue » ; sans tenir compte de la casse. */
+        public static TypeInteraction parse(String valeur) {
+            if (valeur == null)
+                throw new IllegalArgumentException("Type d'interaction manquant");
+            return switch (valeur.trim().toUpperCase()) {
+                case "IMPRESSION", "VUE" -> IMPRESSION;
+                case "CLIC", "CLICK" -> CLIC;
+                case "CONVERSION" -> CONVERSION;
+                default -> throw new IllegalArgumentException("Type d'interaction inconnu : " + valeur);
+            };
+        }
+    }
+
+    private static final String SQL_INSERT = """
+            INSERT INTO recommandation_interactions (recommandation_id, user_id, algorithme, type, created_at)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+    private static final String SQL_AGREGATS = """
+            SELECT recommandation_id, user_id, algorithme, type, COUNT(*), MAX(created_at)
+            FROM recommandation_interactions
+            WHERE created_at >= ?
+            GROUP BY recommandation_id, user_id, algorithme, type
+            """;
+
+    /** Période maximale entre deux purges des compteurs inactifs. */
+    private static final long PURGE_MAX_MS = 3_600_000;
+
+    private static volatile InteractionTracker instance;
+
+    private final MyConnection dbConnection;
+    private final Config config;
+    private final RingBuffer<Interaction> file;
+    private final ScheduledExecutorService ecrivain;
+    /** Lot en cours d'écriture ; conservé tant que l'écriture échoue. Protégé par {@link #vider()}. */
+    private final List<Interaction> lot = new ArrayList<>();
+
+    private final Compteurs global = new Compteurs();
+    private final Map<AlgorithmeReco, Compteurs> parAlgorithme = new EnumMap<>(AlgorithmeReco.class);
+    private final Map<Long, Compteurs> parUtilisateur = new ConcurrentHashMap<>();
+    private final Map<Long, CompteursReco> parRecommandation = new ConcurrentHashMap<>();
+
+    // Métriques
+    private final LongAdder ecrites = new LongAdder();
+    private final LongAdder perdues = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+
+    private InteractionTracker(MyConnection dbConnection, Config config) {
+        this.dbConnection = dbConnection;
+        this.config = config;
+        this.file = new RingBuffer<>(config.capacite);
+        for (AlgorithmeReco a : AlgorithmeReco.values())
+            parAlgorithme.put(a, new Compteurs());
+        this.ecrivain = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reco-interactions-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Instance partagée, démarrée au premier appel (rechargement des compteurs
+     * puis écritures toutes les {@code lamma.reco.interactions.intervalMs}).
+     */
+    public static InteractionTracker getInstance() {
+        InteractionTracker t = instance;
+        if (t == null) {
+            synchronized (InteractionTracker.class) {
+                t = instance;
+                if (t == null) {
+                    t = new InteractionTracker(MyConnection.getInstance(), Config.fromSystemProperties());
+                    t.start();
+                    instance = t;
+                }
+            }
+        }
+        return t;
+    }
+
+    /** Instance partagée si elle a déjà été démarrée, sans la créer. */
+    public static InteractionTracker siDemarre() {
+        return instance;
+    }
+
+    private void start() {
+        ecrivain.execute(this::chargerAgregats);
+        ecrivain.scheduleWithFixedDelay(this::vidageSilencieux,
+                config.intervalMs, config.intervalMs, TimeUnit.MILLISECONDS);
+        long purge = Math.min(config.retentionMs, PURGE_MAX_MS);
+        ecrivain.scheduleWithFixedDelay(this::purger, purge, purge, TimeUnit.MILLISECONDS);
+        logger.info("Suivi des interactions démarré (file de {}, écriture toutes les {} ms par lots de {})",
+                file.getCapacite(), config.intervalMs, config.batchSize);
+    }
+
+    /**
+     * Enregistre une interaction ; renvoie false si la file est pleine.
+     */
+    public boolean enregistrer(Long recommandationId, Long userId, AlgorithmeReco algorithme, TypeInteraction type) {
+        if (recommandationId == null || type == null)
+            throw new IllegalArgumentException("Recommandation et type d'interaction requis");
+        if (!file.offrir(new Interaction(recommandationId, userId, algorithme, type, System.currentTimeMillis()))) {
+            perdues.increment();
+            return false;
+        }
+        compter(recommandationId, userId, algorithme, type, 1, System.currentTimeMillis());
+        return true;
+    }
+
+    public boolean enregistrer(Recommandation recommandation, TypeInteraction type) {
+        return enregistrer(recommandation.getId(), recommandation.getUserId(),
+                recommandation.getAlgorithmeUsed(), type);
+    }
+
+    /**
+     * Enregistre une interaction sur une recommandation déjà vue par le suivi ;
+     * renvoie false si elle est inconnue ou si la file est pleine.
+     */
+    public boolean enregistrer(Long recommandationId, TypeInteraction type) {
+        CompteursReco c = recommandationId != null ? parRecommandation.get(recommandationId) : null;
+        return c != null && enregistrer(recommandationId, c.userId, c.algorithme, type);
+    }
+
+    public boolean estConnue(Long recommandationId) {
+        return recommandationId != null && parRecommandation.containsKey(recommandationId);
+    }
+
+    /** Clics / impressions, toutes recommandations confondues, depuis le démarrage (fenêtre rechargée comprise). */
+    public double tauxClic() {
+        return global.tauxClic();
+    }
+
+    public double tauxClic(AlgorithmeReco algorithme) {
+        return parAlgorithme.get(algorithme).tauxClic();
+    }
+
+    public double tauxClicUtilisateur(Long userId) {
+        Compteurs c = parUtilisateur.get(userId);
+        return c != null ? c.tauxClic() : 0.0;
+    }
+
+    /** Conversions / clics, toutes recommandations confondues, depuis le démarrage (fenêtre rechargée comprise). */
+    public double tauxConversion() {
+        return global.tauxConversion();
+    }
+
+    public double tauxConversion(AlgorithmeReco algorithme) {
+        return parAlgorithme.get(algorithme).tauxConversion();
+    }
+
+    /**
+     * Identifiants des recommandations au meilleur taux de clic, parmi celles
+     * qui ont au moins {@code lamma.reco.interactions.impressionsMin}
+     * impressions ; le taux est lissé ({@code (clics + 1) / (impressions + 2)})
+     * pour ne pas favoriser les petits échantillons.
+     */
+    public List<Long> meilleures(int limite) {
+        if (limite <= 0)
+            return List.of();
+        Comparator<Map.Entry<Long, CompteursReco>> parTaux =
+                Comparator.comparingDouble(e -> e.getValue().tauxLisse());
+        PriorityQueue<Map.Entry<Long, CompteursReco>> top = new PriorityQueue<>(limite + 1, parTaux);
+        for (Map.Entry<Long, CompteursReco> e : parRecommandation.entrySet()) {
+            if (e.getValue().impressions.sum() < config.impressionsMin)
+                continue;
+            top.add(e);
+            if (top.size() > limite)
+                top.poll();
+        }
+        List<Long> ids = new ArrayList<>(top.size());
+        while (!top.isEmpty())
+            ids.add(top.poll().getKey());
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    /**
+     * Écrit tout ce qui est en file, par lots ; renvoie le nombre
+     * d'interactions écrites.
+     */
+    public synchronized int vider() throws SQLException {
+        int total = 0;
+        while (true) {
+            if (lot.isEmpty() && file.vider(lot::add, config.batchSize) == 0)
+                return total;
+            ecrire(lot);
+            total += lot.size();
+            ecrites.add(lot.size());
+            lot.clear();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(global.impressions.sum(), global.clics.sum(), global.conversions.sum(),
+                ecrites.sum(), perdues.sum(), echecs.sum(), file.taille());
+    }
+
+    /**
+     * Arrête l'écrivain et écrit les interactions restantes.
+     */
+    @Override
+    public void close() {
+        ecrivain.shutdown();
+        try {
+            ecrivain.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        vidageSilencieux();
+    }
+
+    private void vidageSilencieux() {
+        try {
+            vider();
+        } catch (SQLException | RuntimeException e) {
+            echecs.increment();
+            logger.warn("Écriture des interactions en échec ({} en attente) : {}", lot.size() + file.taille(), e.getMessage());
+        }
+    }
+
+    private void ecrire(List<Interaction> interactions) throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("Aucune connexion disponible");
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT)) {
+                for (Interaction i : interactions) {
+                    ps.setLong(1, i.recommandationId);
+                    if (i.userId != null) ps.setLong(2, i.userId); else ps.setNull(2, Types.BIGINT);
+                    ps.setString(3, i.algorithme != null ? i.algorithme.name() : null);
+                    ps.setString(4, i.type.name());
+                    ps.setTimestamp(5, new Timestamp(i.horodatage));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Ajoute aux compteurs les interactions de la fenêtre de rétention déjà en
+     * base. Exécuté sur l'écrivain avant sa première écriture, donc sans
+     * double compte.
+     */
+    private void chargerAgregats() {
+        long debut = System.currentTimeMillis();
+        long total = 0;
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_AGREGATS)) {
+            ps.setTimestamp(1, new Timestamp(debut - config.retentionMs));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long userId = rs.getLong(2);
+                    boolean sansUtilisateur = rs.wasNull();
+                    String algorithme = rs.getString(3);
+                    long n = rs.getLong(5);
+                    compter(rs.getLong(1), sansUtilisateur ? null : userId,
+                            algorithme != null ? AlgorithmeReco.valueOf(algorithme) : null,
+                            TypeInteraction.valueOf(rs.getString(4)), n, rs.getTimestamp(6).getTime());
+                    total += n;
+                }
+            }
+            logger.info("Compteurs d'interactions rechargés : {} interactions en {} ms",
+                    total, System.currentTimeMillis() - debut);
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Rechargement des compteurs d'interactions impossible : {}", e.getMessage());
+        }
+    }
+
+    /** Retire les compteurs par utilisateur et par recommandation inactifs depuis la fenêtre de rétention. */
+    private void purger() {
+        long limite = System.currentTimeMillis() - config.retentionMs;
+        int avant = parRecommandation.size() + parUtilisateur.size();
+        parRecommandation.values().removeIf(c -> c.derniere < limite);
+        parUtilisateur.values().removeIf(c -> c.derniere < limite);
+        int retires = avant - parRecommandation.size() - parUtilisateur.size();
+        if (retires > 0)
+            logger.debug("{} compteurs d'interactions inactifs retirés", retires);
+    }
+
+    private void compter(Long recommandationId, Long userId, AlgorithmeReco algorithme, TypeInteraction type, long n,
+            long horodatage) {
+        global.ajouter(type, n, horodatage);
+        if (algorithme != null)
+            parAlgorithme.get(algorithme).ajouter(type, n, horodatage);
+        if (userId != null)
+            parUtilisateur.computeIfAbsent(userId, k -> new Compteurs()).ajouter(type, n, horodatage);
+        parRecommandation.computeIfAbsent(recommandationId, k -> new CompteursReco(userId, algorithme))
+                .ajouter(type, n, horodatage);
+    }
+
+    private record Interaction(long recommandationId, Long userId, AlgorithmeReco algorithme,
+            TypeInteraction type, long horodatage) {
+    }
+
+    private static class Compteurs {
+        final LongAdder impressions = new LongAdder();
+        final LongAdder clics = new LongAdder();
+        final LongAdder conversions = new LongAdder();
+        /** Horodatage de la dernière interaction comptée. */
+        volatile long derniere;
+
+        void ajouter(TypeInteraction type, long n, long horodatage) {
+            switch (type) {
+                case IMPRESSION -> impressions.add(n);
+                case CLIC -> clics.add(n);
+                case CONVERSION -> conversions.add(n);
+            }
+            if (horodatage > derniere)
+                derniere = horodatage;
+        }
+
+        double tauxClic() {
+            long i = impressions.sum();
+            return i == 0 ? 0.0 : Math.min(1.0, (double) clics.sum() / i);
+        }
+
+        double tauxConversion() {
+            long c = clics.sum();
+            return c == 0 ? 0.0 : Math.min(1.0, (double) conversions.sum() / c);
+        }
+    }
+
+    private static final class CompteursReco extends Compteurs {
+        final Long userId;
+        final AlgorithmeReco algorithme;
+
+        CompteursReco(Long userId, AlgorithmeReco algorithme) {
+            this.userId = userId;
+            this.algorithme = algorithme;
+        }
+
+        double tauxLisse() {
+            return (clics.sum() + 1.0) / (impressions.sum() + 2.0);
+        }
+    }
+
+    /**
+     * Réglages ; surchargeables par propriétés système
+     * {@code lamma.reco.interactions.*}.
+     */
+    public static class Config {
+        int capacite = 65_536;
+        long intervalMs = 1_000;
+        int batchSize = 500;
+        int impressionsMin = 20;
+        long retentionMs = 30L * 24 * 3_600_000;
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.capacite = Integer.getInteger("lamma.reco.interactions.capacite", c.capacite);
+            c.intervalMs = Long.getLong("lamma.reco.interactions.intervalMs", c.intervalMs);
+            c.batchSize = Integer.getInteger("lamma.reco.interactions.batchSize", c.batchSize);
+            c.impressionsMin = Integer.getInteger("lamma.reco.interactions.impressionsMin", c.impressionsMin);
+            c.retentionMs(Long.getLong("lamma.reco.interactions.retentionMs", c.retentionMs));
+            return c;
+        }
+
+        public Config capacite(int v) { this.capacite = v; return this; }
+        public Config intervalMs(long v) { this.intervalMs = v; return this; }
+        public Config batchSize(int v) { this.batchSize = v; return this; }
+        public Config impressionsMin(int v) { this.impressionsMin = v; return this; }
+
+        public Config retentionMs(long v) {
+            if (v < 1)
+                throw new IllegalArgumentException("lamma.reco.interactions.retentionMs doit être au moins 1 : " + v);
+            this.retentionMs = v;
+            return this;
+        }
+    }
+
+    /**
+     * Instantané des métriques de suivi.
+     */
+    public static class Stats {
+        private final long impressions;
+        private final long clics;
+        private final long conversions;
+        private final long ecrites;
+        private final long perdues;
+        private final long echecs;
+        private final int enAttente;
+
+        Stats(long impressions, long clics, long conversions, long ecrites, long perdues,
+                long echecs, int enAttente) {
+            this.impressions = impressions;
+            this.clics = clics;
+            this.conversions = conversions;
+            this.ecrites = ecrites;
+            this.perdues = perdues;
+            this.echecs = echecs;
+            this.enAttente = enAttente;
+        }
+
+        public long getImpressions() { return impressions; }
+        public long getClics() { return clics; }
+        public long getConversions() { return conversions; }
+        /** Interactions écrites en base depuis le démarrage. */
+        public long getEcrites() { return ecrites; }
+        /** Interactions refusées, file pleine. */
+        public long getPerdues() { return perdues; }
+        public long getEchecs() { return echecs; }
+        public int getEnAttente() { return enAttente; }
+
+        @Override
+        public String toString() {
+            return String.format("impressions=%d clics=%d conversions=%d écrites=%d perdues=%d échecs=%d en attente=%d",
+                    impressions, clics, conversions, ecrites, perdues, echecs, enAttente);
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.gestion.services;
+
+import com.gestion.tools.MyConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index précalculé des K événements les plus similaires à chaque événement.
+ * <p>
+ * La similarité combine la co-participation (cosinus sur les colonnes de la
+ * {@link InteractionMatrix}) et les métadonnées de l'événement (type, lieu,
+ * proximité des dates) :
+ * <pre>
+ * sim(e, f) = 0.6 × co(e, f) / √(pop(e) × pop(f)) + 0.4 × (0.5 × même type + 0.3 × même lieu + 0.2 / (1 + |Δjours| / 30))
+ * </pre>
+ * Le résultat est stocké en tableaux parallèles (ids triés, décalages, voisins,
+ * scores) : une recherche est une dichotomie puis la lecture de K cases. Il
+ * est écrit sur disque après chaque calcul et relu au démarrage s'il a moins
+ * d'un intervalle de rafraîchissement ; un calcul périodique le remplace.
+ */
+public class ItemSimilarityIndex implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItemSimilarityIndex.class);
+
+    private static final int MAGIC = 0x49534958; // "ISIX"
+    private static final int VERSION = 1;
+
+    static final int K = 20;
+    private static final double POIDS_CO = 0.6;
+    private static final double POIDS_META = 0.4;
+
+    private static volatile ItemSimilarityIndex instance;
+
+    private final MyConnection dbConnection;
+    private final Path fichier;
+    private final long intervalleMs;
+    private final ScheduledExecutorService scheduler;
+    private volatile Table table;
+
+    ItemSimilarityIndex(MyConnection dbConnection, Path fichier, long intervalleMs) {
+        this.dbConnection = dbConnection;
+        this.fichier = fichier;
+        this.intervalleMs = intervalleMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "item-similarity-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Index partagé : relu depuis le disque s'il est assez récent, recalculé
+     * sinon. Fichier et intervalle : propriétés système
+     * {@code lamma.reco.similarity.file} et {@code lamma.reco.similarity.intervalMs}.
+     */
+    public static ItemSimilarityIndex getInstance() {
+        if (instance == null) {
+            synchronized (ItemSimilarityIndex.class) {
+                if (instance == null) {
+                    Path f = Path.of(System.getProperty("lamma.reco.similarity.file",
+                            Path.of(System.getProperty("user.home"), ".lamma", "item-similarity.bin").toString()));
+                    long intervalle = Long.getLong("lamma.reco.similarity.intervalMs", 6 * 3_600_000L);
+                    ItemSimilarityIndex idx = new ItemSimilarityIndex(MyConnection.getInstance(), f, intervalle);
+                    idx.demarrer();
+                    instance = idx;
+                }
+            }
+        }
+        return instance;
+    }
+
+    private void demarrer() {
+        long age = Long.MAX_VALUE;
+        try {
+            if (Files.exists(fichier)) {
+                table = lire(fichier);
+                age = System.currentTimeMillis() - table.genereLe;
+                logger.info("Index de similarité relu depuis {} : {} événements", fichier, table.evenements.length);
+            }
+        } catch (IOException e) {
+            logger.warn("Index de similarité illisible ({}), recalcul", e.getMessage());
+        }
+        if (table == null || age >= intervalleMs) {
+            recalculer();
+            age = 0;
+        }
+        long prochain = Math.max(0, intervalleMs - age);
+        scheduler.scheduleWithFixedDelay(this::recalculerSilencieux, prochain, intervalleMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Les {@code k} (≤ {@value #K}) événements les plus similaires, du plus
+     * proche au moins proche.
+     */
+    public List<Similaire> similaires(long evenementId, int k) {
+        Table t = table;
+        if (t == null)
+            return List.of();
+        int i = Arrays.binarySearch(t.evenements, (int) evenementId);
+        if (i < 0)
+            return List.of();
+        int fin = Math.min(t.debuts[i + 1], t.debuts[i] + Math.max(0, k));
+        List<Similaire> result = new ArrayList<>(fin - t.debuts[i]);
+        for (int j = t.debuts[i]; j < fin; j++)
+            result.add(new Similaire(t.voisins[j], t.scores[j]));
+        return result;
+    }
+
+    public int getNombreEvenements() {
+        Table t = table;
+        return t == null ? 0 : t.evenements.length;
+    }
+
+    /**
+     * Recalcule l'index, le publie puis l'écrit sur disque.
+     */
+    public synchronized void recalculer() {
+        long debut = System.nanoTime();
+        Map<Integer, Meta> metas = chargerMetas();
+        InteractionMatrix matrice = InteractionMatrix.getInstance();
+        // Matrice vide de secours (base injoignable) : l'index courant est gardé
+        if (InteractionMatrix.siChargee() == null)
+            throw new IllegalStateException("matrice d'interactions non chargée");
+        Table t = calculer(matrice, metas);
+        table = t;
+        try {
+            ecrire(fichier, t);
+        } catch (IOException e) {
+            logger.warn("Écriture de l'index de similarité impossible : {}", e.getMessage());
+        }
+        logger.info("Index de similarité : {} événements, {} paires en {} ms",
+                t.evenements.length, t.voisins.length, (System.nanoTime() - debut) / 1_000_000);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void recalculerSilencieux() {
+        try {
+            recalculer();
+        } catch (RuntimeException e) {
+            logger.warn("Recalcul de l'index de similarité en échec : {}", e.getMessage());
+        }
+    }
+
+    private Map<Integer, Meta> chargerMetas() {
+        Map<Integer, Meta> metas = new HashMap<>();
+        String sql = "SELECT id_event, type, lieu, date_debut FROM evenement";
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Timestamp d = rs.getTimestamp("date_debut");
+                metas.put(rs.getInt("id_event"), new Meta(rs.getString("type"), rs.getString("lieu"),
+                        d != null ? d.toLocalDateTime().toLocalDate() : null));
+            }
+        } catch (SQLException e) {
+            logger.error("Erreur chargement des métadonnées d'événements", e);
+        }
+        return metas;
+    }
+
+    // ---------------------------------------------------------------- calcul
+
+    static Table calculer(InteractionMatrix matrice, Map<Integer, Meta> metas) {
+        TreeSet<Integer> tous = new TreeSet<>(metas.keySet());
+        Map<String, List<Integer>> parType = new HashMap<>();
+        metas.forEach((id, m) -> {
+            if (m.type != null)
+                parType.computeIfAbsent(m.type, k -> new ArrayList<>()).add(id);
+        });
+
+        int[] evenements = tous.stream().mapToInt(Integer::intValue).toArray();
+        int[] debuts = new int[evenements.length + 1];
+        int[] voisins = new int[evenements.length * K];
+        float[] scores = new float[evenements.length * K];
+        int pos = 0;
+
+        for (int i = 0; i < evenements.length; i++) {
+            int e = evenements[i];
+            debuts[i] = pos;
+            Map<Integer, Integer> co = coParticipations(matrice, e);
+            Meta me = metas.get(e);
+            if (me != null && me.type != null)
+                for (Integer f : parType.get(me.type))
+                    co.putIfAbsent(f, 0);
+            co.remove(e);
+
+            double popE = matrice.popularite(e);
+            PriorityQueue<Similaire> top = new PriorityQueue<>(K + 1, Comparator.comparingDouble(Similaire::score));
+            for (Map.Entry<Integer, Integer> c : co.entrySet()) {
+                int f = c.getKey();
+                double popF = matrice.popularite(f);
+                double sCo = c.getValue() == 0 || popE == 0 || popF == 0 ? 0 : c.getValue() / Math.sqrt(popE * popF);
+                double s = POIDS_CO * sCo + POIDS_META * meta(me, metas.get(f));
+                if (s <= 0)
+                    continue;
+                top.add(new Similaire(f, (float) s));
+                if (top.size() > K)
+                    top.poll();
+            }
+            List<Similaire> tries = new ArrayList<>(top);
+            tries.sort(Comparator.comparingDouble(Similaire::score).reversed().thenComparingLong(Similaire::evenementId));
+            for (Similaire s : tries) {
+                voisins[pos] = (int) s.evenementId();
+                scores[pos] = s.score();
+                pos++;
+            }
+        }
+        debuts[evenements.length] = pos;
+        return new Table(System.currentTimeMillis(), evenements, debuts,
+                Arrays.copyOf(voisins, pos), Arrays.copyOf(scores, pos));
+    }
+
+    /** Nombre d'utilisateurs communs entre {@code e} et chaque autre événement. */
+    private static Map<Integer, Integer> coParticipations(InteractionMatrix matrice, int e) {
+        int[] participants = matrice.participantsDe(e);
+        int total = 0;
+        int[][] lignes = new int[participants.length][];
+        for (int i = 0; i < participants.length; i++) {
+            lignes[i] = matrice.evenementsDe(participants[i]);
+            total += lignes[i].length;
+        }
+        int[] tous = new int[total];
+        int pos = 0;
+        for (int[] l : lignes) {
+            System.arraycopy(l, 0, tous, pos, l.length);
+            pos += l.length;
+        }
+        Arrays.sort(tous);
+        Map<Integer, Integer> co = new HashMap<>();
+        for (int i = 0; i < tous.length; ) {
+            int j = i;
+            while (j < tous.length && tous[j] == tous[i])
+                j++;
+            co.put(tous[i], j - i);
+            i = j;
+        }
+        return co;
+    }
+
+    private static double meta(Meta a, Meta b) {
+        if (a == null || b == null)
+            return 0.0;
+        double s = 0.0;
+        if (a.type != null && a.type.equals(b.type))
+            s += 0.5;
+        if (a.lieu != null && a.lieu.equalsIgnoreCase(b.lieu))
+            s += 0.3;
+        if (a.debut != null && b.debut != null)
+            s += 0.2 / (1.0 + Math.abs(ChronoUnit.DAYS.between(a.debut, b.debut)) / 30.0);
+        return s;
+    }
+
+    // --------------------------------------------------------------- disque
+
+    static void ecrire(Path fichier, Table t) throws IOException {
+        Path parent = fichier.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        Path tmp = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(t.genereLe);
+            out.writeInt(t.evenements.length);
+            out.writeInt(t.voisins.length);
+            for (int v : t.evenements) out.writeInt(v);
+            for (int v : t.debuts) out.writeInt(v);
+            for (int v : t.voisins) out.writeInt(v);
+            for (float v : t.scores) out.writeFloat(v);
+        }
+        try {
+            Files.move(tmp, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, fichier, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static Table lire(Path fichier) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(fichier)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("format inconnu");
+            long genereLe = in.readLong();
+            int n = in.readInt();
+            int paires = in.readInt();
+            if (n < 0 || paires < 0 || paires > (long) n * K)
+                throw new IOException("en-tête incohérent");
+            int[] evenements = new int[n];
+            int[] debuts = new int[n + 1];
+            int[] voisins = new int[paires];
+            float[] scores = new float[paires];
+            for (int i = 0; i < n; i++) evenements[i] = in.readInt();
+            for (int i = 0; i <= n; i++) debuts[i] = in.readInt();
+            for (int i = 0; i < paires; i++) voisins[i] = in.readInt();
+            for (int i = 0; i < paires; i++) scores[i] = in.readFloat();
+            return new Table(genereLe, evenements, debuts, voisins, scores);
+        }
+    }
+
+    // ---------------------------------------------------------------- types
+
+    static final class Table {
+        final long genereLe;
+        final int[] evenements;
+        final int[] debuts;
+        final int[] voisins;
+        final float[] scores;
+
+        Table(long genereLe, int[] evenements, int[] debuts, int[] voisins, float[] scores) {
+            this.genereLe = genereLe;
+            this.evenements = evenements;
+            this.debuts = debuts;
+            this.voisins = voisins;
+            this.scores = scores;
+        }
+    }
+
+    record Meta(String type, String lieu, LocalDate debut) {
+    }
+
+    /**
+     * Événement similaire et son score de similarité (0..1).
+     */
+    public record Similaire(long evenementId, float score) {
+    }
+}
@@ -0,0 +1,482 @@
+package com.gestion.services;
+
+import com.gestion.entities.ProfilAlimentaire;
+import com.gestion.entities.ProfilAlimentaire.Regime;
+import com.gestion.tools.MyConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prévision de production cuisine par événement : couverts par jour, portions
+ * par plat et par allergène, participants par régime et par allergène exclu.
+ * <p>
+ * Pour un événement, quatre requêtes groupées chargent les participations
+ * confirmées, les restrictions de chaque participant
+ * ({@code participant_restauration}), ses choix de plats par jour
+ * ({@code composition_menu}) et la fiche des plats choisis. L'agrégation se
+ * fait en mémoire, en parallèle sur les convives. Une participation, un besoin
+ * ou un choix modifié ne recharge que ce participant, et l'agrégat est refait
+ * à la demande suivante ; l'état complet est relu au-delà de
+ * {@code lamma.restauration.prevision.ttlMs}.
+ */
+public final class KitchenDemandForecast {
+
+    private static final Logger logger = LoggerFactory.getLogger(KitchenDemandForecast.class);
+
+    private static final long TTL_MS = Long.getLong("lamma.restauration.prevision.ttlMs", 15 * 60_000L);
+    /** Borne du nombre de jours d'un événement, contre une date de fin aberrante. */
+    private static final int JOURS_MAX = 60;
+
+    private static final String SQL_EVENEMENT = "SELECT date_debut, date_fin FROM evenement WHERE id_event = ?";
+    private static final String SQL_CONFIRMES =
+            "SELECT user_id FROM participations WHERE evenement_id = ? AND statut = 'CONFIRME'";
+    private static final String SQL_CONFIRME =
+            "SELECT 1 FROM participations WHERE evenement_id = ? AND user_id = ? AND statut = 'CONFIRME'";
+    private static final String SQL_RESTRICTIONS = """
+            SELECT participant_id,
+                   GROUP_CONCAT(restriction_libelle SEPARATOR ','),
+                   GROUP_CONCAT(restriction_description SEPARATOR ',')
+            FROM participant_restauration
+            WHERE evenement_id = ? AND annule = FALSE %s
+            GROUP BY participant_id
+            """;
+    private static final String SQL_CHOIX = """
+            SELECT participant_id, date, repas_id, COUNT(*)
+            FROM composition_menu
+            WHERE evenement_id = ? AND actif = TRUE AND date IS NOT NULL AND participant_id IS NOT NULL %s
+            GROUP BY participant_id, date, repas_id
+            """;
+    /** Plats et codes de leurs allergènes ({@code repas_allergene}). */
+    private static final String SQL_PLATS = """
+            SELECT r.id, r.nom, r.type_repas, GROUP_CONCAT(a.code SEPARATOR ',')
+            FROM repas_detaille r LEFT JOIN repas_allergene a ON a.repas_id = r.id
+            WHERE %s
+            GROUP BY r.id, r.nom, r.type_repas
+            """;
+    private static final String SQL_PLATS_EVENEMENT = SQL_PLATS.formatted(
+            "r.id IN (SELECT repas_id FROM composition_menu WHERE evenement_id = ? AND actif = TRUE)");
+    private static final String SQL_PLAT = SQL_PLATS.formatted("r.id = ?");
+
+    private static volatile KitchenDemandForecast instance;
+
+    private final MyConnection dbConnection;
+    private final Map<Long, Etat> etats = new ConcurrentHashMap<>();
+
+    private KitchenDemandForecast(MyConnection dbConnection) {
+        this.dbConnection = dbConnection;
+    }
+
+    public static KitchenDemandForecast getInstance() {
+        if (instance == null) {
+            synchronized (KitchenDemandForecast.class) {
+                if (instance == null)
+                    instance = new KitchenDemandForecast(MyConnection.getInstance());
+            }
+        }
+        return instance;
+    }
+
+    /** Instance déjà créée, ou null : pour les hooks d'écriture qui n'ont rien à mettre à jour sinon. */
+    static KitchenDemandForecast siChargee() {
+        return instance;
+    }
+
+    /** Au moins un événement est en mémoire : les écritures doivent être reportées. */
+    boolean suitDesEvenements() {
+        return !etats.isEmpty();
+    }
+
+    /**
+     * Prévision de l'événement ; vide s'il n'existe pas ou si la base est
+     * indisponible.
+     */
+    public Optional<Prevision> prevision(Long evenementId) {
+        if (evenementId == null)
+            return Optional.empty();
+        Etat e = etat(evenementId);
+        if (e == null)
+            return Optional.empty();
+        long version = e.version.get();
+        Agregat a = e.agregat;
+        if (a != null && a.version() == version)
+            return Optional.of(a.prevision());
+        Prevision p = agreger(e);
+        // Un agrégat calculé pendant une modification porte l'ancienne version
+        // et ne sera jamais servi, même publié après la modification.
+        if (e.version.get() == version)
+            e.agregat = new Agregat(version, p);
+        return Optional.of(p);
+    }
+
+    /**
+     * Restrictions déclarées par le participant pour l'événement (tous ses
+     * besoins non annulés réunis).
+     */
+    public ProfilAlimentaire profil(Long participantId, Long evenementId) {
+        Etat e = evenementId != null ? etats.get(evenementId) : null;
+        Convive c = e != null ? e.convives.get(participantId) : null;
+        if (c != null)
+            return c.profil;
+        try (Connection conn = dbConnection.getConnection()) {
+            return lireProfils(conn, evenementId, participantId).getOrDefault(participantId, ProfilAlimentaire.AUCUN);
+        } catch (SQLException ex) {
+            logger.warn("Restrictions du participant {} non lues : {}", participantId, ex.getMessage());
+            return ProfilAlimentaire.AUCUN;
+        }
+    }
+
+    /** Une participation a été créée, modifiée ou supprimée. */
+    public void participationModifiee(Long userId, Long evenementId, boolean confirmee) {
+        Etat e = evenementId != null ? etats.get(evenementId) : null;
+        if (e == null || userId == null)
+            return;
+        if (confirmee)
+            recharger(e, userId);
+        else if (e.convives.remove(userId) != null)
+            e.modifie();
+    }
+
+    /** Les besoins ou les choix de plats d'un participant ont changé. */
+    public void participantModifie(Long participantId, Long evenementId) {
+        Etat e = evenementId != null ? etats.get(evenementId) : null;
+        if (e != null && participantId != null && e.convives.containsKey(participantId))
+            recharger(e, participantId);
+    }
+
+    public void invalider(Long evenementId) {
+        if (evenementId != null)
+            etats.remove(evenementId);
+    }
+
+    public void invaliderTout() {
+        etats.clear();
+    }
+
+    // ================= CHARGEMENT =================
+
+    private Etat etat(long evenementId) {
+        Etat e = etats.get(evenementId);
+        if (e != null && System.currentTimeMillis() - e.chargeLe < TTL_MS)
+            return e;
+        synchronized (this) {
+            e = etats.get(evenementId);
+            if (e != null && System.currentTimeMillis() - e.chargeLe < TTL_MS)
+                return e;
+            e = charger(evenementId);
+            if (e != null)
+                etats.put(evenementId, e);
+            else
+                etats.remove(evenementId);
+            return e;
+        }
+    }
+
+    private Etat charger(long evenementId) {
+        long debut = System.currentTimeMillis();
+        try (Connection conn = dbConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("Aucune connexion disponible");
+            List<LocalDate> jours = jours(conn, evenementId);
+            if (jours == null)
+                return null;
+            Etat e = new Etat(evenementId, jours);
+
+            Set<Long> confirmes = new HashSet<>();
+            try (PreparedStatement ps = conn.prepareStatement(SQL_CONFIRMES)) {
+                ps.setLong(1, evenementId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next())
+                        confirmes.add(rs.getLong(1));
+                }
+            }
+            Map<Long, ProfilAlimentaire> profils = lireProfils(conn, evenementId, null);
+            Map<Long, Map<LocalDate, Map<Long, Integer>>> choix = lireChoix(conn, evenementId, null);
+            try (PreparedStatement ps = conn.prepareStatement(SQL_PLATS_EVENEMENT)) {
+                ps.setLong(1, evenementId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next())
+                        e.plats.put(rs.getLong(1), plat(rs));
+                }
+            }
+            for (Long id : confirmes) {
+                e.convives.put(id, new Convive(profils.getOrDefault(id, ProfilAlimentaire.AUCUN),
+                        choix.getOrDefault(id, Map.of())));
+            }
+            logger.info("Prévision cuisine de l'événement {} chargée : {} convives sur {} jour(s) en {} ms",
+                    evenementId, confirmes.size(), jours.size(), System.currentTimeMillis() - debut);
+            return e;
+        } catch (SQLException ex) {
+            logger.error("Chargement de la prévision cuisine de l'événement {} impossible : {}", evenementId, ex.getMessage());
+            return null;
+        }
+    }
+
+    /** Recharge un seul participant : confirmation, restrictions, choix et plats inconnus. */
+    private void recharger(Etat e, long participantId) {
+        long evenementId = e.evenementId();
+        try (Connection conn = dbConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("Aucune connexion disponible");
+            boolean confirme;
+            try (PreparedStatement ps = conn.prepareStatement(SQL_CONFIRME)) {
+                ps.setLong(1, evenementId);
+                ps.setLong(2, participantId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    confirme = rs.next();
+                }
+            }
+            if (!confirme) {
+                e.convives.remove(participantId);
+            } else {
+                ProfilAlimentaire profil = lireProfils(conn, evenementId, participantId)
+                        .getOrDefault(participantId, ProfilAlimentaire.AUCUN);
+                Map<LocalDate, Map<Long, Integer>> choix = lireChoix(conn, evenementId, participantId)
+                        .getOrDefault(participantId, Map.of());
+                for (Map<Long, Integer> plats : choix.values()) {
+                    for (Long repasId : plats.keySet()) {
+                        if (!e.plats.containsKey(repasId))
+                            lirePlat(conn, repasId).ifPresent(p -> e.plats.put(repasId, p));
+                    }
+                }
+                e.convives.put(participantId, new Convive(profil, choix));
+            }
+            e.modifie();
+        } catch (SQLException ex) {
+            // L'état n'est plus fiable : il sera relu entièrement à la prochaine demande
+            etats.remove(evenementId);
+            logger.warn("Mise à jour de la prévision cuisine de l'événement {} impossible : {}", evenementId, ex.getMessage());
+        }
+    }
+
+    /** Jours de l'événement, ou null s'il n'existe pas. */
+    private static List<LocalDate> jours(Connection conn, long evenementId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_EVENEMENT)) {
+            ps.setLong(1, evenementId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next())
+                    return null;
+                LocalDate debut = rs.getTimestamp(1).toLocalDateTime().toLocalDate();
+                Timestamp f = rs.getTimestamp(2);
+                LocalDate fin = f != null ? f.toLocalDateTime().toLocalDate() : debut;
+                List<LocalDate> jours = new ArrayList<>();
+                for (LocalDate d = debut; !d.isAfter(fin) && jours.size() < JOURS_MAX; d = d.plusDays(1))
+                    jours.add(d);
+                return jours;
+            }
+        }
+    }
+
+    private static Map<Long, ProfilAlimentaire> lireProfils(Connection conn, Long evenementId, Long participantId)
+            throws SQLException {
+        Map<Long, ProfilAlimentaire> profils = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                SQL_RESTRICTIONS.formatted(participantId != null ? "AND participant_id = ?" : ""))) {
+            ps.setObject(1, evenementId);
+            if (participantId != null)
+                ps.setLong(2, participantId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    profils.put(rs.getLong(1), ProfilAlimentaire.lire(rs.getString(2), rs.getString(3)));
+            }
+        }
+        return profils;
+    }
+
+    private static Map<Long, Map<LocalDate, Map<Long, Integer>>> lireChoix(Connection conn, long evenementId,
+            Long participantId) throws SQLException {
+        Map<Long, Map<LocalDate, Map<Long, Integer>>> choix = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                SQL_CHOIX.formatted(participantId != null ? "AND participant_id = ?" : ""))) {
+            ps.setLong(1, evenementId);
+            if (participantId != null)
+                ps.setLong(2, participantId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    choix.computeIfAbsent(rs.getLong(1), k -> new HashMap<>())
+                            .computeIfAbsent(rs.getDate(2).toLocalDate(), k -> new HashMap<>())
+                            .merge(rs.getLong(3), rs.getInt(4), Integer::sum);
+                }
+            }
+        }
+        return choix;
+    }
+
+    private static Optional<Plat> lirePlat(Connection conn, long repasId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_PLAT)) {
+            ps.setLong(1, repasId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Optional.of(plat(rs)) : Optional.empty();
+            }
+        }
+    }
+
+    private static Plat plat(ResultSet rs) throws SQLException {
+        String codes = rs.getString(4);
+        Set<String> allergenes = codes == null || codes.isEmpty() ? Set.of() : Set.of(codes.split(","));
+        return new Plat(rs.getLong(1), rs.getString(2), rs.getString(3), allergenes);
+    }
+
+    // ================= AGRÉGATION =================
+
+    private static Prevision agreger(Etat e) {
+        Cumul c = e.convives.values().parallelStream()
+                .collect(() -> new Cumul(e.jours), Cumul::ajouter, Cumul::fusionner);
+
+        List<Journee> journees = new ArrayList<>(e.jours.size());
+        for (LocalDate jour : e.jours) {
+            Map<Long, Integer> portions = c.portions.get(jour);
+            List<PortionPlat> plats = new ArrayList<>(portions.size());
+            Map<String, Integer> parAllergene = new TreeMap<>();
+            portions.forEach((repasId, n) -> {
+                Plat p = e.plats.get(repasId);
+                plats.add(new PortionPlat(repasId, p != null ? p.nom : "Plat #" + repasId,
+                        p != null ? p.typeRepas : null, n));
+                if (p != null)
+                    p.allergenes.forEach(a -> parAllergene.merge(a, n, Integer::sum));
+            });
+            plats.sort((a, b) -> Integer.compare(b.portions(), a.portions()));
+            journees.add(new Journee(jour, c.couverts, c.sansChoix.getOrDefault(jour, 0),
+                    Collections.unmodifiableList(plats), Collections.unmodifiableMap(parAllergene)));
+        }
+        return new Prevision(e.evenementId(), c.couverts, Collections.unmodifiableMap(c.regimes),
+                Collections.unmodifiableMap(new TreeMap<>(c.exclusions)), Collections.unmodifiableList(journees),
+                System.currentTimeMillis());
+    }
+
+    /** Accumulateur d'un fil de l'agrégation parallèle. */
+    private static final class Cumul {
+        final List<LocalDate> jours;
+        int couverts;
+        final Map<Regime, Integer> regimes = new EnumMap<>(Regime.class);
+        final Map<String, Integer> exclusions = new HashMap<>();
+        final Map<LocalDate, Map<Long, Integer>> portions = new HashMap<>();
+        final Map<LocalDate, Integer> sansChoix = new HashMap<>();
+
+        Cumul(List<LocalDate> jours) {
+            this.jours = jours;
+            for (LocalDate j : jours)
+                portions.put(j, new HashMap<>());
+        }
+
+        void ajouter(Convive c) {
+            couverts++;
+            for (Regime r : c.profil.getRegimes())
+                regimes.merge(r, 1, Integer::sum);
+            for (String a : c.profil.getAllergenes())
+                exclusions.merge(a, 1, Integer::sum);
+            for (LocalDate j : jours) {
+                Map<Long, Integer> choix = c.choix.get(j);
+                if (choix == null || choix.isEmpty()) {
+                    sansChoix.merge(j, 1, Integer::sum);
+                } else {
+                    Map<Long, Integer> p = portions.get(j);
+                    choix.forEach((repasId, n) -> p.merge(repasId, n, Integer::sum));
+                }
+            }
+        }
+
+        void fusionner(Cumul autre) {
+            couverts += autre.couverts;
+            autre.regimes.forEach((r, n) -> regimes.merge(r, n, Integer::sum));
+            autre.exclusions.forEach((a, n) -> exclusions.merge(a, n, Integer::sum));
+            autre.sansChoix.forEach((j, n) -> sansChoix.merge(j, n, Integer::sum));
+            autre.portions.forEach((j, p) -> {
+                Map<Long, Integer> cible = portions.get(j);
+                p.forEach((repasId, n) -> cible.merge(repasId, n, Integer::sum));
+            });
+        }
+    }
+
+    private record Plat(long id, String nom, String typeRepas, Set<String> allergenes) {
+    }
+
+    /** Restrictions et choix (jour → plat → portions) d'un participant confirmé. */
+    private record Convive(ProfilAlimentaire profil, Map<LocalDate, Map<Long, Integer>> choix) {
+    }
+
+    private static final class Etat {
+        final List<LocalDate> jours;
+        final Map<Long, Convive> convives = new ConcurrentHashMap<>();
+        final Map<Long, Plat> plats = new ConcurrentHashMap<>();
+        final long chargeLe = System.currentTimeMillis();
+        /** Incrémentée après chaque modification des convives. */
+        final AtomicLong version = new AtomicLong();
+        /** Dernier agrégat publié ; valable tant que sa version est la version courante. */
+        volatile Agregat agregat;
+        private final long evenementId;
+
+        Etat(long evenementId, List<LocalDate> jours) {
+            this.evenementId = evenementId;
+            this.jours = jours;
+        }
+
+        long evenementId() {
+            return evenementId;
+        }
+
+        void modifie() {
+            version.incrementAndGet();
+        }
+    }
+
+    private record Agregat(long version, Prevision prevision) {
+    }
+
+    // ================= RÉSULTAT =================
+
+    public record PortionPlat(long repasId, String nom, String typeRepas, int portions) {
+    }
+
+    /**
+     * Production d'une journée : couverts attendus, convives sans choix de
+     * plat, portions par plat (décroissantes) et par allergène contenu.
+     */
+    public record Journee(LocalDate date, int couverts, int sansChoix, List<PortionPlat> plats,
+            Map<String, Integer> portionsParAllergene) {
+
+        public int portions(long repasId) {
+            for (PortionPlat p : plats) {
+                if (p.repasId() == repasId)
+                    return p.portions();
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Prévision d'un événement : couverts par jour, convives par régime exigé
+     * et par allergène exclu, et production jour par jour.
+     */
+    public record Prevision(long evenementId, int couverts, Map<Regime, Integer> regimes,
+            Map<String, Integer> exclusions, List<Journee> journees, long calculeLe) {
+
+        public Optional<Journee> journee(LocalDate date) {
+            return journees.stream().filter(j -> j.date().equals(date)).findFirst();
+        }
+
+        /** Résumé d'une ligne pour l'affichage. */
+        public String resume() {
+            return String.format("%d couverts/jour sur %d jour(s) – régimes %s – allergènes exclus %s",
+                    couverts, journees.size(), regimes, exclusions);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.gestion.services;
+
+import com.gestion.entities.BilanRejeu;
+import com.gestion.entities.ScanHorsLigne;
+import com.gestion.entities.Ticket;
+import com.gestion.interfaces.TicketService;
+import com.gestion.tools.TicketSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Scanner de porte utilisable sans accès à MySQL.
+ * <p>
+ * Les codes sont vérifiés contre un {@link TicketSnapshot} projeté en mémoire
+ * (exporté au préalable par {@link TicketService#exporterSnapshotHorsLigne}).
+ * Chaque passage accepté est d'abord écrit et synchronisé dans un journal local
+ * en ajout seul, puis seulement confirmé : après un arrêt brutal, la relecture
+ * du journal reconstruit l'ensemble des tickets déjà passés.
+ * <p>
+ * Quand la base redevient joignable, {@link #synchroniser(TicketService)}
+ * reporte le journal par lots. Le report est conditionnel en base, ce qui
+ * détecte un même ticket passé sur deux scanners différents. La position déjà
+ * reportée est conservée dans un fichier {@code <journal>.sync}.
+ * <p>
+ * Format d'une ligne du journal : {@code ticketId;codeUnique;epochMs;scannerId}.
+ */
+public class OfflineGateScanner implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfflineGateScanner.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final TicketSnapshot snapshot;
+    private final Path journal;
+    private final Path syncFile;
+    private final String scannerId;
+    private final FileChannel journalChannel;
+    /** Tickets déjà passés sur ce scanner (relus depuis le journal au démarrage). */
+    private final Set<Long> utilises = new HashSet<>();
+
+    public OfflineGateScanner(Path snapshotFile, Path journal, String scannerId) throws IOException {
+        if (scannerId == null || scannerId.isBlank() || scannerId.contains(";"))
+            throw new IllegalArgumentException("Identifiant de scanner invalide : " + scannerId);
+        this.snapshot = TicketSnapshot.open(snapshotFile);
+        this.journal = journal;
+        this.syncFile = journal.resolveSibling(journal.getFileName() + ".sync");
+        this.scannerId = scannerId;
+        try {
+            long fin;
+            try (Lecteur lecteur = new Lecteur(0)) {
+                List<ScanHorsLigne> lot;
+                while (!(lot = lecteur.lire(BATCH_SIZE)).isEmpty()) {
+                    for (ScanHorsLigne scan : lot)
+                        utilises.add(scan.getTicketId());
+                }
+                fin = lecteur.position();
+            }
+            this.journalChannel = FileChannel.open(journal, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            // Ligne incomplète laissée par un arrêt pendant l'écriture : jamais confirmée
+            if (journalChannel.size() > fin)
+                journalChannel.truncate(fin);
+        } catch (IOException | RuntimeException e) {
+            snapshot.close();
+            throw e;
+        }
+        logger.info("Scanner {} hors ligne : {} tickets dans l'instantané, {} déjà passés",
+                scannerId, snapshot.getCount(), utilises.size());
+    }
+
+    /**
+     * Contrôle un code contre l'instantané et journalise le passage s'il est
+     * accepté. Un ticket annulé après l'export n'est pas connu hors ligne.
+     */
+    public synchronized Ticket.ResultatScan scanner(String codeUnique) throws IOException {
+        if (codeUnique == null || codeUnique.isBlank())
+            return Ticket.ResultatScan.INCONNU;
+        String code = codeUnique.trim();
+        TicketSnapshot.Entree entree = snapshot.find(code);
+        if (entree == null)
+            return Ticket.ResultatScan.INCONNU;
+        if (utilises.contains(entree.ticketId()))
+            return Ticket.ResultatScan.DEJA_UTILISE;
+        long now = System.currentTimeMillis();
+        if (entree.expiration() <= now)
+            return Ticket.ResultatScan.EXPIRE;
+
+        String ligne = entree.ticketId() + ";" + code + ";" + now + ";" + scannerId + "\n";
+        ByteBuffer bytes = ByteBuffer.wrap(ligne.getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining())
+            journalChannel.write(bytes);
+        journalChannel.force(false);
+        utilises.add(entree.ticketId());
+        return Ticket.ResultatScan.ACCEPTE;
+    }
+
+    /**
+     * Reporte en base les passages pas encore synchronisés, par lots de
+     * {@value #BATCH_SIZE}. S'arrête au premier lot en échec (base toujours
+     * injoignable) ; les lots précédents restent acquis.
+     */
+    public BilanRejeu synchroniser(TicketService ticketService) throws IOException {
+        BilanRejeu bilan = new BilanRejeu();
+        try (Lecteur lecteur = new Lecteur(lirePositionSync())) {
+            while (true) {
+                List<ScanHorsLigne> lot = lecteur.lire(BATCH_SIZE);
+                if (lot.isEmpty())
+                    break;
+                BilanRejeu partiel;
+                try {
+                    partiel = ticketService.rejouerScans(lot);
+                } catch (RuntimeException e) {
+                    logger.warn("Synchronisation du scanner {} interrompue : {}", scannerId, e.getMessage());
+                    break;
+                }
+                for (int i = 0; i < partiel.getAppliques(); i++)
+                    bilan.ajouterApplique();
+                bilan.getDoublons().addAll(partiel.getDoublons());
+                ecrirePositionSync(lecteur.position());
+            }
+        }
+        if (!bilan.getDoublons().isEmpty())
+            logger.warn("Scanner {} : {} passage(s) déjà enregistré(s) ailleurs : {}",
+                    scannerId, bilan.getDoublons().size(), bilan.getDoublons());
+        return bilan;
+    }
+
+    public TicketSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            journalChannel.close();
+        } finally {
+            snapshot.close();
+        }
+    }
+
+    /**
+     * Lecture séquentielle du journal à partir d'un octet donné : chaque lot
+     * reprend là où le précédent s'est arrêté, le fichier n'est parcouru
+     * qu'une fois. Une ligne sans fin de ligne (écriture interrompue) n'est
+     * jamais rendue.
+     */
+    private final class Lecteur implements Closeable {
+        private final InputStream in;
+        private final ByteArrayOutputStream ligne = new ByteArrayOutputStream(64);
+        /** Octet qui suit la dernière ligne complète rendue. */
+        private long position;
+
+        Lecteur(long debut) throws IOException {
+            this.position = debut;
+            if (!Files.exists(journal)) {
+                this.in = InputStream.nullInputStream();
+                return;
+            }
+            FileChannel ch = FileChannel.open(journal, StandardOpenOption.READ);
+            ch.position(debut);
+            this.in = new BufferedInputStream(Channels.newInputStream(ch), 64 * 1024);
+        }
+
+        long position() {
+            return position;
+        }
+
+        /** Au plus {@code max} lignes complètes suivantes ; vide en fin de journal. */
+        List<ScanHorsLigne> lire(int max) throws IOException {
+            List<ScanHorsLigne> scans = new ArrayList<>();
+            int b;
+            while (scans.size() < max && (b = in.read()) != -1) {
+                if (b != '\n') {
+                    ligne.write(b);
+                    continue;
+                }
+                position += ligne.size() + 1;
+                String texte = ligne.toString(StandardCharsets.UTF_8);
+                ligne.reset();
+                ScanHorsLigne scan = analyser(texte);
+                if (scan != null)
+                    scans.add(scan);
+            }
+            return scans;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static ScanHorsLigne analyser(String ligne) {
+        String[] champs = ligne.split(";", 4);
+        try {
+            LocalDateTime scanneLe = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(Long.parseLong(champs[2])), ZoneId.systemDefault());
+            return new ScanHorsLigne(Long.parseLong(champs[0]), champs[1], scanneLe, champs[3]);
+        } catch (RuntimeException e) {
+            logger.warn("Ligne de journal ignorée : {}", ligne);
+            return null;
+        }
+    }
+
+    private long lirePositionSync() throws IOException {
+        if (!Files.exists(syncFile))
+            return 0;
+        String s = Files.readString(syncFile).trim();
+        return s.isEmpty() ? 0 : Long.parseLong(s);
+    }
+
+    private void ecrirePositionSync(long position) throws IOException {
+        Path tmp = syncFile.resolveSibling(syncFile.getFileName() + ".tmp");
+        Files.writeString(tmp, Long.toString(position));
+        Files.move(tmp, syncFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -1,6 +1,8 @@
 package com.gestion.services;
 
 import com.gestion.criteria.ParticipationCriteria;
+import com.gestion.criteria.ParticipationQueryBuilder;
+import com.gestion.criteria.SqlQuery;
 import com.gestion.entities.Abonnement;
 import com.gestion.entities.Participation;
 import com.gestion.interfaces.AbonnementService;
@@ -141,6 +143,7 @@ public class ParticipationServiceImpl implements ParticipationService {
                 if (keys.next())
                     p.setId(keys.getLong(1));
             }
+            apresEcriture(p);
             return p;
         } catch (SQLException e) {
             logger.error("Erreur create participation", e);
@@ -211,23 +214,75 @@ public class ParticipationServiceImpl implements ParticipationService {
         return list;
     }
 
+    /**
+     * Exécute {@code SELECT * FROM participations WHERE <where>} avec les
+     * paramètres liés par {@code setter}, dans l'ordre de {@link #findAll()}.
+     * Le filtre est évalué par MySQL sur les index de la table.
+     */
+    private List<Participation> query(String where, SQLConsumer<PreparedStatement> setter) {
+        List<Participation> list = new ArrayList<>();
+        String sql = "SELECT * FROM participations WHERE " + where + " ORDER BY date_inscription DESC";
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (setter != null)
+                setter.accept(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    list.add(map(rs));
+            }
+        } catch (SQLException e) {
+            logger.error("Error query participations: {}", where, e);
+        }
+        return list;
+    }
+
+    /**
+     * {@code SELECT COUNT(*) FROM participations WHERE <where>}.
+     */
+    private long count(String where, SQLConsumer<PreparedStatement> setter) {
+        String sql = "SELECT COUNT(*) FROM participations WHERE " + where;
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (setter != null)
+                setter.accept(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next())
+                    return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Error count participations: {}", where, e);
+        }
+        return 0;
+    }
+
     @Override
     public List<Participation> findByUserId(Long userId) {
-        return findAll().stream().filter(p -> p.getUserId().equals(userId)).toList();
+        return query("user_id = ?", ps -> ps.setLong(1, userId));
     }
 
     @Override
     public List<Participation> findByEvenementId(Long evenementId) {
-        return findAll().stream().filter(p -> p.getEvenementId().equals(evenementId)).toList();
+        return query("evenement_id = ?", ps -> ps.setLong(1, evenementId));
     }
 
     @Override
     public boolean delete(Long id) {
         String sql = "DELETE FROM participations WHERE id = ?";
+        // La ligne n'est relue que si un état en mémoire doit être mis à jour
+        Optional<Participation> avant = ecouteursActifs() ? findById(id) : Optional.empty();
         try (Connection conn = dbConnection.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, id);
-            return ps.executeUpdate() > 0;
+            boolean supprime = ps.executeUpdate() > 0;
+            if (supprime && avant.isPresent()) {
+                Participation p = avant.get();
+                p.setStatut(Participation.StatutParticipation.ANNULE);
+                apresEcriture(p);
+            } else if (supprime) {
+                // Cache vide : seul un chargement en cours peut encore publier l'ancienne ligne
+                RecommandationCache.invalidateAll();
+            }
+            return supprime;
         } catch (SQLException e) {
             logger.error("Error delete", e);
             return false;
@@ -256,6 +311,7 @@ public class ParticipationServiceImpl implements ParticipationService {
             ps.setString(13, p.getBesoinsSpeciaux());
             ps.setLong(14, p.getId());
             ps.executeUpdate();
+            apresEcriture(p);
             return p;
         } catch (SQLException e) {
             logger.error("Error update", e);
@@ -280,9 +336,24 @@ public class ParticipationServiceImpl implements ParticipationService {
 
     // Autres méthodes de l'interface non détaillées ici par souci de brièveté mais
     // nécessaires
+    /**
+     * Une colonne ou un sens de tri inconnu retombe sur le tri par défaut
+     * (date d'inscription décroissante) au lieu d'échouer.
+     */
     @Override
     public List<Participation> findAll(String sortBy, String sortOrder) {
-        return findAll();
+        ParticipationCriteria criteria = new ParticipationCriteria();
+        try {
+            criteria.setSortBy(sortBy);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Tri inconnu '{}' : tri par date d'inscription", sortBy);
+        }
+        try {
+            criteria.setSortOrder(sortOrder);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Sens de tri inconnu '{}' : ordre par défaut", sortOrder);
+        }
+        return search(criteria);
     }
 
     @Override
@@ -292,34 +363,65 @@ public class ParticipationServiceImpl implements ParticipationService {
 
     @Override
     public List<Participation> search(ParticipationCriteria criteria) {
-        return findAll().stream()
-                .filter(p -> (criteria.getUserId() == null || p.getUserId().equals(criteria.getUserId()))).toList();
+        if (criteria == null)
+            return findAll();
+        SqlQuery q = ParticipationQueryBuilder.select(criteria);
+        List<Participation> list = new ArrayList<>();
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(q.getSql())) {
+            q.bind(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    list.add(map(rs));
+            }
+        } catch (SQLException e) {
+            logger.error("Error search participations: {}", criteria, e);
+        }
+        return list;
+    }
+
+    @Override
+    public long count(ParticipationCriteria criteria) {
+        SqlQuery q = ParticipationQueryBuilder.count(criteria != null ? criteria : new ParticipationCriteria());
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(q.getSql())) {
+            q.bind(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next())
+                    return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Error count participations: {}", criteria, e);
+        }
+        return 0;
     }
 
     @Override
     public List<Participation> findByStatut(Participation.StatutParticipation statut) {
-        return findAll().stream().filter(p -> p.getStatut() == statut).toList();
+        return query("statut = ?", ps -> ps.setString(1, statut.name()));
     }
 
     @Override
     public List<Participation> findByType(Participation.TypeParticipation type) {
-        return findAll().stream().filter(p -> p.getType() == type).toList();
+        return query("type = ?", ps -> ps.setString(1, type.name()));
     }
 
     @Override
     public List<Participation> findByContexteSocial(Participation.ContexteSocial contexte) {
-        return findAll().stream().filter(p -> p.getContexteSocial() == contexte).toList();
+        return query("contexte_social = ?", ps -> ps.setString(1, contexte.name()));
     }
 
     @Override
     public List<Participation> findByDateInscriptionBetween(LocalDateTime debut, LocalDateTime fin) {
-        return findAll().stream()
-                .filter(p -> !p.getDateInscription().isBefore(debut) && !p.getDateInscription().isAfter(fin)).toList();
+        return query("date_inscription BETWEEN ? AND ?", ps -> {
+            ps.setTimestamp(1, Timestamp.valueOf(debut));
+            ps.setTimestamp(2, Timestamp.valueOf(fin));
+        });
     }
 
     @Override
     public List<Participation> findByHebergementNuitsMinimum(int nuitsMin) {
-        return findAll().stream().filter(p -> p.getHebergementNuits() >= nuitsMin).toList();
+        return query("hebergement_nuits >= ?", ps -> ps.setInt(1, nuitsMin));
     }
 
     @Override
@@ -334,8 +436,10 @@ public class ParticipationServiceImpl implements ParticipationService {
 
     @Override
     public List<Participation> findListeAttente(Long evenementId) {
-        return findByEvenementId(evenementId).stream()
-                .filter(p -> p.getStatut() == Participation.StatutParticipation.EN_LISTE_ATTENTE).toList();
+        return query("evenement_id = ? AND statut = ?", ps -> {
+            ps.setLong(1, evenementId);
+            ps.setString(2, Participation.StatutParticipation.EN_LISTE_ATTENTE.name());
+        });
     }
 
     @Override
@@ -380,13 +484,15 @@ public class ParticipationServiceImpl implements ParticipationService {
 
     @Override
     public int getNombreParticipantsConfirmes(Long evenementId) {
-        return (int) findByEvenementId(evenementId).stream()
-                .filter(p -> p.getStatut() == Participation.StatutParticipation.CONFIRME).count();
+        return (int) count("evenement_id = ? AND statut = ?", ps -> {
+            ps.setLong(1, evenementId);
+            ps.setString(2, Participation.StatutParticipation.CONFIRME.name());
+        });
     }
 
     @Override
     public List<Participation> findAvecHebergement() {
-        return findAll().stream().filter(p -> p.getHebergementNuits() > 0).toList();
+        return query("hebergement_nuits > 0", null);
     }
 
     @Override
@@ -412,18 +518,20 @@ public class ParticipationServiceImpl implements ParticipationService {
 
     @Override
     public List<Participation> findByBadge(String badge) {
-        return findAll().stream().filter(p -> badge.equals(p.getBadgeAssocie())).toList();
+        return query("badge_associe = ?", ps -> ps.setString(1, badge));
     }
 
     @Override
     public List<Participation> findParticipationsAvecBadge() {
-        return findAll().stream().filter(p -> p.getBadgeAssocie() != null && !p.getBadgeAssocie().isEmpty()).toList();
+        return query("badge_associe IS NOT NULL AND badge_associe <> ''", null);
     }
 
     @Override
     public int calculerPointsParticipation(Long userId) {
-        return (int) findByUserId(userId).stream()
-                .filter(p -> p.getStatut() == Participation.StatutParticipation.CONFIRME).count() * 10;
+        return (int) count("user_id = ? AND statut = ?", ps -> {
+            ps.setLong(1, userId);
+            ps.setString(2, Participation.StatutParticipation.CONFIRME.name());
+        }) * 10;
     }
 
     @Override
@@ -433,8 +541,10 @@ public class ParticipationServiceImpl implements ParticipationService {
 
     @Override
     public List<Participation> findParticipationsSimilaires(Long userId, Participation.ContexteSocial contexte) {
-        return findAll().stream().filter(p -> !p.getUserId().equals(userId) && p.getContexteSocial() == contexte)
-                .toList();
+        return query("contexte_social = ? AND user_id <> ?", ps -> {
+            ps.setString(1, contexte.name());
+            ps.setLong(2, userId);
+        });
     }
 
     @Override
@@ -444,17 +554,17 @@ public class ParticipationServiceImpl implements ParticipationService {
 
     @Override
     public long countByStatut(Participation.StatutParticipation statut) {
-        return findByStatut(statut).size();
+        return count("statut = ?", ps -> ps.setString(1, statut.name()));
     }
 
     @Override
     public long countByType(Participation.TypeParticipation type) {
-        return findByType(type).size();
+        return count("type = ?", ps -> ps.setString(1, type.name()));
     }
 
     @Override
     public long countByContexteSocial(Participation.ContexteSocial contexte) {
-        return findByContexteSocial(contexte).size();
+        return count("contexte_social = ?", ps -> ps.setString(1, contexte.name()));
     }
 
     @Override
@@ -464,20 +574,32 @@ public class ParticipationServiceImpl implements ParticipationService {
 
     @Override
     public double calculerTauxConfirmation(Long evenementId) {
-        List<Participation> all = findByEvenementId(evenementId);
-        if (all.isEmpty())
-            return 0.0;
-        return (double) all.stream().filter(p -> p.getStatut() == Participation.StatutParticipation.CONFIRME).count()
-                / all.size();
+        return tauxStatut(evenementId, Participation.StatutParticipation.CONFIRME);
     }
 
     @Override
     public double calculerTauxAnnulation(Long evenementId) {
-        List<Participation> all = findByEvenementId(evenementId);
-        if (all.isEmpty())
-            return 0.0;
-        return (double) all.stream().filter(p -> p.getStatut() == Participation.StatutParticipation.ANNULE).count()
-                / all.size();
+        return tauxStatut(evenementId, Participation.StatutParticipation.ANNULE);
+    }
+
+    /**
+     * Part des participations d'un événement ayant le statut donné, calculée en
+     * une seule requête sur idx_evenement_statut.
+     */
+    private double tauxStatut(Long evenementId, Participation.StatutParticipation statut) {
+        String sql = "SELECT COUNT(*), COALESCE(SUM(statut = ?), 0) FROM participations WHERE evenement_id = ?";
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, statut.name());
+            ps.setLong(2, evenementId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getLong(1) > 0)
+                    return (double) rs.getLong(2) / rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Error tauxStatut", e);
+        }
+        return 0.0;
     }
 
     @Override
@@ -512,7 +634,7 @@ public class ParticipationServiceImpl implements ParticipationService {
 
     @Override
     public List<Participation> findParticipationsAbonnementPremium() {
-        return findAll().stream().filter(p -> "PREMIUM".equals(p.getTypeAbonnementChoisi())).toList();
+        return query("type_abonnement = ?", ps -> ps.setString(1, "PREMIUM"));
     }
 
     @Override
@@ -554,4 +676,39 @@ public class ParticipationServiceImpl implements ParticipationService {
     public void envoyerRappelEvenement(Long id) {
         logger.info("Rappel événement pour ID {}", id);
     }
-}
\ No newline at end of file
+
+    /**
+     * Reporte une écriture de participation dans les états en mémoire : les
+     * recommandations de l'utilisateur en cache sont invalidées, la prévision
+     * cuisine de l'événement (si elle est créée) et la matrice d'interactions
+     * (si elle est chargée) sont mises à jour, la participation y étant
+     * présente sauf si annulée.
+     */
+    private static void apresEcriture(Participation p) {
+        RecommandationCache.invalidate(p.getUserId());
+        KitchenDemandForecast prevision = KitchenDemandForecast.siChargee();
+        if (prevision != null)
+            prevision.participationModifiee(p.getUserId(), p.getEvenementId(),
+                    p.getStatut() == Participation.StatutParticipation.CONFIRME);
+        InteractionMatrix matrice = InteractionMatrix.siChargee();
+        if (matrice == null || p.getUserId() == null || p.getEvenementId() == null)
+            return;
+        if (p.getStatut() == Participation.StatutParticipation.ANNULE)
+            matrice.retirer(p.getUserId(), p.getEvenementId());
+        else
+            matrice.ajouter(p.getUserId(), p.getEvenementId());
+    }
+
+    /** Un état en mémoire dépend-il des participations ? */
+    private static boolean ecouteursActifs() {
+        KitchenDemandForecast prevision = KitchenDemandForecast.siChargee();
+        return InteractionMatrix.siChargee() != null
+                || (prevision != null && prevision.suitDesEvenements())
+                || !RecommandationCache.estVide();
+    }
+
+    @FunctionalInterface
+    interface SQLConsumer<T> {
+        void accept(T t) throws SQLException;
+    }
+}
@@ -0,0 +1,327 @@
+package com.gestion.services;
+
+import com.gestion.entities.Restauration.ServiceRepas;
+import com.gestion.tools.MyConnection;
+import com.gestion.tools.RingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pointage des présences au service de restauration, par lots.
+ * <p>
+ * Un pointage est accepté en mémoire (file bornée {@link RingBuffer}) et
+ * compté aussitôt dans le service de repas en cours ; un écrivain de fond
+ * l'écrit dans {@code presence} par lots JDBC, en une transaction, toutes les
+ * {@code lamma.restauration.checkin.intervalMs} ou dès que
+ * {@code lamma.restauration.checkin.batchSize} pointages attendent. Un même
+ * participant pointé deux fois pour le même jour et le même service n'est
+ * compté et écrit qu'une fois : en mémoire par service, et en base par la clé
+ * unique {@code (participant_id, date, service_repas)}.
+ */
+public final class PresenceCheckIn implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceCheckIn.class);
+
+    public enum Resultat { ACCEPTE, DEJA_POINTE, FILE_PLEINE }
+
+    private static final String SQL_INSERT = """
+            INSERT INTO presence (participant_id, date, service_repas, abonnement_actif)
+            VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE id = id
+            """;
+    private static final String SQL_POINTES = """
+            SELECT participant_id FROM presence WHERE date = ? AND service_repas = ?
+            """;
+
+    private static volatile PresenceCheckIn instance;
+
+    private final MyConnection dbConnection;
+    private final Config config;
+    private final RingBuffer<Pointage> file;
+    private final ScheduledExecutorService ecrivain;
+    private final AtomicBoolean vidageDemande = new AtomicBoolean();
+    /** Lot en cours d'écriture ; conservé tant que l'écriture échoue. Protégé par {@link #vider()}. */
+    private final List<Pointage> lot = new ArrayList<>();
+    /** Participants pointés et compteur de repas servis, par jour et service ; {@code pointes} sert de verrou. */
+    private final Map<Fenetre, Set<Long>> pointes = new HashMap<>();
+    private final Map<Fenetre, LongAdder> servis = new ConcurrentHashMap<>();
+
+    // Métriques
+    private final LongAdder acceptes = new LongAdder();
+    private final LongAdder doublons = new LongAdder();
+    private final LongAdder refuses = new LongAdder();
+    private final LongAdder ecrits = new LongAdder();
+    private final LongAdder lots = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+
+    private PresenceCheckIn(MyConnection dbConnection, Config config) {
+        this.dbConnection = dbConnection;
+        this.config = config;
+        this.file = new RingBuffer<>(config.capacite);
+        this.ecrivain = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "presence-checkin-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Instance partagée, démarrée au premier pointage. */
+    public static PresenceCheckIn getInstance() {
+        PresenceCheckIn p = instance;
+        if (p == null) {
+            synchronized (PresenceCheckIn.class) {
+                p = instance;
+                if (p == null) {
+                    RestaurationSchema.assurer();
+                    p = new PresenceCheckIn(MyConnection.getInstance(), Config.fromSystemProperties());
+                    p.ecrivain.scheduleWithFixedDelay(p::vidageSilencieux,
+                            p.config.intervalMs, p.config.intervalMs, TimeUnit.MILLISECONDS);
+                    instance = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /** Instance partagée si elle a déjà été démarrée, sans la créer. */
+    public static PresenceCheckIn siDemarre() {
+        return instance;
+    }
+
+    /**
+     * Pointe un participant ; ne touche pas la base, sauf au premier pointage
+     * d'un service pour en relire les présences déjà enregistrées.
+     */
+    public Resultat pointer(Long participantId, LocalDate date, ServiceRepas service, boolean abonnementActif) {
+        if (participantId == null || date == null || service == null)
+            throw new IllegalArgumentException("Participant, date et service requis");
+        Fenetre f = new Fenetre(date, service);
+        Set<Long> dejaPointes = pointes(f);
+        if (!dejaPointes.add(participantId)) {
+            doublons.increment();
+            return Resultat.DEJA_POINTE;
+        }
+        if (!file.offrir(new Pointage(participantId, f, abonnementActif))) {
+            dejaPointes.remove(participantId);
+            refuses.increment();
+            return Resultat.FILE_PLEINE;
+        }
+        servis.computeIfAbsent(f, k -> new LongAdder()).increment();
+        acceptes.increment();
+        if (file.taille() >= config.batchSize && !ecrivain.isShutdown() && vidageDemande.compareAndSet(false, true))
+            ecrivain.execute(this::vidageSilencieux);
+        return Resultat.ACCEPTE;
+    }
+
+    /**
+     * Pointe une liste de participants pour le même service ; renvoie le
+     * nombre de pointages acceptés (doublons et refus exclus).
+     */
+    public int pointer(Collection<Long> participantIds, LocalDate date, ServiceRepas service, boolean abonnementActif) {
+        int n = 0;
+        for (Long id : participantIds) {
+            if (pointer(id, date, service, abonnementActif) == Resultat.ACCEPTE)
+                n++;
+        }
+        return n;
+    }
+
+    /** Repas servis (pointages acceptés) pour ce jour et ce service. */
+    public long getServis(LocalDate date, ServiceRepas service) {
+        LongAdder c = servis.get(new Fenetre(date, service));
+        return c != null ? c.sum() : 0;
+    }
+
+    /**
+     * Écrit tous les pointages en attente, par lots ; renvoie le nombre de
+     * pointages écrits.
+     */
+    public synchronized int vider() throws SQLException {
+        vidageDemande.set(false);
+        int total = 0;
+        while (true) {
+            if (lot.isEmpty() && file.vider(lot::add, config.batchSize) == 0)
+                return total;
+            ecrire(lot);
+            total += lot.size();
+            ecrits.add(lot.size());
+            lots.increment();
+            lot.clear();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(acceptes.sum(), doublons.sum(), refuses.sum(), ecrits.sum(), lots.sum(),
+                echecs.sum(), file.taille());
+    }
+
+    /**
+     * Arrête l'écrivain et écrit les pointages restants.
+     */
+    @Override
+    public void close() {
+        ecrivain.shutdown();
+        try {
+            ecrivain.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        vidageSilencieux();
+    }
+
+    private void vidageSilencieux() {
+        try {
+            vider();
+        } catch (SQLException | RuntimeException e) {
+            echecs.increment();
+            logger.warn("Écriture des présences en échec ({} en attente) : {}", lot.size() + file.taille(), e.getMessage());
+        }
+    }
+
+    private void ecrire(List<Pointage> pointages) throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("Aucune connexion disponible");
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT)) {
+                for (Pointage p : pointages) {
+                    ps.setLong(1, p.participantId);
+                    ps.setDate(2, Date.valueOf(p.fenetre.date));
+                    ps.setString(3, p.fenetre.service.name());
+                    ps.setBoolean(4, p.abonnementActif);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Participants déjà pointés pour ce service ; relus en base à la première
+     * demande, pour que doublons et compteur tiennent compte d'un redémarrage.
+     * Les services de plus de deux jours sont oubliés.
+     */
+    private Set<Long> pointes(Fenetre f) {
+        // Verrou distinct de vider() : un lot en cours d'écriture ne bloque pas le guichet
+        synchronized (pointes) {
+            Set<Long> s = pointes.get(f);
+            return s != null ? s : charger(f);
+        }
+    }
+
+    private Set<Long> charger(Fenetre f) {
+        LocalDate limite = LocalDate.now().minusDays(2);
+        pointes.keySet().removeIf(ancienne -> ancienne.date.isBefore(limite));
+        servis.keySet().removeIf(ancienne -> ancienne.date.isBefore(limite));
+
+        Set<Long> s = ConcurrentHashMap.newKeySet();
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_POINTES)) {
+            ps.setDate(1, Date.valueOf(f.date));
+            ps.setString(2, f.service.name());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    s.add(rs.getLong(1));
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Présences du {} ({}) non relues : {}", f.date, f.service, e.getMessage());
+        }
+        LongAdder compteur = new LongAdder();
+        compteur.add(s.size());
+        servis.put(f, compteur);
+        pointes.put(f, s);
+        return s;
+    }
+
+    private record Fenetre(LocalDate date, ServiceRepas service) {
+    }
+
+    private record Pointage(long participantId, Fenetre fenetre, boolean abonnementActif) {
+    }
+
+    /**
+     * Réglages ; surchargeables par propriétés système
+     * {@code lamma.restauration.checkin.*}.
+     */
+    public static class Config {
+        int capacite = 8_192;
+        long intervalMs = 250;
+        int batchSize = 200;
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.capacite = Integer.getInteger("lamma.restauration.checkin.capacite", c.capacite);
+            c.intervalMs = Long.getLong("lamma.restauration.checkin.intervalMs", c.intervalMs);
+            c.batchSize = Integer.getInteger("lamma.restauration.checkin.batchSize", c.batchSize);
+            return c;
+        }
+
+        public Config capacite(int v) { this.capacite = v; return this; }
+        public Config intervalMs(long v) { this.intervalMs = v; return this; }
+        public Config batchSize(int v) { this.batchSize = v; return this; }
+    }
+
+    /**
+     * Instantané des métriques de pointage.
+     */
+    public static class Stats {
+        private final long acceptes;
+        private final long doublons;
+        private final long refuses;
+        private final long ecrits;
+        private final long lots;
+        private final long echecs;
+        private final int enAttente;
+
+        Stats(long acceptes, long doublons, long refuses, long ecrits, long lots, long echecs, int enAttente) {
+            this.acceptes = acceptes;
+            this.doublons = doublons;
+            this.refuses = refuses;
+            this.ecrits = ecrits;
+            this.lots = lots;
+            this.echecs = echecs;
+            this.enAttente = enAttente;
+        }
+
+        public long getAcceptes() { return acceptes; }
+        public long getDoublons() { return doublons; }
+        /** Pointages refusés, file pleine. */
+        public long getRefuses() { return refuses; }
+        public long getEcrits() { return ecrits; }
+        public long getLots() { return lots; }
+        public long getEchecs() { return echecs; }
+        public int getEnAttente() { return enAttente; }
+
+        @Override
+        public String toString() {
+            return String.format("acceptés=%d doublons=%d refusés=%d écrits=%d lots=%d échecs=%d en attente=%d",
+                    acceptes, doublons, refuses, ecrits, lots, echecs, enAttente);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.gestion.services;
+
+import com.gestion.entities.Recommandation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Cache des meilleures recommandations servies par utilisateur
+ * ({@link RecommandationServiceImpl#findTopByUserId}).
+ * <p>
+ * Une entrée par utilisateur (LRU, au plus {@code lamma.reco.cache.max}
+ * utilisateurs), contenant un top par contexte. Une entrée vit au plus
+ * {@code lamma.reco.cache.ttlMs} et jamais au-delà de la première
+ * {@code date_expiration} de ses recommandations. Toute écriture qui touche les
+ * recommandations d'un utilisateur ou ses participations appelle
+ * {@link #invalidate(Long)} ; le précalcul par lots appelle
+ * {@link #invalidateAll()}. Partagé (statique) car les services sont instanciés
+ * par contrôleur.
+ */
+public final class RecommandationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommandationCache.class);
+
+    private static final int MAX_UTILISATEURS = Integer.getInteger("lamma.reco.cache.max", 10_000);
+    private static final long TTL_MS = Long.getLong("lamma.reco.cache.ttlMs", 5 * 60_000L);
+    /** Taille minimale du top chargé, pour que les limites usuelles partagent la même entrée. */
+    static final int TOP_N = 20;
+
+    private static final Map<Long, Map<String, Entree>> PAR_UTILISATEUR =
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Map<String, Entree>> eldest) {
+                    if (size() > MAX_UTILISATEURS) {
+                        EVICTIONS.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+    private static final LongAdder INVALIDATIONS = new LongAdder();
+    /** Incrémentée à chaque invalidation : un chargement commencé avant n'est pas publié. */
+    private static long generation;
+
+    private RecommandationCache() {
+    }
+
+    /**
+     * Top {@code limite} de l'utilisateur pour ce contexte, depuis le cache ou
+     * via {@code chargeur}, appelé avec le nombre d'éléments à lire
+     * (au moins {@value #TOP_N}).
+     */
+    public static List<Recommandation> get(Long userId, String contexte, int limite,
+            IntFunction<List<Recommandation>> chargeur) {
+        String cle = contexte == null ? "" : contexte.trim().toLowerCase();
+        long maintenant = System.currentTimeMillis();
+        long gen;
+        synchronized (PAR_UTILISATEUR) {
+            Map<String, Entree> entrees = PAR_UTILISATEUR.get(userId);
+            Entree e = entrees != null ? entrees.get(cle) : null;
+            if (e != null && e.expireLe > maintenant && e.limite >= limite) {
+                HITS.increment();
+                return e.recommandations.size() > limite ? e.recommandations.subList(0, limite) : e.recommandations;
+            }
+            gen = generation;
+        }
+
+        MISSES.increment();
+        int n = Math.max(limite, TOP_N);
+        List<Recommandation> charge = List.copyOf(chargeur.apply(n));
+        long expire = maintenant + TTL_MS;
+        for (Recommandation r : charge) {
+            if (r.getDateExpiration() != null)
+                expire = Math.min(expire, millis(r.getDateExpiration()));
+        }
+        synchronized (PAR_UTILISATEUR) {
+            if (gen == generation && expire > maintenant)
+                PAR_UTILISATEUR.computeIfAbsent(userId, k -> new HashMap<>()).put(cle, new Entree(charge, n, expire));
+        }
+        return charge.size() > limite ? charge.subList(0, limite) : charge;
+    }
+
+    public static void invalidate(Long userId) {
+        if (userId == null)
+            return;
+        synchronized (PAR_UTILISATEUR) {
+            generation++;
+            PAR_UTILISATEUR.remove(userId);
+        }
+        INVALIDATIONS.increment();
+    }
+
+    /** Aucune entrée en cache (des chargements peuvent être en cours). */
+    static boolean estVide() {
+        synchronized (PAR_UTILISATEUR) {
+            return PAR_UTILISATEUR.isEmpty();
+        }
+    }
+
+    public static void invalidateAll() {
+        synchronized (PAR_UTILISATEUR) {
+            generation++;
+            PAR_UTILISATEUR.clear();
+        }
+        INVALIDATIONS.increment();
+        logger.debug("Cache des recommandations vidé");
+    }
+
+    public static Stats getStats() {
+        int taille;
+        synchronized (PAR_UTILISATEUR) {
+            taille = PAR_UTILISATEUR.size();
+        }
+        return new Stats(HITS.sum(), MISSES.sum(), EVICTIONS.sum(), INVALIDATIONS.sum(), taille);
+    }
+
+    private static long millis(LocalDateTime d) {
+        return d.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record Entree(List<Recommandation> recommandations, int limite, long expireLe) {
+    }
+
+    /**
+     * Instantané des métriques du cache.
+     */
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+        private final int utilisateurs;
+
+        Stats(long hits, long misses, long evictions, long invalidations, int utilisateurs) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.utilisateurs = utilisateurs;
+        }
+
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getInvalidations() { return invalidations; }
+        public int getUtilisateurs() { return utilisateurs; }
+
+        public double getTauxHit() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d (%.1f%%) évictions=%d invalidations=%d utilisateurs=%d",
+                    hits, misses, getTauxHit() * 100, evictions, invalidations, utilisateurs);
+        }
+    }
+}
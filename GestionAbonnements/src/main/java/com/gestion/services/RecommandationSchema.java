@@ -0,0 +1,55 @@
+package com.gestion.services;
+
+import com.gestion.tools.MyConnection;
+import com.gestion.tools.SchemaUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Présence de la clé {@code uk_user_evenement} de {@code recommandations},
+ * dont dépendent les {@code ON DUPLICATE KEY UPDATE} de
+ * {@link RecommandationServiceImpl#create} et du précalcul nocturne. Une base
+ * créée avant la clé ne l'a pas : les écritures cherchent alors la ligne
+ * existante elles-mêmes, jusqu'au passage du script
+ * {@code docs/migration_recommandations_unicite.sql}.
+ */
+final class RecommandationSchema {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommandationSchema.class);
+
+    private static final AtomicBoolean verifie = new AtomicBoolean();
+    private static volatile boolean uniciteUtilisateurEvenement;
+
+    private RecommandationSchema() {
+    }
+
+    /**
+     * La clé unique (user_id, evenement_suggere_id) existe. Lue une fois par
+     * processus, relue tant que la lecture échoue (réponse {@code false} en
+     * attendant).
+     */
+    static boolean uniciteUtilisateurEvenement() {
+        if (verifie.get())
+            return uniciteUtilisateurEvenement;
+        synchronized (RecommandationSchema.class) {
+            if (verifie.get())
+                return uniciteUtilisateurEvenement;
+            try (Connection c = MyConnection.getInstance().getConnection()) {
+                if (c == null)
+                    throw new SQLException("Aucune connexion disponible");
+                uniciteUtilisateurEvenement = SchemaUtils.indexExiste(c, "recommandations", "uk_user_evenement");
+                if (!uniciteUtilisateurEvenement)
+                    logger.warn("Clé unique recommandations (user_id, evenement_suggere_id) absente : "
+                            + "ligne existante cherchée avant écriture, voir docs/migration_recommandations_unicite.sql");
+                verifie.set(true);
+            } catch (SQLException e) {
+                logger.error("Vérification de la table recommandations impossible : {}", e.getMessage());
+            }
+            return uniciteUtilisateurEvenement;
+        }
+    }
+}
@@ -10,8 +10,12 @@ import org.slf4j.LoggerFactory;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -23,9 +27,34 @@ import java.util.stream.Stream;
 public class RecommandationServiceImpl implements RecommandationService {
     private static final Logger logger = LoggerFactory.getLogger(RecommandationServiceImpl.class);
     private final MyConnection dbConnection;
-
+    private final HybridRecommendationEngine hybride;
+    private volatile CollaborativeFilteringEngine collaboratif;
+
+    /**
+     * Ne charge rien : la matrice d'interactions et l'index de similarité ne
+     * sont résolus qu'au premier calcul de recommandation, pour qu'un écran
+     * puisse instancier le service depuis le thread FX.
+     */
     public RecommandationServiceImpl() {
         this.dbConnection = MyConnection.getInstance();
+        this.hybride = new HybridRecommendationEngine(this, HybridRecommendationEngine.Config.fromSystemProperties());
+    }
+
+    private static InteractionMatrix matrice() {
+        return InteractionMatrix.getInstance();
+    }
+
+    private static ItemSimilarityIndex similarites() {
+        return ItemSimilarityIndex.getInstance();
+    }
+
+    private CollaborativeFilteringEngine collaboratif() {
+        CollaborativeFilteringEngine c = collaboratif;
+        if (c == null) {
+            c = new CollaborativeFilteringEngine(matrice(), similarites());
+            collaboratif = c;
+        }
+        return c;
     }
 
     @Override
@@ -33,10 +62,26 @@ public class RecommandationServiceImpl implements RecommandationService {
         if (!validerRecommandation(recommandation)) {
             throw new IllegalArgumentException("Recommandation invalide");
         }
+        if (!RecommandationSchema.uniciteUtilisateurEvenement()) {
+            Optional<Recommandation> existante = creerSansCle(recommandation);
+            if (existante.isPresent())
+                return existante.get();
+        }
 
         String sql = "INSERT INTO recommandations (user_id, evenement_suggere_id, score, raison, " +
                     "algorithme_used, equipement_bundle, source_scraped, date_generation, date_expiration, est_utilisee) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    // Même couple (utilisateur, événement) : on rend l'id de la ligne existante et on la
+                    // rafraîchit, sauf si elle a déjà été utilisée (comme le précalcul nocturne)
+                    "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id), " +
+                    "score = IF(est_utilisee, score, VALUES(score)), " +
+                    "raison = IF(est_utilisee, raison, VALUES(raison)), " +
+                    "algorithme_used = IF(est_utilisee, algorithme_used, VALUES(algorithme_used)), " +
+                    "equipement_bundle = IF(est_utilisee, equipement_bundle, VALUES(equipement_bundle)), " +
+                    "source_scraped = IF(est_utilisee, source_scraped, VALUES(source_scraped)), " +
+                    "date_generation = IF(est_utilisee, date_generation, VALUES(date_generation)), " +
+                    "date_expiration = IF(est_utilisee, date_expiration, VALUES(date_expiration)), " +
+                    "est_utilisee = est_utilisee OR VALUES(est_utilisee)";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
@@ -46,7 +91,7 @@ public class RecommandationServiceImpl implements RecommandationService {
             pstmt.setDouble(3, recommandation.getScore());
             pstmt.setString(4, recommandation.getRaison());
             pstmt.setString(5, recommandation.getAlgorithmeUsed().name());
-            pstmt.setString(6, convertEquipementBundleToString(recommandation.getEquipementBundle()));
+            pstmt.setString(6, recommandation.getEquipementBundleJson());
             pstmt.setString(7, recommandation.getSourceScraped());
             pstmt.setTimestamp(8, Timestamp.valueOf(recommandation.getDateGeneration()));
             pstmt.setTimestamp(9, Timestamp.valueOf(recommandation.getDateExpiration()));
@@ -60,6 +105,7 @@ public class RecommandationServiceImpl implements RecommandationService {
             try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     recommandation.setId(generatedKeys.getLong(1));
+                    RecommandationCache.invalidate(recommandation.getUserId());
                     logger.info("Recommandation créée avec succès: ID {}", recommandation.getId());
                     
                     // Envoyer notification si score élevé
@@ -78,6 +124,36 @@ public class RecommandationServiceImpl implements RecommandationService {
         }
     }
 
+    /**
+     * Sans la clé unique, le couple (utilisateur, événement) déjà présent est
+     * repris comme le ferait l'upsert : une ligne déjà utilisée est gardée
+     * telle quelle, une autre est mise à jour. Vide s'il faut insérer.
+     */
+    private Optional<Recommandation> creerSansCle(Recommandation recommandation) {
+        String sql = "SELECT id, est_utilisee FROM recommandations WHERE user_id = ? AND evenement_suggere_id = ? "
+                + "ORDER BY est_utilisee DESC, id DESC LIMIT 1";
+        long id;
+        boolean utilisee;
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, recommandation.getUserId());
+            pstmt.setLong(2, recommandation.getEvenementSuggereId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next())
+                    return Optional.empty();
+                id = rs.getLong(1);
+                utilisee = rs.getBoolean(2);
+            }
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la création de la recommandation: {}", e.getMessage());
+            throw new RuntimeException("Impossible de créer la recommandation", e);
+        }
+        recommandation.setId(id);
+        if (utilisee)
+            return findById(id).or(() -> Optional.of(recommandation));
+        return Optional.of(update(recommandation));
+    }
+
     @Override
     public Optional<Recommandation> findById(Long id) {
         String sql = "SELECT * FROM recommandations WHERE id = ?";
@@ -123,15 +199,33 @@ public class RecommandationServiceImpl implements RecommandationService {
 
     @Override
     public List<Recommandation> findTopByUserId(Long userId, String contexte, int limite) {
-        List<Recommandation> list = findByUserId(userId).stream()
-                .filter(r -> r.getScore() >= 0.5)
-                .filter(r -> r.getDateExpiration() == null || r.getDateExpiration().isAfter(LocalDateTime.now()))
-                .filter(r -> !r.isEstUtilisee())
-                .filter(r -> contexte == null || contexte.isBlank() || (r.getEquipementBundle() != null && r.getEquipementBundle().keySet().stream()
-                        .anyMatch(k -> k.toLowerCase().contains(contexte.toLowerCase()))))
-                .sorted(Comparator.comparingDouble(Recommandation::getScore).reversed())
-                .limit(limite > 0 ? limite : 5)
-                .toList();
+        return RecommandationCache.get(userId, contexte, limite > 0 ? limite : 5,
+                n -> lireTopByUserId(userId, contexte, n));
+    }
+
+    private List<Recommandation> lireTopByUserId(Long userId, String contexte, int limite) {
+        // Lecture directe des recommandations précalculées, servie par l'index (user_id, est_utilisee, score)
+        boolean filtreContexte = contexte != null && !contexte.isBlank();
+        String sql = "SELECT * FROM recommandations " +
+                     "WHERE user_id = ? AND est_utilisee = FALSE AND score >= 0.5 AND date_expiration > NOW() " +
+                     (filtreContexte ? "AND JSON_SEARCH(LOWER(JSON_KEYS(equipement_bundle)), 'one', ?) IS NOT NULL " : "") +
+                     "ORDER BY score DESC LIMIT ?";
+        List<Recommandation> list = new ArrayList<>();
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            pstmt.setLong(i++, userId);
+            if (filtreContexte)
+                pstmt.setString(i++, "%" + contexte.toLowerCase() + "%");
+            pstmt.setInt(i, limite);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapResultSetToRecommandation(rs));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la lecture des meilleures recommandations de l'utilisateur {}: {}", userId, e.getMessage());
+        }
         return list;
     }
 
@@ -151,8 +245,7 @@ public class RecommandationServiceImpl implements RecommandationService {
         }
         if (criteria.getContexte() != null && !criteria.getContexte().isBlank()) {
             String ctx = criteria.getContexte().toLowerCase();
-            stream = stream.filter(r -> r.getEquipementBundle() != null && r.getEquipementBundle().keySet().stream()
-                    .anyMatch(k -> k.toLowerCase().contains(ctx)));
+            stream = stream.filter(r -> r.getEquipementBundle() != null && r.getEquipementBundle().concerne(ctx));
         }
         list = stream.toList();
         list = sortRecommandations(list, criteria.getSortBy(), criteria.getSortOrder());
@@ -223,24 +316,19 @@ public class RecommandationServiceImpl implements RecommandationService {
         List<Recommandation> recommandations = new ArrayList<>();
         
         try {
-            // Trouver des utilisateurs similaires
-            List<Long> utilisateursSimilaires = trouverUtilisateursSimilaires(userId, 10);
+            // Matrice voisins × événements chargée en bloc, un score par événement candidat
+            Map<Long, Double> scores = collaboratif().scorer(userId);
             
-            // Pour chaque utilisateur similaire, trouver leurs participations
-            for (Long similarUser : utilisateursSimilaires) {
-                List<Long> evenementsSimilaires = getEvenementsUtilisateur(similarUser);
+            for (Map.Entry<Long, Double> candidat : scores.entrySet()) {
+                double score = candidat.getValue();
                 
-                for (Long evenementId : evenementsSimilaires) {
-                    double score = calculerScoreCollaboratif(userId, evenementId);
-                    
-                    if (score > 0.5) { // Seuil minimum
-                        String raison = genererRaisonCollaborative(userId, evenementId, score);
-                        Recommandation reco = new Recommandation(
-                            userId, evenementId, score, raison, 
-                            Recommandation.AlgorithmeReco.COLLABORATIVE
-                        );
-                        recommandations.add(reco);
-                    }
+                if (score > 0.5) { // Seuil minimum
+                    String raison = genererRaisonCollaborative(userId, candidat.getKey(), score);
+                    Recommandation reco = new Recommandation(
+                        userId, candidat.getKey(), score, raison, 
+                        Recommandation.AlgorithmeReco.COLLABORATIVE
+                    );
+                    recommandations.add(reco);
                 }
             }
             
@@ -263,16 +351,16 @@ public class RecommandationServiceImpl implements RecommandationService {
         List<Recommandation> recommandations = new ArrayList<>();
         
         try {
-            // Analyse NLP de la description
-            String contexteSocial = analyserContexteSocial(description);
-            List<String> motsCles = extraireMotsCles(description);
-            boolean emotionPositive = detecterEmotion(description);
+            // Analyse NLP de la description, en un seul passage et une seule fois pour tous les candidats
+            TextAnalyzer.Analyse analyse = TextAnalyzer.getInstance().analyser(description);
+            String contexteSocial = analyse.contexte().name();
+            List<String> motsCles = analyse.motsCles();
             
             // Trouver des événements correspondants
             List<Long> evenementsCandidats = trouverEvenementsParMotsCles(motsCles);
             
             for (Long evenementId : evenementsCandidats) {
-                double score = calculerScoreNLP(userId, description, evenementId);
+                double score = scoreNLP(analyse, evenementId);
                 
                 if (score > 0.4) { // Seuil plus bas pour NLP
                     String raison = genererRaisonNLP(contexteSocial, motsCles, score);
@@ -297,125 +385,101 @@ public class RecommandationServiceImpl implements RecommandationService {
 
     @Override
     public String analyserContexteSocial(String description) {
-        if (description == null) return "SOLO";
-        
-        String lowerDesc = description.toLowerCase();
-        
-        if (lowerDesc.contains("copine") || lowerDesc.contains("couple") || 
-            lowerDesc.contains("romantique") || lowerDesc.contains("amoureux")) {
-            return "COUPLE";
-        } else if (lowerDesc.contains("amis") || lowerDesc.contains("groupe") || 
-                   lowerDesc.contains("équipe") || lowerDesc.contains("bande")) {
-            return "AMIS";
-        } else if (lowerDesc.contains("famille") || lowerDesc.contains("enfants") || 
-                   lowerDesc.contains("parents")) {
-            return "FAMILLE";
-        } else if (lowerDesc.contains("travail") || lowerDesc.contains("professionnel") || 
-                   lowerDesc.contains("collègues")) {
-            return "PROFESSIONNEL";
-        } else {
-            return "SOLO";
-        }
+        return TextAnalyzer.getInstance().analyser(description).contexte().name();
     }
 
     @Override
     public List<String> extraireMotsCles(String description) {
-        if (description == null) return new ArrayList<>();
-        
-        // Mots-clés prédéfinis pour les événements de loisirs
-        String[] motsClesPotentiels = {
-            "camping", "randonnée", "nature", "montagne", "mer", "plage",
-            "barbecue", "musique", "festival", "sport", "aventure",
-            "détente", "spa", "bien-être", "culture", "visite",
-            "gastronomie", "vin", "dégustation", "jeux", "animation"
-        };
-        
-        String lowerDesc = description.toLowerCase();
-        List<String> motsClesTrouves = new ArrayList<>();
-        
-        for (String mot : motsClesPotentiels) {
-            if (lowerDesc.contains(mot)) {
-                motsClesTrouves.add(mot);
-            }
-        }
-        
-        return motsClesTrouves;
+        return new ArrayList<>(TextAnalyzer.getInstance().analyser(description).motsCles());
     }
 
     @Override
     public boolean detecterEmotion(String texte) {
-        if (texte == null) return false;
-        
-        String lowerText = texte.toLowerCase();
-        
-        // Mots positifs
-        String[] motsPositifs = {
-            "heureux", "content", "excellent", "super", "génial", "fantastique",
-            "amusant", "excitant", "passionnant", "magnifique", "wonderful"
-        };
-        
-        // Mots négatifs
-        String[] motsNegatifs = {
-            "triste", "déçu", "mauvais", "horrible", "terrible",
-            "ennuyeux", "frustrant", "stressant", "difficile", "problème"
-        };
-        
-        int scorePositif = 0;
-        int scoreNegatif = 0;
-        
-        for (String mot : motsPositifs) {
-            if (lowerText.contains(mot)) scorePositif++;
+        return TextAnalyzer.getInstance().analyser(texte).emotionPositive();
+    }
+
+    @Override
+    public List<Recommandation> genererRecommandationsContentBased(Long userId, int limite) {
+        logger.info("Génération de recommandations content-based pour l'utilisateur {}", userId);
+
+        // Chaque événement suivi vote pour ses K voisins de l'index, pondéré par la similarité
+        int[] miens = matrice().evenementsDe(userId);
+        if (miens.length == 0)
+            return new ArrayList<>();
+        Map<Long, Double> cumuls = new HashMap<>();
+        for (int e : miens) {
+            for (ItemSimilarityIndex.Similaire s : similarites().similaires(e, ItemSimilarityIndex.K)) {
+                if (!matrice().participe(userId, s.evenementId()))
+                    cumuls.merge(s.evenementId(), (double) s.score(), Double::sum);
+            }
         }
-        
-        for (String mot : motsNegatifs) {
-            if (lowerText.contains(mot)) scoreNegatif++;
+
+        return cumuls.entrySet().stream()
+                .map(c -> {
+                    double score = Math.min(1.0, c.getValue() / Math.sqrt(miens.length));
+                    return new Recommandation(userId, c.getKey(), score,
+                            String.format("Proche d'événements auxquels vous avez participé (similarité: %.1f%%)", score * 100),
+                            Recommandation.AlgorithmeReco.CONTENT_BASED);
+                })
+                .filter(r -> r.getScore() > 0.3)
+                .sorted((r1, r2) -> Double.compare(r2.getScore(), r1.getScore()))
+                .limit(limite)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public double calculerScoreContentBased(Long userId, Long evenementId) {
+        // Part de la similarité des K voisins de l'événement portée par des événements déjà suivis
+        double total = 0.0;
+        double suivis = 0.0;
+        for (ItemSimilarityIndex.Similaire s : similarites().similaires(evenementId, ItemSimilarityIndex.K)) {
+            total += s.score();
+            if (matrice().participe(userId, s.evenementId()))
+                suivis += s.score();
         }
-        
-        return scorePositif > scoreNegatif;
+        return total == 0.0 ? 0.0 : suivis / total;
+    }
+
+    @Override
+    public List<Long> trouverEvenementsSimilaires(Long evenementId, int limite) {
+        return similarites().similaires(evenementId, limite).stream()
+                .map(ItemSimilarityIndex.Similaire::evenementId)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Recommandation> genererRecommandationsHybrides(Long userId, int limite) {
+        return genererRecommandationsHybrides(userId, null, limite);
+    }
+
+    @Override
+    public List<Recommandation> genererRecommandationsHybrides(Long userId, String description, int limite) {
+        logger.info("Génération de recommandations hybrides pour l'utilisateur {}", userId);
+        return hybride.generer(userId, description, limite);
+    }
+
+    @Override
+    public double calculerScoreHybride(Long userId, Long evenementId) {
+        return hybride.scorer(userId, evenementId);
     }
 
     @Override
     public double calculerScoreCollaboratif(Long userId, Long evenementId) {
-        // Implémentation simplifiée du collaborative filtering
-        try {
-            // Similarité cosinus basée sur les participations passées
-            List<Long> evenementsUser = getEvenementsUtilisateur(userId);
-            List<Long> evenementsSimilaires = getEvenementsSimilaires(evenementId);
-            
-            // Calculer l'intersection
-            int intersection = 0;
-            for (Long evenement : evenementsSimilaires) {
-                if (evenementsUser.contains(evenement)) {
-                    intersection++;
-                }
-            }
-            
-            // Score basé sur la similarité
-            if (evenementsSimilaires.isEmpty()) return 0.0;
-            
-            double similarite = (double) intersection / evenementsSimilaires.size();
-            
-            // Ajuster selon la popularité de l'événement
-            double popularite = getPopulariteEvenement(evenementId);
-            
-            return Math.min(1.0, similarite * 0.7 + popularite * 0.3);
-            
-        } catch (Exception e) {
-            logger.error("Erreur lors du calcul du score collaboratif", e);
-            return 0.0;
-        }
+        // Part des événements similaires (même type) déjà suivis, ajustée par la popularité
+        return collaboratif().scorer(userId, evenementId);
     }
 
     @Override
     public double calculerScoreNLP(Long userId, String description, Long evenementId) {
+        return scoreNLP(TextAnalyzer.getInstance().analyser(description), evenementId);
+    }
+
+    private double scoreNLP(TextAnalyzer.Analyse analyse, Long evenementId) {
         try {
             // Score basé sur l'analyse NLP
-            String contexte = analyserContexteSocial(description);
-            List<String> motsCles = extraireMotsCles(description);
-            
-            double scoreContexte = getScoreContexteEvenement(evenementId, contexte);
-            double scoreMotsCles = getScoreMotsClesEvenement(evenementId, motsCles);
-            double scorePopularite = getPopulariteEvenement(evenementId);
+            double scoreContexte = getScoreContexteEvenement(evenementId, analyse.contexte().name());
+            double scoreMotsCles = getScoreMotsClesEvenement(evenementId, analyse.motsCles());
+            double scorePopularite = CollaborativeFilteringEngine.popularite(matrice(), evenementId);
             
             // Pondération: 40% contexte, 40% mots-clés, 20% popularité
             return Math.min(1.0, scoreContexte * 0.4 + scoreMotsCles * 0.4 + scorePopularite * 0.2);
@@ -487,7 +551,8 @@ public class RecommandationServiceImpl implements RecommandationService {
         recommandation.setScore(rs.getDouble("score"));
         recommandation.setRaison(rs.getString("raison"));
         recommandation.setAlgorithmeUsed(Recommandation.AlgorithmeReco.valueOf(rs.getString("algorithme_used")));
-        recommandation.setEquipementBundle(parseEquipementBundleFromString(rs.getString("equipement_bundle")));
+        // Décodé seulement si l'écran lit le bundle
+        recommandation.setEquipementBundleJson(rs.getString("equipement_bundle"));
         recommandation.setSourceScraped(rs.getString("source_scraped"));
         recommandation.setDateGeneration(rs.getTimestamp("date_generation").toLocalDateTime());
         recommandation.setDateExpiration(rs.getTimestamp("date_expiration").toLocalDateTime());
@@ -495,25 +560,6 @@ public class RecommandationServiceImpl implements RecommandationService {
         return recommandation;
     }
 
-    private String convertEquipementBundleToString(java.util.Map<String, Object> bundle) {
-        if (bundle == null) return "{}";
-        try {
-            return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(bundle);
-        } catch (Exception e) {
-            return "{}";
-        }
-    }
-
-    @SuppressWarnings("unchecked")
-    private java.util.Map<String, Object> parseEquipementBundleFromString(String bundleStr) {
-        if (bundleStr == null || bundleStr.trim().isEmpty()) return new java.util.HashMap<>();
-        try {
-            return new com.fasterxml.jackson.databind.ObjectMapper().readValue(bundleStr, java.util.Map.class);
-        } catch (Exception e) {
-            return new java.util.HashMap<>();
-        }
-    }
-
     private List<Long> getEvenementsUtilisateur(Long userId) {
         List<Long> evenements = new ArrayList<>();
         String sql = "SELECT DISTINCT evenement_id FROM participations WHERE user_id = ?";
@@ -535,52 +581,6 @@ public class RecommandationServiceImpl implements RecommandationService {
         return evenements;
     }
 
-    private List<Long> getEvenementsSimilaires(Long evenementId) {
-        // Implémentation simplifiée - retourne des événements de la même catégorie
-        List<Long> similaires = new ArrayList<>();
-        String sql = "SELECT id FROM evenements WHERE categorie = " +
-                    "(SELECT categorie FROM evenements WHERE id = ?) AND id != ? LIMIT 10";
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setLong(1, evenementId);
-            pstmt.setLong(2, evenementId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    similaires.add(rs.getLong("id"));
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Erreur lors de la recherche d'événements similaires", e);
-        }
-        
-        return similaires;
-    }
-
-    private double getPopulariteEvenement(Long evenementId) {
-        String sql = "SELECT COUNT(*) as participations FROM participations WHERE evenement_id = ?";
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setLong(1, evenementId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    int participations = rs.getInt("participations");
-                    // Normaliser entre 0 et 1 (max 100 participations)
-                    return Math.min(1.0, participations / 100.0);
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Erreur lors du calcul de popularité", e);
-        }
-        
-        return 0.0;
-    }
-
     private double getScoreContexteEvenement(Long evenementId, String contexte) {
         // Score basé sur la pertinence du contexte pour l'événement
         return switch (contexte) {
@@ -595,69 +595,24 @@ public class RecommandationServiceImpl implements RecommandationService {
     private double getScoreMotsClesEvenement(Long evenementId, List<String> motsCles) {
         if (motsCles.isEmpty()) return 0.3;
         
-        // Récupérer la description de l'événement et calculer la correspondance
-        String sql = "SELECT description, titre FROM evenements WHERE id = ?";
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setLong(1, evenementId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    String texte = (rs.getString("titre") + " " + rs.getString("description")).toLowerCase();
-                    long correspondances = motsCles.stream()
-                            .mapToLong(mot -> texte.contains(mot.toLowerCase()) ? 1 : 0)
-                            .sum();
-                    
-                    return Math.min(1.0, (double) correspondances / motsCles.size());
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Erreur lors du calcul de score mots-clés", e);
-        }
-        
-        return 0.0;
+        // Correspondance calculée sur les termes indexés, sans relire le texte de l'événement
+        return EventKeywordIndex.getInstance().couverture(evenementId, motsCles);
     }
 
     private List<Long> trouverEvenementsParMotsCles(List<String> motsCles) {
-        List<Long> evenements = new ArrayList<>();
-        
         if (motsCles.isEmpty()) {
             // Retourner les événements les plus populaires
-            String sql = "SELECT id FROM evenements ORDER BY popularite DESC LIMIT 20";
-            
-            try (Connection conn = dbConnection.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(sql);
-                 ResultSet rs = pstmt.executeQuery()) {
-                
-                while (rs.next()) {
-                    evenements.add(rs.getLong("id"));
-                }
-            } catch (SQLException e) {
-                logger.error("Erreur lors de la recherche d'événements populaires", e);
-            }
-        } else {
-            // Rechercher par mots-clés
-            String sql = "SELECT DISTINCT id FROM evenements WHERE " +
-                        motsCles.stream()
-                                .map(mot -> "LOWER(description) LIKE '%" + mot.toLowerCase() + "%'")
-                                .collect(Collectors.joining(" OR ")) +
-                        " LIMIT 50";
-            
-            try (Connection conn = dbConnection.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(sql);
-                 ResultSet rs = pstmt.executeQuery()) {
-                
-                while (rs.next()) {
-                    evenements.add(rs.getLong("id"));
-                }
-            } catch (SQLException e) {
-                logger.error("Erreur lors de la recherche d'événements par mots-clés", e);
-            }
+            return Arrays.stream(EventKeywordIndex.getInstance().evenements())
+                    .boxed()
+                    .sorted(Comparator.comparingInt((Integer e) -> matrice().popularite(e)).reversed())
+                    .limit(20)
+                    .map(Integer::longValue)
+                    .collect(Collectors.toList());
         }
-        
-        return evenements;
+        // Classement BM25 sur l'index inversé titre/description
+        return EventKeywordIndex.getInstance().rechercher(motsCles, 50).stream()
+                .map(EventKeywordIndex.Resultat::evenementId)
+                .collect(Collectors.toList());
     }
 
     private String genererRaisonCollaborative(Long userId, Long evenementId, double score) {
@@ -682,17 +637,21 @@ public class RecommandationServiceImpl implements RecommandationService {
                 "algorithme_used = ?, equipement_bundle = ?, source_scraped = ?, date_expiration = ?, est_utilisee = ? WHERE id = ?";
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            Long ancienProprietaire = proprietaire(conn, recommandation.getId());
             pstmt.setLong(1, recommandation.getUserId());
             pstmt.setLong(2, recommandation.getEvenementSuggereId());
             pstmt.setDouble(3, recommandation.getScore());
             pstmt.setString(4, recommandation.getRaison());
             pstmt.setString(5, recommandation.getAlgorithmeUsed().name());
-            pstmt.setString(6, convertEquipementBundleToString(recommandation.getEquipementBundle()));
+            pstmt.setString(6, recommandation.getEquipementBundleJson());
             pstmt.setString(7, recommandation.getSourceScraped());
             pstmt.setTimestamp(8, recommandation.getDateExpiration() != null ? Timestamp.valueOf(recommandation.getDateExpiration()) : null);
             pstmt.setBoolean(9, recommandation.isEstUtilisee());
             pstmt.setLong(10, recommandation.getId());
             if (pstmt.executeUpdate() > 0) {
+                // L'utilisateur peut avoir changé : l'ancien propriétaire est invalidé aussi
+                RecommandationCache.invalidate(ancienProprietaire);
+                RecommandationCache.invalidate(recommandation.getUserId());
                 logger.info("Recommandation mise à jour: ID {}", recommandation.getId());
                 return recommandation;
             }
@@ -709,9 +668,13 @@ public class RecommandationServiceImpl implements RecommandationService {
         String sql = "DELETE FROM recommandations WHERE id = ?";
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            Long userId = proprietaire(conn, id);
             pstmt.setLong(1, id);
             boolean deleted = pstmt.executeUpdate() > 0;
-            if (deleted) logger.info("Recommandation supprimée (obsolète): ID {}", id);
+            if (deleted) {
+                RecommandationCache.invalidate(userId);
+                logger.info("Recommandation supprimée (obsolète): ID {}", id);
+            }
             return deleted;
         } catch (SQLException e) {
             logger.error("Erreur suppression recommandation {}: {}", id, e.getMessage());
@@ -724,13 +687,8 @@ public class RecommandationServiceImpl implements RecommandationService {
     @Override public List<Recommandation> findByDateGenerationBetween(LocalDateTime debut, LocalDateTime fin) { return new ArrayList<>(); }
     @Override public List<Recommandation> findRecommandationsExpirees() { return new ArrayList<>(); }
     @Override public List<Recommandation> findRecommandationsNonUtilisees() { return new ArrayList<>(); }
-    @Override public List<Recommandation> genererRecommandationsContentBased(Long userId, int limite) { return new ArrayList<>(); }
-    @Override public List<Recommandation> genererRecommandationsHybrides(Long userId, int limite) { return new ArrayList<>(); }
     @Override public List<Recommandation> genererRecommandationsTensorFlow(Long userId, int limite) { return new ArrayList<>(); }
     @Override public List<Recommandation> genererRecommandationsParClustering(Long userId, int limite) { return new ArrayList<>(); }
-    @Override public double calculerScoreContentBased(Long userId, Long evenementId) { return 0.0; }
-    @Override public double calculerScoreHybride(Long userId, Long evenementId) { return 0.0; }
-    @Override public List<Long> trouverEvenementsSimilaires(Long evenementId, int limite) { return new ArrayList<>(); }
     @Override public String extrairePreferences(String texte) { return ""; }
     @Override public String genererRaisonPersonnalisee(Long userId, Long evenementId, double score) { return ""; }
     @Override public void entrainerModeleTensorFlow() {}
@@ -751,9 +709,6 @@ public class RecommandationServiceImpl implements RecommandationService {
     @Override public double mesurerConversionTestAB(String nomTest) { return 0.0; }
     @Override public List<Recommandation> getGroupeTestAB(String nomTest, char groupe) { return new ArrayList<>(); }
     @Override public void conclureTestAB(String nomTest) {}
-    @Override public double calculerTauxClicRecommandations(Long userId) { return 0.0; }
-    @Override public double calculerTauxConversionRecommandations() { return 0.0; }
-    @Override public List<Recommandation> getTopRecommandationsPerformantes(int limite) { return new ArrayList<>(); }
     @Override public double calculerScoreMoyenAlgorithme(Recommandation.AlgorithmeReco algorithme) { return 0.0; }
     @Override public List<Recommandation> findRecommandationsLowPerformance() { return new ArrayList<>(); }
     @Override public void nettoyerRecommandationsExpirees() {}
@@ -761,7 +716,6 @@ public class RecommandationServiceImpl implements RecommandationService {
     @Override public boolean verifierCoherenceDonnees() { return false; }
     @Override public void envoyerRecommandationEmail(Long userId, List<Recommandation> recommandations) {}
     @Override public void programmerNotificationDifferée(Recommandation recommandation, LocalDateTime dateEnvoi) {}
-    @Override public void suivreInteractionRecommandation(Long id, String typeInteraction) {}
     @Override public List<Recommandation> synchroniserAvecEvenements() { return new ArrayList<>(); }
     @Override public List<Recommandation> synchroniserAvecParticipations(Long userId) { return new ArrayList<>(); }
     @Override public boolean integrerAvecTransport(Long recommandationId) { return false; }
@@ -773,6 +727,77 @@ public class RecommandationServiceImpl implements RecommandationService {
 
     @Override
     public void marquerCommeUtilisee(Long id) {
+        if (id == null) return;
+        String sql = "UPDATE recommandations SET est_utilisee = TRUE, interaction_count = interaction_count + 1 " +
+                     "WHERE id = ? AND est_utilisee = FALSE";
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            Long userId = proprietaire(conn, id);
+            pstmt.setLong(1, id);
+            if (pstmt.executeUpdate() > 0) {
+                // Une recommandation utilisée ne doit plus être servie
+                RecommandationCache.invalidate(userId);
+                logger.info("Recommandation marquée comme utilisée: ID {}", id);
+            }
+        } catch (SQLException e) {
+            logger.error("Erreur marquage recommandation {}: {}", id, e.getMessage());
+        }
+    }
 
+    @Override
+    public void suivreInteractionRecommandation(Long id, String typeInteraction) {
+        InteractionTracker.TypeInteraction type = InteractionTracker.TypeInteraction.parse(typeInteraction);
+        InteractionTracker suivi = InteractionTracker.getInstance();
+        if (suivi.estConnue(id)) {
+            suivi.enregistrer(id, type);
+            return;
+        }
+        // Première interaction sur cette recommandation : utilisateur et algorithme lus une fois
+        findById(id).ifPresentOrElse(r -> suivi.enregistrer(r, type),
+                () -> logger.warn("Interaction {} sur une recommandation inconnue: ID {}", type, id));
+    }
+
+    @Override
+    public double calculerTauxClicRecommandations(Long userId) {
+        InteractionTracker suivi = InteractionTracker.getInstance();
+        return userId != null ? suivi.tauxClicUtilisateur(userId) : suivi.tauxClic();
+    }
+
+    @Override
+    public double calculerTauxConversionRecommandations() {
+        return InteractionTracker.getInstance().tauxConversion();
+    }
+
+    @Override
+    public List<Recommandation> getTopRecommandationsPerformantes(int limite) {
+        List<Long> ids = InteractionTracker.getInstance().meilleures(limite);
+        if (ids.isEmpty()) return new ArrayList<>();
+        String sql = "SELECT * FROM recommandations WHERE id IN (" +
+                     ids.stream().map(id -> "?").collect(Collectors.joining(",")) + ")";
+        Map<Long, Recommandation> parId = new HashMap<>();
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) pstmt.setLong(i + 1, ids.get(i));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Recommandation r = mapResultSetToRecommandation(rs);
+                    parId.put(r.getId(), r);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Erreur lecture des recommandations performantes: {}", e.getMessage());
+        }
+        // Ordre du classement ; les recommandations supprimées depuis sont ignorées
+        return ids.stream().map(parId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /** Utilisateur propriétaire de la recommandation, ou null si elle n'existe pas. */
+    private Long proprietaire(Connection conn, Long id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT user_id FROM recommandations WHERE id = ?")) {
+            pstmt.setLong(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
     }
 }
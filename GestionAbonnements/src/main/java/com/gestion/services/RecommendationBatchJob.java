@@ -0,0 +1,428 @@
+package com.gestion.services;
+
+import com.gestion.entities.Recommandation;
+import com.gestion.tools.MyConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Précalcul nocturne des recommandations hybrides de tous les utilisateurs
+ * actifs (au moins une participation non annulée).
+ * <p>
+ * Les utilisateurs, triés par id, sont découpés en partitions traitées en
+ * fork/join ; chaque partition est écrite en un seul lot
+ * {@code INSERT ... ON DUPLICATE KEY UPDATE} sur {@code (user_id, evenement_suggere_id)},
+ * dans une transaction. Les lignes précalculées expirent après {@code ttlHeures} ;
+ * celles qui ne sont plus dans le top restent jusqu'à leur date d'expiration et
+ * une recommandation déjà utilisée n'est pas réécrite.
+ * <p>
+ * Chaque partition validée est ajoutée au fichier de reprise (plage
+ * {@code premier;dernier}) : un passage interrompu reprend en sautant ces
+ * plages, tant qu'il a commencé il y a moins de {@code repriseMaxHeures}.
+ */
+public class RecommendationBatchJob implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationBatchJob.class);
+
+    private static final String SQL_UPSERT = """
+            INSERT INTO recommandations (user_id, evenement_suggere_id, score, raison, algorithme_used,
+                                         equipement_bundle, source_scraped,
+                                         date_generation, date_expiration, est_utilisee)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, FALSE)
+            ON DUPLICATE KEY UPDATE
+                score = IF(est_utilisee, score, VALUES(score)),
+                raison = IF(est_utilisee, raison, VALUES(raison)),
+                algorithme_used = IF(est_utilisee, algorithme_used, VALUES(algorithme_used)),
+                equipement_bundle = IF(est_utilisee, equipement_bundle, VALUES(equipement_bundle)),
+                source_scraped = IF(est_utilisee, source_scraped, VALUES(source_scraped)),
+                date_generation = IF(est_utilisee, date_generation, VALUES(date_generation)),
+                date_expiration = IF(est_utilisee, date_expiration, VALUES(date_expiration))
+            """;
+    /** Sans {@code uk_user_evenement} : mise à jour des lignes non utilisées, puis insertion des couples absents. */
+    private static final String SQL_MAJ_SANS_CLE = """
+            UPDATE recommandations SET score = ?, raison = ?, algorithme_used = ?, equipement_bundle = ?,
+                                       source_scraped = ?, date_generation = ?, date_expiration = ?
+            WHERE user_id = ? AND evenement_suggere_id = ? AND NOT est_utilisee
+            """;
+    private static final String SQL_INSERT_SANS_CLE = """
+            INSERT INTO recommandations (user_id, evenement_suggere_id, score, raison, algorithme_used,
+                                         equipement_bundle, source_scraped,
+                                         date_generation, date_expiration, est_utilisee)
+            SELECT ?, ?, ?, ?, ?, ?, ?, ?, ?, FALSE FROM DUAL
+            WHERE NOT EXISTS (SELECT 1 FROM recommandations WHERE user_id = ? AND evenement_suggere_id = ?)
+            """;
+    private static final String ENTETE_REPRISE = "run;";
+
+    private final MyConnection dbConnection;
+    private final Config config;
+    private final ScheduledExecutorService scheduler;
+
+    // Métriques
+    private final LongAdder passages = new LongAdder();
+    private final LongAdder utilisateurs = new LongAdder();
+    private final LongAdder recommandations = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+    private volatile long dernierPassage;
+    private volatile long derniereDureeMs;
+    private volatile double dernierDebit;
+
+    public RecommendationBatchJob(MyConnection dbConnection, Config config) {
+        this.dbConnection = dbConnection;
+        this.config = config;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reco-batch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Planifie un passage par jour à {@code heure}:00 ; reprend tout de suite un
+     * passage interrompu s'il en reste un.
+     */
+    public void start() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        LocalDateTime prochain = maintenant.toLocalDate().atTime(LocalTime.of(config.heure, 0));
+        if (!prochain.isAfter(maintenant))
+            prochain = prochain.plusDays(1);
+        long delai = Duration.between(maintenant, prochain).toMillis();
+        if (reprise(System.currentTimeMillis()) != null)
+            scheduler.execute(this::passageSilencieux);
+        scheduler.scheduleAtFixedRate(this::passageSilencieux, delai, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+        logger.info("Précalcul des recommandations planifié chaque jour à {}h (prochain dans {} min)",
+                config.heure, delai / 60_000);
+    }
+
+    /**
+     * Exécute un passage complet (ou termine le passage interrompu) et renvoie
+     * le nombre d'utilisateurs traités.
+     */
+    public synchronized long executer() throws IOException {
+        long debut = System.currentTimeMillis();
+        Reprise reprise = reprise(debut);
+        long runId = reprise != null ? reprise.runId : debut;
+        if (reprise == null)
+            initialiserReprise(runId);
+
+        int[] tous = InteractionMatrix.getInstance().utilisateurs();
+        int[] aTraiter = reprise != null ? reprise.restants(tous) : tous;
+        if (reprise != null)
+            logger.info("Reprise du précalcul commencé le {} : {} utilisateurs restants sur {}",
+                    new Timestamp(runId), aTraiter.length, tous.length);
+
+        HybridRecommendationEngine moteur = new HybridRecommendationEngine(new RecommandationServiceImpl(),
+                HybridRecommendationEngine.Config.fromSystemProperties());
+        LongAdder traites = new LongAdder();
+        LongAdder ecrites = new LongAdder();
+        LongAdder partitionsEchouees = new LongAdder();
+        ForkJoinPool pool = new ForkJoinPool(config.parallelisme);
+        try (BufferedWriter journal = Files.newBufferedWriter(config.fichierReprise, StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND)) {
+            pool.invoke(new Partition(aTraiter, 0, aTraiter.length, moteur, journal, traites, ecrites, partitionsEchouees));
+        } finally {
+            pool.shutdown();
+        }
+
+        if (partitionsEchouees.sum() == 0)
+            Files.deleteIfExists(config.fichierReprise);
+        RecommandationCache.invalidateAll();
+        long duree = Math.max(1, System.currentTimeMillis() - debut);
+        passages.increment();
+        utilisateurs.add(traites.sum());
+        recommandations.add(ecrites.sum());
+        echecs.add(partitionsEchouees.sum());
+        dernierPassage = debut;
+        derniereDureeMs = duree;
+        dernierDebit = traites.sum() * 1000.0 / duree;
+        logger.info("Précalcul des recommandations : {} utilisateurs, {} recommandations en {} ms ({} utilisateurs/s, {} partition(s) en échec)",
+                traites.sum(), ecrites.sum(), duree, String.format("%.1f", dernierDebit), partitionsEchouees.sum());
+        return traites.sum();
+    }
+
+    public Stats getStats() {
+        return new Stats(passages.sum(), utilisateurs.sum(), recommandations.sum(), echecs.sum(),
+                dernierPassage, derniereDureeMs, dernierDebit);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void passageSilencieux() {
+        try {
+            executer();
+        } catch (IOException | RuntimeException e) {
+            echecs.increment();
+            logger.warn("Précalcul des recommandations en échec : {}", e.getMessage());
+        }
+    }
+
+    /** Écrit les recommandations d'une partition en un lot transactionnel. */
+    private int ecrire(List<Recommandation> lot) throws SQLException {
+        if (lot.isEmpty())
+            return 0;
+        try (Connection conn = dbConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                if (RecommandationSchema.uniciteUtilisateurEvenement())
+                    upsert(conn, lot);
+                else
+                    ecrireSansCle(conn, lot);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        return lot.size();
+    }
+
+    private static void upsert(Connection conn, List<Recommandation> lot) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_UPSERT)) {
+            for (Recommandation r : lot) {
+                ps.setLong(1, r.getUserId());
+                ps.setLong(2, r.getEvenementSuggereId());
+                lierValeurs(ps, r, 3);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void ecrireSansCle(Connection conn, List<Recommandation> lot) throws SQLException {
+        try (PreparedStatement maj = conn.prepareStatement(SQL_MAJ_SANS_CLE);
+             PreparedStatement ins = conn.prepareStatement(SQL_INSERT_SANS_CLE)) {
+            for (Recommandation r : lot) {
+                lierValeurs(maj, r, 1);
+                maj.setLong(8, r.getUserId());
+                maj.setLong(9, r.getEvenementSuggereId());
+                maj.addBatch();
+                ins.setLong(1, r.getUserId());
+                ins.setLong(2, r.getEvenementSuggereId());
+                lierValeurs(ins, r, 3);
+                ins.setLong(10, r.getUserId());
+                ins.setLong(11, r.getEvenementSuggereId());
+                ins.addBatch();
+            }
+            maj.executeBatch();
+            ins.executeBatch();
+        }
+    }
+
+    /** Score, raison, algorithme, bundle, source et dates, à partir du paramètre {@code i}. */
+    private static void lierValeurs(PreparedStatement ps, Recommandation r, int i) throws SQLException {
+        ps.setDouble(i, r.getScore());
+        ps.setString(i + 1, r.getRaison());
+        ps.setString(i + 2, r.getAlgorithmeUsed().name());
+        ps.setString(i + 3, r.getEquipementBundleJson());
+        ps.setString(i + 4, r.getSourceScraped());
+        ps.setTimestamp(i + 5, Timestamp.valueOf(r.getDateGeneration()));
+        ps.setTimestamp(i + 6, Timestamp.valueOf(r.getDateExpiration()));
+    }
+
+    // ------------------------------------------------------------- reprise
+
+    private void initialiserReprise(long runId) throws IOException {
+        Path parent = config.fichierReprise.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        Files.writeString(config.fichierReprise, ENTETE_REPRISE + runId + "\n", StandardCharsets.UTF_8);
+    }
+
+    /** Passage interrompu encore repris, ou null. */
+    private Reprise reprise(long maintenant) {
+        if (!Files.exists(config.fichierReprise))
+            return null;
+        try {
+            List<String> lignes = Files.readAllLines(config.fichierReprise, StandardCharsets.UTF_8);
+            if (lignes.isEmpty() || !lignes.get(0).startsWith(ENTETE_REPRISE))
+                return null;
+            long runId = Long.parseLong(lignes.get(0).substring(ENTETE_REPRISE.length()));
+            if (maintenant - runId > TimeUnit.HOURS.toMillis(config.repriseMaxHeures))
+                return null;
+            List<int[]> plages = new ArrayList<>();
+            for (String l : lignes.subList(1, lignes.size())) {
+                String[] p = l.split(";");
+                // Une ligne tronquée par un arrêt brutal est ignorée : sa partition sera refaite
+                if (p.length == 2)
+                    plages.add(new int[]{Integer.parseInt(p[0]), Integer.parseInt(p[1])});
+            }
+            return new Reprise(runId, plages);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Fichier de reprise {} illisible, nouveau passage : {}", config.fichierReprise, e.getMessage());
+            return null;
+        }
+    }
+
+    private record Reprise(long runId, List<int[]> plages) {
+
+        /** Utilisateurs hors des plages déjà validées. */
+        int[] restants(int[] tous) {
+            return Arrays.stream(tous)
+                    .filter(u -> plages.stream().noneMatch(p -> u >= p[0] && u <= p[1]))
+                    .toArray();
+        }
+    }
+
+    private final class Partition extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] users;
+        private final int from;
+        private final int to;
+        private final HybridRecommendationEngine moteur;
+        private final BufferedWriter journal;
+        private final LongAdder traites;
+        private final LongAdder ecrites;
+        private final LongAdder partitionsEchouees;
+
+        Partition(int[] users, int from, int to, HybridRecommendationEngine moteur, BufferedWriter journal,
+                LongAdder traites, LongAdder ecrites, LongAdder partitionsEchouees) {
+            this.users = users;
+            this.from = from;
+            this.to = to;
+            this.moteur = moteur;
+            this.journal = journal;
+            this.traites = traites;
+            this.ecrites = ecrites;
+            this.partitionsEchouees = partitionsEchouees;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > config.taillePartition) {
+                int milieu = (from + to) >>> 1;
+                invokeAll(new Partition(users, from, milieu, moteur, journal, traites, ecrites, partitionsEchouees),
+                        new Partition(users, milieu, to, moteur, journal, traites, ecrites, partitionsEchouees));
+                return;
+            }
+            if (from >= to)
+                return;
+            try {
+                LocalDateTime generation = LocalDateTime.now();
+                LocalDateTime expiration = generation.plusHours(config.ttlHeures);
+                List<Recommandation> lot = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    for (Recommandation r : moteur.genererSansDelai(users[i], config.topN)) {
+                        r.setDateGeneration(generation);
+                        r.setDateExpiration(expiration);
+                        lot.add(r);
+                    }
+                }
+                ecrites.add(ecrire(lot));
+                traites.add(to - from);
+                synchronized (journal) {
+                    journal.write(users[from] + ";" + users[to - 1]);
+                    journal.newLine();
+                    journal.flush();
+                }
+            } catch (SQLException | IOException | RuntimeException e) {
+                partitionsEchouees.increment();
+                logger.warn("Partition d'utilisateurs {}..{} en échec : {}", users[from], users[to - 1], e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Réglages du précalcul ; surchargeables par propriétés système
+     * {@code lamma.reco.batch.*}.
+     */
+    public static class Config {
+        int heure = 3;
+        int topN = 20;
+        int taillePartition = 200;
+        int parallelisme = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        long ttlHeures = 36;
+        long repriseMaxHeures = 20;
+        Path fichierReprise = Path.of(System.getProperty("user.home"), ".lamma", "reco-batch.checkpoint");
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.heure = Integer.getInteger("lamma.reco.batch.heure", c.heure);
+            c.topN = Integer.getInteger("lamma.reco.batch.topN", c.topN);
+            c.taillePartition = Integer.getInteger("lamma.reco.batch.taillePartition", c.taillePartition);
+            c.parallelisme = Integer.getInteger("lamma.reco.batch.parallelisme", c.parallelisme);
+            c.ttlHeures = Long.getLong("lamma.reco.batch.ttlHeures", c.ttlHeures);
+            c.repriseMaxHeures = Long.getLong("lamma.reco.batch.repriseMaxHeures", c.repriseMaxHeures);
+            String f = System.getProperty("lamma.reco.batch.checkpoint");
+            if (f != null)
+                c.fichierReprise = Path.of(f);
+            return c;
+        }
+
+        public Config heure(int v) { this.heure = v; return this; }
+        public Config topN(int v) { this.topN = v; return this; }
+        public Config taillePartition(int v) { this.taillePartition = v; return this; }
+        public Config parallelisme(int v) { this.parallelisme = v; return this; }
+        public Config ttlHeures(long v) { this.ttlHeures = v; return this; }
+        public Config repriseMaxHeures(long v) { this.repriseMaxHeures = v; return this; }
+        public Config fichierReprise(Path v) { this.fichierReprise = v; return this; }
+    }
+
+    /**
+     * Instantané des métriques du précalcul.
+     */
+    public static class Stats {
+        private final long passages;
+        private final long utilisateurs;
+        private final long recommandations;
+        private final long echecs;
+        private final long dernierPassage;
+        private final long derniereDureeMs;
+        private final double dernierDebit;
+
+        Stats(long passages, long utilisateurs, long recommandations, long echecs,
+                long dernierPassage, long derniereDureeMs, double dernierDebit) {
+            this.passages = passages;
+            this.utilisateurs = utilisateurs;
+            this.recommandations = recommandations;
+            this.echecs = echecs;
+            this.dernierPassage = dernierPassage;
+            this.derniereDureeMs = derniereDureeMs;
+            this.dernierDebit = dernierDebit;
+        }
+
+        public long getPassages() { return passages; }
+        public long getUtilisateurs() { return utilisateurs; }
+        public long getRecommandations() { return recommandations; }
+        public long getEchecs() { return echecs; }
+        /** Début du dernier passage (epoch ms), 0 si aucun. */
+        public long getDernierPassage() { return dernierPassage; }
+        public long getDerniereDureeMs() { return derniereDureeMs; }
+        /** Utilisateurs traités par seconde lors du dernier passage. */
+        public double getDernierDebit() { return dernierDebit; }
+
+        @Override
+        public String toString() {
+            return String.format("passages=%d utilisateurs=%d recommandations=%d échecs=%d dernière durée=%dms débit=%.1f utilisateurs/s",
+                    passages, utilisateurs, recommandations, echecs, derniereDureeMs, dernierDebit);
+        }
+    }
+}
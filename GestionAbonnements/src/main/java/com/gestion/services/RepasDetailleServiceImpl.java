@@ -1,8 +1,11 @@
 package com.gestion.services;
 
+import com.gestion.entities.ProfilAlimentaire;
 import com.gestion.entities.RepasDetaille;
 import com.gestion.interfaces.RepasDetailleService;
 import com.gestion.tools.MyConnection;
+import com.gestion.tools.SchemaUtils;
+import com.gestion.tools.TextUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,16 +13,90 @@ import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class RepasDetailleServiceImpl implements RepasDetailleService {
+
+    /** Ids de repas par requête de chargement des ingrédients et allergènes. */
+    private static final int LOT_COMPOSITION = 500;
+
+    private static final String SQL_REPAS_INGREDIENT = """
+            CREATE TABLE IF NOT EXISTS repas_ingredient (
+                repas_id BIGINT NOT NULL,
+                ingredient_id BIGINT NOT NULL,
+                ordre INT NOT NULL DEFAULT 0,
+                PRIMARY KEY (repas_id, ingredient_id),
+                INDEX idx_ingredient_repas (ingredient_id, repas_id),
+                FOREIGN KEY (repas_id) REFERENCES repas_detaille(id) ON DELETE CASCADE,
+                FOREIGN KEY (ingredient_id) REFERENCES ingredients(id) ON DELETE CASCADE
+            )
+            """;
+    private static final String SQL_REPAS_ALLERGENE = """
+            CREATE TABLE IF NOT EXISTS repas_allergene (
+                repas_id BIGINT NOT NULL,
+                code VARCHAR(50) NOT NULL,
+                libelle VARCHAR(100) NOT NULL,
+                ordre INT NOT NULL DEFAULT 0,
+                PRIMARY KEY (repas_id, code),
+                INDEX idx_allergene_repas (code, repas_id),
+                FOREIGN KEY (repas_id) REFERENCES repas_detaille(id) ON DELETE CASCADE
+            )
+            """;
+    /** Reprises de données déjà faites sur cette base, une ligne par reprise. */
+    private static final String SQL_SCHEMA_MIGRATIONS = """
+            CREATE TABLE IF NOT EXISTS schema_migrations (
+                nom VARCHAR(100) PRIMARY KEY,
+                appliquee_le TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+            )
+            """;
+    private static final String MIGRATION_COMPOSITION = "repas_composition";
+
+    /**
+     * Tables créées et reprise faite pour ce processus : les contrôleurs
+     * instancient le service souvent. Posé seulement après succès des deux,
+     * refait sinon à la prochaine instanciation.
+     */
+    private static final AtomicBoolean schemaVerifie = new AtomicBoolean();
+    /**
+     * Les anciennes colonnes texte existent encore : elles restent écrites en
+     * plus des tables de liaison (allergènes compris) tant que l'étape 3 de
+     * {@code docs/migration_repas_composition.sql} ne les a pas supprimées.
+     */
+    private static volatile boolean colonnesTexte = true;
+
+    /** Ingrédients puis allergènes des repas d'un lot, dans l'ordre de saisie. */
+    private static final String SQL_COMPOSITION = """
+            SELECT ri.repas_id, 0 AS genre, ri.ordre, i.nom
+            FROM repas_ingredient ri JOIN ingredients i ON i.id = ri.ingredient_id
+            WHERE ri.repas_id IN (%1$s)
+            UNION ALL
+            SELECT repas_id, 1, ordre, libelle FROM repas_allergene WHERE repas_id IN (%1$s)
+            ORDER BY 1, 2, 3
+            """;
+
     public RepasDetailleServiceImpl() {
-        initTable();
+        if (schemaVerifie.get())
+            return;
+        synchronized (RepasDetailleServiceImpl.class) {
+            if (schemaVerifie.get())
+                return;
+            // La table ingredients doit exister pour la clé étrangère de repas_ingredient
+            new IngredientServiceImpl();
+            if (initTable() && migrerComposition())
+                schemaVerifie.set(true);
+        }
     }
 
-    private void initTable() {
+    private boolean initTable() {
         String sql = """
                 CREATE TABLE IF NOT EXISTS repas_detaille (
                     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -45,13 +122,20 @@ public class RepasDetailleServiceImpl implements RepasDetailleService {
         try (Connection c = dbConnection.getConnection();
                 Statement st = c.createStatement()) {
             st.execute(sql);
+            st.execute(SQL_REPAS_INGREDIENT);
+            st.execute(SQL_REPAS_ALLERGENE);
+            st.execute(SQL_SCHEMA_MIGRATIONS);
+            colonnesTexte = SchemaUtils.colonneExiste(c, "repas_detaille", "ingredients")
+                    && SchemaUtils.colonneExiste(c, "repas_detaille", "allergenes");
             try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM repas_detaille")) {
                 if (rs.next() && rs.getInt(1) == 0) {
                     insertDefaultDishes();
                 }
             }
+            return true;
         } catch (SQLException e) {
             logger.error("Erreur initTable repas_detaille", e);
+            return false;
         }
     }
 
@@ -95,36 +179,31 @@ public class RepasDetailleServiceImpl implements RepasDetailleService {
         String sql = """
                 INSERT INTO repas_detaille
                 (nom, description, prix, calories, type_repas, date, participant_id, evenement_id,
-                 ingredients, allergenes, vegetarien, vegan, sans_gluten, halal, actif, image_url, notes)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                 vegetarien, vegan, sans_gluten, halal, actif, image_url, notes)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
                 """;
-        try (Connection c = dbConnection.getConnection();
-                PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            ps.setString(1, repas.getNom());
-            ps.setString(2, repas.getDescription());
-            ps.setBigDecimal(3, repas.getPrix());
-            ps.setObject(4, repas.getCalories());
-            ps.setString(5, repas.getTypeRepas());
-            ps.setObject(6, repas.getDate() != null ? Date.valueOf(repas.getDate()) : null);
-            ps.setObject(7, repas.getParticipantId());
-            ps.setObject(8, repas.getEvenementId());
-            ps.setString(9, String.join(",", repas.getIngredients()));
-            ps.setString(10, String.join(",", repas.getAllergenes()));
-            ps.setBoolean(11, repas.isVegetarien());
-            ps.setBoolean(12, repas.isVegan());
-            ps.setBoolean(13, repas.isSansGluten());
-            ps.setBoolean(14, repas.isHalal());
-            ps.setBoolean(15, repas.isActif());
-            ps.setString(16, repas.getImageUrl());
-            ps.setString(17, repas.getNotes());
-
-            ps.executeUpdate();
-            try (ResultSet keys = ps.getGeneratedKeys()) {
-                if (keys.next())
-                    repas.setId(keys.getLong(1));
+        try (Connection c = dbConnection.getConnection()) {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                remplirColonnes(ps, repas);
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next())
+                        repas.setId(keys.getLong(1));
+                }
+                ecrireComposition(c, repas, false);
+                ecrireColonnesTexte(c, repas);
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                repas.setId(null);
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
             }
             logger.info("Repas détaillé créé: ID {}", repas.getId());
+            IndexCompatibiliteRepas.getInstance().invalider();
         } catch (SQLException e) {
             logger.error("Erreur create repas détaillé", e);
         }
@@ -133,18 +212,8 @@ public class RepasDetailleServiceImpl implements RepasDetailleService {
 
     @Override
     public Optional<RepasDetaille> findById(Long id) {
-        String sql = "SELECT * FROM repas_detaille WHERE id = ?";
-        try (Connection c = dbConnection.getConnection();
-                PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next())
-                    return Optional.of(mapRepas(rs));
-            }
-        } catch (SQLException e) {
-            logger.error("Erreur findById", e);
-        }
-        return Optional.empty();
+        return executeQuery("SELECT * FROM repas_detaille WHERE id = ?", ps -> ps.setLong(1, id))
+                .stream().findFirst();
     }
 
     @Override
@@ -157,33 +226,27 @@ public class RepasDetailleServiceImpl implements RepasDetailleService {
         String sql = """
                 UPDATE repas_detaille SET
                 nom=?, description=?, prix=?, calories=?, type_repas=?, date=?, participant_id=?, evenement_id=?,
-                ingredients=?, allergenes=?, vegetarien=?, vegan=?, sans_gluten=?, halal=?, actif=?, image_url=?, notes=?
+                vegetarien=?, vegan=?, sans_gluten=?, halal=?, actif=?, image_url=?, notes=?
                 WHERE id=?
                 """;
-        try (Connection c = dbConnection.getConnection();
-                PreparedStatement ps = c.prepareStatement(sql)) {
-
-            ps.setString(1, repas.getNom());
-            ps.setString(2, repas.getDescription());
-            ps.setBigDecimal(3, repas.getPrix());
-            ps.setObject(4, repas.getCalories());
-            ps.setString(5, repas.getTypeRepas());
-            ps.setObject(6, repas.getDate() != null ? Date.valueOf(repas.getDate()) : null);
-            ps.setObject(7, repas.getParticipantId());
-            ps.setObject(8, repas.getEvenementId());
-            ps.setString(9, String.join(",", repas.getIngredients()));
-            ps.setString(10, String.join(",", repas.getAllergenes()));
-            ps.setBoolean(11, repas.isVegetarien());
-            ps.setBoolean(12, repas.isVegan());
-            ps.setBoolean(13, repas.isSansGluten());
-            ps.setBoolean(14, repas.isHalal());
-            ps.setBoolean(15, repas.isActif());
-            ps.setString(16, repas.getImageUrl());
-            ps.setString(17, repas.getNotes());
-            ps.setLong(18, repas.getId());
-
-            ps.executeUpdate();
+        try (Connection c = dbConnection.getConnection()) {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                remplirColonnes(ps, repas);
+                ps.setLong(16, repas.getId());
+                ps.executeUpdate();
+                ecrireComposition(c, repas, true);
+                ecrireColonnesTexte(c, repas);
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
             logger.info("Repas détaillé mis à jour: ID {}", repas.getId());
+            IndexCompatibiliteRepas.getInstance().invalider();
         } catch (SQLException e) {
             logger.error("Erreur update repas détaillé", e);
         }
@@ -198,6 +261,7 @@ public class RepasDetailleServiceImpl implements RepasDetailleService {
             ps.setLong(1, id);
             int affected = ps.executeUpdate();
             logger.info("Repas détaillé supprimé: ID {}", id);
+            IndexCompatibiliteRepas.getInstance().invalider();
             return affected > 0;
         } catch (SQLException e) {
             logger.error("Erreur delete repas détaillé", e);
@@ -271,9 +335,29 @@ public class RepasDetailleServiceImpl implements RepasDetailleService {
 
     @Override
     public List<RepasDetaille> findByAllergene(String allergene) {
-        return findAll().stream()
-                .filter(r -> r.getAllergenes().contains(allergene))
-                .collect(Collectors.toList());
+        String code = ProfilAlimentaire.normaliserAllergene(allergene);
+        return executeQuery("""
+                SELECT r.* FROM repas_allergene a JOIN repas_detaille r ON r.id = a.repas_id
+                WHERE a.code = ? AND r.actif = 1 ORDER BY r.nom
+                """, ps -> ps.setString(1, code));
+    }
+
+    @Override
+    public List<RepasDetaille> findByIngredientId(Long ingredientId) {
+        return executeQuery("""
+                SELECT r.* FROM repas_ingredient ri JOIN repas_detaille r ON r.id = ri.repas_id
+                WHERE ri.ingredient_id = ? AND r.actif = 1 ORDER BY r.nom
+                """, ps -> ps.setLong(1, ingredientId));
+    }
+
+    @Override
+    public List<RepasDetaille> findByIngredient(String nom) {
+        return executeQuery("""
+                SELECT DISTINCT r.* FROM ingredients i
+                JOIN repas_ingredient ri ON ri.ingredient_id = i.id
+                JOIN repas_detaille r ON r.id = ri.repas_id
+                WHERE i.nom = ? AND r.actif = 1 ORDER BY r.nom
+                """, ps -> ps.setString(1, nom.trim()));
     }
 
     @Override
@@ -317,9 +401,7 @@ public class RepasDetailleServiceImpl implements RepasDetailleService {
     // Helpers
     private List<RepasDetaille> executeQuery(String sql, SQLConsumer<PreparedStatement> setter) {
         List<RepasDetaille> list = new ArrayList<>();
-        Connection c = null;
-        try {
-            c = dbConnection.getConnection();
+        try (Connection c = dbConnection.getConnection()) {
             if (c == null) {
                 logger.error("Connection value is null for query: {}", sql);
                 return list;
@@ -337,6 +419,7 @@ public class RepasDetailleServiceImpl implements RepasDetailleService {
                     }
                 }
             }
+            chargerComposition(c, list);
         } catch (Exception e) {
             logger.error("SQL Execution Error in RepasDetaille for query: {}", sql, e);
         }
@@ -357,15 +440,6 @@ public class RepasDetailleServiceImpl implements RepasDetailleService {
         r.setParticipantId(rs.getObject("participant_id") != null ? rs.getLong("participant_id") : null);
         r.setEvenementId(rs.getObject("evenement_id") != null ? rs.getLong("evenement_id") : null);
 
-        String ing = rs.getString("ingredients");
-        if (ing != null && !ing.isEmpty()) {
-            r.getIngredients().addAll(List.of(ing.split(",")));
-        }
-        String all = rs.getString("allergenes");
-        if (all != null && !all.isEmpty()) {
-            r.getAllergenes().addAll(List.of(all.split(",")));
-        }
-
         r.setVegetarien(rs.getBoolean("vegetarien"));
         r.setVegan(rs.getBoolean("vegan"));
         r.setSansGluten(rs.getBoolean("sans_gluten"));
@@ -376,6 +450,248 @@ public class RepasDetailleServiceImpl implements RepasDetailleService {
         return r;
     }
 
+    private static void remplirColonnes(PreparedStatement ps, RepasDetaille repas) throws SQLException {
+        ps.setString(1, repas.getNom());
+        ps.setString(2, repas.getDescription());
+        ps.setBigDecimal(3, repas.getPrix());
+        ps.setObject(4, repas.getCalories());
+        ps.setString(5, repas.getTypeRepas());
+        ps.setObject(6, repas.getDate() != null ? Date.valueOf(repas.getDate()) : null);
+        ps.setObject(7, repas.getParticipantId());
+        ps.setObject(8, repas.getEvenementId());
+        ps.setBoolean(9, repas.isVegetarien());
+        ps.setBoolean(10, repas.isVegan());
+        ps.setBoolean(11, repas.isSansGluten());
+        ps.setBoolean(12, repas.isHalal());
+        ps.setBoolean(13, repas.isActif());
+        ps.setString(14, repas.getImageUrl());
+        ps.setString(15, repas.getNotes());
+    }
+
+    // ================= INGRÉDIENTS ET ALLERGÈNES =================
+
+    /**
+     * Complète les repas de leurs ingrédients et allergènes : une requête par
+     * lot de {@value #LOT_COMPOSITION} repas, au lieu d'une par repas.
+     */
+    private static void chargerComposition(Connection c, List<RepasDetaille> repas) throws SQLException {
+        Map<Long, RepasDetaille> parId = new HashMap<>();
+        for (RepasDetaille r : repas)
+            parId.put(r.getId(), r);
+        List<Long> ids = new ArrayList<>(parId.keySet());
+        for (int debut = 0; debut < ids.size(); debut += LOT_COMPOSITION) {
+            List<Long> lot = ids.subList(debut, Math.min(debut + LOT_COMPOSITION, ids.size()));
+            String marques = String.join(",", Collections.nCopies(lot.size(), "?"));
+            try (PreparedStatement ps = c.prepareStatement(SQL_COMPOSITION.formatted(marques))) {
+                for (int i = 0; i < lot.size(); i++) {
+                    ps.setLong(i + 1, lot.get(i));
+                    ps.setLong(lot.size() + i + 1, lot.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        RepasDetaille r = parId.get(rs.getLong(1));
+                        if (rs.getInt(2) == 0)
+                            r.getIngredients().add(rs.getString(4));
+                        else
+                            r.getAllergenes().add(rs.getString(4));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Écrit les ingrédients et allergènes du repas dans les tables de liaison,
+     * en remplaçant les précédents si demandé. Appelé dans la transaction de
+     * l'écriture du repas.
+     */
+    private static void ecrireComposition(Connection c, RepasDetaille repas, boolean remplacer) throws SQLException {
+        long repasId = repas.getId();
+        if (remplacer) {
+            for (String table : List.of("repas_ingredient", "repas_allergene")) {
+                try (PreparedStatement ps = c.prepareStatement("DELETE FROM " + table + " WHERE repas_id = ?")) {
+                    ps.setLong(1, repasId);
+                    ps.executeUpdate();
+                }
+            }
+        }
+        List<String> ingredients = repas.getIngredients() != null ? repas.getIngredients() : List.of();
+        Map<String, Long> idsIngredients = resoudreIngredients(c, ingredients);
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO repas_ingredient (repas_id, ingredient_id, ordre) VALUES (?, ?, ?)")) {
+            Set<Long> vus = new HashSet<>();
+            int ordre = 0;
+            for (String nom : ingredients) {
+                Long id = idsIngredients.get(cle(nom));
+                if (id == null || !vus.add(id))
+                    continue;
+                ps.setLong(1, repasId);
+                ps.setLong(2, id);
+                ps.setInt(3, ordre++);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        List<String> allergenes = repas.getAllergenes() != null ? repas.getAllergenes() : List.of();
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO repas_allergene (repas_id, code, libelle, ordre) VALUES (?, ?, ?, ?)")) {
+            Set<String> vus = new HashSet<>();
+            int ordre = 0;
+            for (String libelle : allergenes) {
+                String code = ProfilAlimentaire.normaliserAllergene(libelle);
+                if (code.isEmpty() || !vus.add(code))
+                    continue;
+                ps.setLong(1, repasId);
+                ps.setString(2, code);
+                ps.setString(3, libelle.trim());
+                ps.setInt(4, ordre++);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Recopie ingrédients et allergènes dans les anciennes colonnes texte,
+     * séparés par des virgules comme avant la migration, pour qu'une instance
+     * de la version précédente lise des données à jour.
+     */
+    private static void ecrireColonnesTexte(Connection c, RepasDetaille repas) throws SQLException {
+        if (!colonnesTexte)
+            return;
+        try (PreparedStatement ps = c.prepareStatement(
+                "UPDATE repas_detaille SET ingredients = ?, allergenes = ? WHERE id = ?")) {
+            ps.setString(1, String.join(",", repas.getIngredients() != null ? repas.getIngredients() : List.of()));
+            ps.setString(2, String.join(",", repas.getAllergenes() != null ? repas.getAllergenes() : List.of()));
+            ps.setLong(3, repas.getId());
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Identifiants des ingrédients nommés, par nom plié. Un nom absent du
+     * catalogue y est ajouté en catégorie EXTRA, inactif pour ne pas être
+     * proposé à la composition de plats.
+     */
+    private static Map<String, Long> resoudreIngredients(Connection c, Collection<String> noms) throws SQLException {
+        Map<String, String> voulus = new HashMap<>();
+        for (String nom : noms) {
+            String k = cle(nom);
+            if (!k.isEmpty())
+                voulus.putIfAbsent(k, nom.trim());
+        }
+        Map<String, Long> ids = new HashMap<>();
+        if (voulus.isEmpty())
+            return ids;
+        // La collation de la base ignore casse et accents : le nom saisi et sa
+        // forme pliée suffisent à retrouver l'entrée, le pli confirme ensuite.
+        Set<String> candidats = new LinkedHashSet<>(voulus.values());
+        candidats.addAll(voulus.keySet());
+        String marques = String.join(",", Collections.nCopies(candidats.size(), "?"));
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT id, nom FROM ingredients WHERE nom IN (" + marques + ") ORDER BY id")) {
+            int i = 1;
+            for (String nom : candidats)
+                ps.setString(i++, nom);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String k = cle(rs.getString(2));
+                    if (voulus.containsKey(k))
+                        ids.putIfAbsent(k, rs.getLong(1));
+                }
+            }
+        }
+        Set<String> manquants = new LinkedHashSet<>(voulus.keySet());
+        manquants.removeAll(ids.keySet());
+        if (manquants.isEmpty())
+            return ids;
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO ingredients (nom, categorie, actif) VALUES (?, 'EXTRA', FALSE)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (String k : manquants) {
+                ps.setString(1, voulus.get(k));
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next())
+                        ids.put(k, keys.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static String cle(String nom) {
+        return nom == null ? "" : TextUtils.plier(nom).trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Reprise des anciennes colonnes texte {@code ingredients} et
+     * {@code allergenes} (valeurs séparées par des virgules) dans les tables
+     * de liaison, une seule fois par base : la reprise est inscrite dans
+     * {@code schema_migrations} dans la même transaction. Les colonnes texte
+     * restent écrites à chaque création ou modification
+     * ({@link #ecrireColonnesTexte}) : un retour à la version précédente reste
+     * possible jusqu'à leur suppression par le script de migration.
+     */
+    private boolean migrerComposition() {
+        String sql = "SELECT id, ingredients, allergenes FROM repas_detaille "
+                + "WHERE ingredients <> '' OR allergenes <> ''";
+        try (Connection c = dbConnection.getConnection()) {
+            if (c == null)
+                return false;
+            try (PreparedStatement ps = c.prepareStatement("SELECT 1 FROM schema_migrations WHERE nom = ?")) {
+                ps.setString(1, MIGRATION_COMPOSITION);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next())
+                        return true;
+                }
+            }
+            List<RepasDetaille> aReprendre = new ArrayList<>();
+            try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+                while (rs.next()) {
+                    RepasDetaille r = new RepasDetaille();
+                    r.setId(rs.getLong(1));
+                    r.setIngredients(decouper(rs.getString(2)));
+                    r.setAllergenes(decouper(rs.getString(3)));
+                    aReprendre.add(r);
+                }
+            }
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try (PreparedStatement marquer = c.prepareStatement("INSERT INTO schema_migrations (nom) VALUES (?)")) {
+                for (RepasDetaille r : aReprendre)
+                    ecrireComposition(c, r, true);
+                marquer.setString(1, MIGRATION_COMPOSITION);
+                marquer.executeUpdate();
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+            logger.info("Ingrédients et allergènes de {} repas repris dans repas_ingredient et repas_allergene",
+                    aReprendre.size());
+            if (!aReprendre.isEmpty())
+                IndexCompatibiliteRepas.getInstance().invalider();
+            return true;
+        } catch (SQLException e) {
+            logger.error("Erreur reprise des ingrédients et allergènes de repas_detaille", e);
+            return false;
+        }
+    }
+
+    private static List<String> decouper(String texte) {
+        List<String> valeurs = new ArrayList<>();
+        if (texte != null) {
+            for (String v : texte.split(",")) {
+                if (!v.isBlank())
+                    valeurs.add(v.trim());
+            }
+        }
+        return valeurs;
+    }
+
     @FunctionalInterface
     interface SQLConsumer<T> {
         void accept(T t) throws Exception;
@@ -0,0 +1,90 @@
+package com.gestion.services;
+
+import com.gestion.tools.MyConnection;
+import com.gestion.tools.SchemaUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * État des clés uniques des tables de restauration : {@code CREATE TABLE IF
+ * NOT EXISTS} laisse une table existante telle quelle, une base ancienne peut
+ * donc ne pas les avoir. Les clés de {@code repas} et de {@code presence}
+ * sont seulement constatées ; sans elles les services vérifient l'absence de
+ * doublon avant d'écrire, jusqu'au passage du script
+ * {@code docs/migration_restauration_unicite.sql}.
+ */
+final class RestaurationSchema {
+
+    private static final Logger logger = LoggerFactory.getLogger(RestaurationSchema.class);
+
+    private static final AtomicBoolean verifie = new AtomicBoolean();
+    /** Vrai si la clé (participant_id, date) de {@code repas} existe. */
+    private static volatile boolean uniciteRepas;
+    /** Vrai si la clé (participant_id, date, service_repas) de {@code presence} existe. */
+    private static volatile boolean unicitePresence;
+
+    private RestaurationSchema() {
+    }
+
+    /** Lit l'état du schéma ; refait au prochain appel tant que la lecture échoue. */
+    static void assurer() {
+        if (verifie.get())
+            return;
+        synchronized (RestaurationSchema.class) {
+            if (verifie.get())
+                return;
+            try (Connection c = MyConnection.getInstance().getConnection()) {
+                if (c == null)
+                    throw new SQLException("Aucune connexion disponible");
+                uniciteRepas = SchemaUtils.indexExiste(c, "repas", "uk_participant_date");
+                if (!uniciteRepas && SchemaUtils.tableExiste(c, "repas"))
+                    logger.warn("Clé unique repas (participant_id, date) absente : doublons vérifiés avant écriture, "
+                            + "voir docs/migration_restauration_unicite.sql");
+                verifierPresence(c);
+                verifie.set(true);
+            } catch (SQLException e) {
+                logger.error("Vérification des tables de restauration impossible : {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * La clé unique de {@code repas} existe ; sinon l'appelant vérifie
+     * lui-même l'absence de doublon avant d'écrire.
+     */
+    static boolean uniciteRepas() {
+        assurer();
+        return uniciteRepas;
+    }
+
+    /**
+     * La clé unique (participant_id, date, service_repas) de {@code presence}
+     * existe ; sinon l'appelant vérifie lui-même qu'un pointage n'est pas déjà
+     * enregistré.
+     */
+    static boolean unicitePresence() {
+        assurer();
+        return unicitePresence;
+    }
+
+    /**
+     * Colonne {@code service_repas} et clé unique dont dépend l'idempotence
+     * des pointages. Sans la colonne, les pointages ne peuvent pas être
+     * écrits : l'erreur est signalée, le script fait l'ajout.
+     */
+    private static void verifierPresence(Connection c) throws SQLException {
+        unicitePresence = SchemaUtils.indexExiste(c, "presence", "uk_participant_date_service");
+        if (unicitePresence || !SchemaUtils.tableExiste(c, "presence"))
+            return;
+        if (!SchemaUtils.colonneExiste(c, "presence", "service_repas"))
+            logger.error("Colonne presence.service_repas absente : les pointages échoueront, "
+                    + "voir docs/migration_restauration_unicite.sql");
+        else
+            logger.warn("Clé unique presence (participant_id, date, service_repas) absente : "
+                    + "pointages vérifiés avant écriture, voir docs/migration_restauration_unicite.sql");
+    }
+}
@@ -10,7 +10,9 @@ import org.slf4j.LoggerFactory;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -19,13 +21,19 @@ public class RestaurationServiceImpl implements RestaurationService {
     private static final Logger logger = LoggerFactory.getLogger(RestaurationServiceImpl.class);
     private final MyConnection dbConnection = MyConnection.getInstance();
 
+    /** Requêtes de lecture de chaque type, par clé primaire ou table entière. */
+    private final Map<Restauration.TypeRestauration, Requetes> requetes = new EnumMap<>(Map.of(
+            Restauration.TypeRestauration.MENU, Requetes.de("menu_proposition", this::mapMenu),
+            Restauration.TypeRestauration.OPTION, Requetes.de("option_restauration", this::mapOption),
+            Restauration.TypeRestauration.REPAS, Requetes.de("repas", this::mapRepas),
+            Restauration.TypeRestauration.RESTRICTION, Requetes.de("restriction_alimentaire", this::mapRestriction),
+            Restauration.TypeRestauration.PRESENCE, Requetes.de("presence", this::mapPresence)));
+
     private <T> List<T> executeQuery(String sql,
             SQLConsumer<PreparedStatement> setter,
             SQLFunction<ResultSet, T> mapper) {
         List<T> list = new java.util.ArrayList<>();
-        Connection c = null;
-        try {
-            c = dbConnection.getConnection();
+        try (Connection c = dbConnection.getConnection()) {
             if (c == null) {
                 logger.error("Connection value is null for query: {}", sql);
                 return list;
@@ -69,29 +77,16 @@ public class RestaurationServiceImpl implements RestaurationService {
 
     @Override
     public Optional<Restauration> findById(Long id, Restauration.TypeRestauration type) {
-        return findAll(type).stream().filter(x -> id.equals(x.getId())).findFirst();
+        if (id == null || type == null)
+            return Optional.empty();
+        Requetes q = requetes.get(type);
+        return executeQuery(q.parId(), ps -> ps.setLong(1, id), q.mapper()).stream().findFirst();
     }
 
     @Override
     public List<Restauration> findAll(Restauration.TypeRestauration type) {
-        return switch (type) {
-            case MENU -> executeQuery("SELECT * FROM menu_proposition", null, this::mapMenu).stream()
-                    .peek(m -> m.setType(Restauration.TypeRestauration.MENU))
-                    .collect(Collectors.toList());
-            case OPTION -> executeQuery("SELECT * FROM option_restauration", null, this::mapOption).stream()
-                    .peek(o -> o.setType(Restauration.TypeRestauration.OPTION))
-                    .collect(Collectors.toList());
-            case REPAS -> executeQuery("SELECT * FROM repas", null, this::mapRepas).stream()
-                    .peek(x -> x.setType(Restauration.TypeRestauration.REPAS))
-                    .collect(Collectors.toList());
-            case RESTRICTION ->
-                executeQuery("SELECT * FROM restriction_alimentaire", null, this::mapRestriction).stream()
-                        .peek(x -> x.setType(Restauration.TypeRestauration.RESTRICTION))
-                        .collect(Collectors.toList());
-            case PRESENCE -> executeQuery("SELECT * FROM presence", null, this::mapPresence).stream()
-                    .peek(x -> x.setType(Restauration.TypeRestauration.PRESENCE))
-                    .collect(Collectors.toList());
-        };
+        Requetes q = requetes.get(type);
+        return executeQuery(q.tout(), null, q.mapper());
     }
 
     @Override
@@ -172,8 +167,8 @@ public class RestaurationServiceImpl implements RestaurationService {
 
     @Override
     public boolean hasRepasForParticipantAndDate(Long participantId, LocalDate date) {
-        return findRepasByParticipantId(participantId).stream()
-                .anyMatch(r -> date.equals(r.getDate()));
+        // Servi par la clé unique (participant_id, date)
+        return existe("SELECT 1 FROM repas WHERE participant_id=? AND date=? LIMIT 1", participantId, date);
     }
 
     @Override
@@ -185,16 +180,27 @@ public class RestaurationServiceImpl implements RestaurationService {
 
     @Override
     public List<Restauration> findAllPresences() {
-        return executeQuery("SELECT * FROM presence", null, this::mapPresence).stream()
-                .peek(p -> p.setType(Restauration.TypeRestauration.PRESENCE))
-                .collect(Collectors.toList());
+        return findAll(Restauration.TypeRestauration.PRESENCE);
     }
 
     @Override
     public List<Restauration> findPresencesByParticipantId(Long participantId) {
-        return findAllPresences().stream()
-                .filter(p -> participantId.equals(p.getParticipantId()))
-                .collect(Collectors.toList());
+        return executeQuery("SELECT * FROM presence WHERE participant_id=?",
+                ps -> ps.setLong(1, participantId), this::mapPresence);
+    }
+
+    @Override
+    public boolean hasPresenceForParticipantAndDate(Long participantId, LocalDate date) {
+        return existe("SELECT 1 FROM presence WHERE participant_id=? AND date=? LIMIT 1", participantId, date);
+    }
+
+    private boolean existe(String sql, Long participantId, LocalDate date) {
+        if (participantId == null || date == null)
+            return false;
+        return !executeQuery(sql, ps -> {
+            ps.setLong(1, participantId);
+            ps.setDate(2, Date.valueOf(date));
+        }, rs -> Boolean.TRUE).isEmpty();
     }
 
     // ================= INSERTS =================
@@ -231,6 +237,16 @@ public class RestaurationServiceImpl implements RestaurationService {
         if (r.getPrix() != null && r.getPrix().compareTo(BigDecimal.ZERO) < 0) {
             throw new IllegalArgumentException("Prix invalide");
         }
+        if (r.getId() == null) {
+            throw new IllegalArgumentException("Repas sans id");
+        }
+        if (!RestaurationSchema.uniciteRepas() && r.getParticipantId() != null && r.getDate() != null
+                && !executeQuery("SELECT 1 FROM repas WHERE participant_id=? AND date=? AND id<>? LIMIT 1", ps -> {
+                    ps.setLong(1, r.getParticipantId());
+                    ps.setDate(2, Date.valueOf(r.getDate()));
+                    ps.setLong(3, r.getId());
+                }, rs -> Boolean.TRUE).isEmpty())
+            throw new IllegalStateException("Doublon interdit");
         String sql = "UPDATE repas SET nom_repas=?, prix=?, date=?, participant_id=? WHERE id=?";
         try (Connection c = dbConnection.getConnection();
                 PreparedStatement ps = c.prepareStatement(sql)) {
@@ -240,6 +256,8 @@ public class RestaurationServiceImpl implements RestaurationService {
             ps.setLong(4, r.getParticipantId());
             ps.setLong(5, r.getId());
             ps.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new IllegalStateException("Doublon interdit", e);
         }
     }
 
@@ -271,7 +289,9 @@ public class RestaurationServiceImpl implements RestaurationService {
     private void insertRepas(Restauration r) {
         if (r.getPrix() != null && r.getPrix().compareTo(BigDecimal.ZERO) < 0)
             throw new IllegalArgumentException("Prix invalide");
-        if (hasRepasForParticipantAndDate(r.getParticipantId(), r.getDate()))
+        // Le doublon (participant, date) est refusé par la clé unique, sans lecture préalable ;
+        // sur une base où la clé n'a pas pu être ajoutée, il est vérifié avant l'écriture
+        if (!RestaurationSchema.uniciteRepas() && hasRepasForParticipantAndDate(r.getParticipantId(), r.getDate()))
             throw new IllegalStateException("Doublon interdit");
         String sql = "INSERT INTO repas (nom_repas, prix, date, participant_id) VALUES (?,?,?,?)";
         try (Connection c = dbConnection.getConnection();
@@ -282,6 +302,8 @@ public class RestaurationServiceImpl implements RestaurationService {
             ps.setLong(4, r.getParticipantId());
             ps.executeUpdate();
             setGeneratedId(ps, r);
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new IllegalStateException("Doublon interdit", e);
         } catch (SQLException e) {
             logger.error("insertRepas", e);
         }
@@ -302,12 +324,28 @@ public class RestaurationServiceImpl implements RestaurationService {
     }
 
     private void insertPresence(Restauration r) {
-        String sql = "INSERT INTO presence (participant_id, date, abonnement_actif) VALUES (?,?,?)";
+        if (!RestaurationSchema.unicitePresence()) {
+            // Sans la clé unique, la présence déjà pointée est cherchée avant l'écriture
+            List<Long> ids = executeQuery(
+                    "SELECT id FROM presence WHERE participant_id=? AND date=? AND service_repas=? LIMIT 1", ps -> {
+                        ps.setLong(1, r.getParticipantId());
+                        ps.setDate(2, Date.valueOf(r.getDatePresence()));
+                        ps.setString(3, serviceRepas(r).name());
+                    }, rs -> rs.getLong(1));
+            if (!ids.isEmpty()) {
+                r.setId(ids.get(0));
+                return;
+            }
+        }
+        // Idempotent sur (participant, date, service) : une présence déjà pointée rend son id
+        String sql = "INSERT INTO presence (participant_id, date, service_repas, abonnement_actif) VALUES (?,?,?,?) "
+                + "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id)";
         try (Connection c = dbConnection.getConnection();
                 PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setLong(1, r.getParticipantId());
             ps.setDate(2, Date.valueOf(r.getDatePresence()));
-            ps.setBoolean(3, r.isAbonnementActif());
+            ps.setString(3, serviceRepas(r).name());
+            ps.setBoolean(4, r.isAbonnementActif());
             ps.executeUpdate();
             setGeneratedId(ps, r);
         } catch (SQLException e) {
@@ -315,6 +353,10 @@ public class RestaurationServiceImpl implements RestaurationService {
         }
     }
 
+    private static Restauration.ServiceRepas serviceRepas(Restauration r) {
+        return r.getServiceRepas() != null ? r.getServiceRepas() : Restauration.ServiceRepas.DEJEUNER;
+    }
+
     private void setGeneratedId(PreparedStatement ps, Restauration r) throws SQLException {
         try (ResultSet keys = ps.getGeneratedKeys()) {
             if (keys.next())
@@ -376,6 +418,9 @@ public class RestaurationServiceImpl implements RestaurationService {
         Date d = rs.getDate("date");
         if (d != null)
             r.setDatePresence(d.toLocalDate());
+        String service = rs.getString("service_repas");
+        if (service != null)
+            r.setServiceRepas(Restauration.ServiceRepas.valueOf(service));
         r.setAbonnementActif(rs.getBoolean("abonnement_actif"));
         return r;
     }
@@ -387,8 +432,8 @@ public class RestaurationServiceImpl implements RestaurationService {
         String sql = """
                 INSERT INTO participant_restauration
                 (participant_id, evenement_id, besoin_libelle, restriction_libelle, niveau_gravite,
-                 menu_proposition_id, date_limite_modification, annule)
-                VALUES (?,?,?,?,?,?,?,?)
+                 menu_proposition_id, date_limite_modification, annule, restriction_description)
+                VALUES (?,?,?,?,?,?,?,?,?)
                 """;
         try (Connection c = dbConnection.getConnection();
                 PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
@@ -406,11 +451,15 @@ public class RestaurationServiceImpl implements RestaurationService {
             ps.setObject(6, besoin.getMenuPropositionId());
             ps.setObject(7, besoin.getDateLimiteModification());
             ps.setBoolean(8, besoin.isAnnule());
+            ps.setString(9, besoin.getRestrictionDescription());
             ps.executeUpdate();
             try (ResultSet keys = ps.getGeneratedKeys()) {
                 if (keys.next())
                     besoin.setId(keys.getLong(1));
             }
+            KitchenDemandForecast prevision = KitchenDemandForecast.siChargee();
+            if (prevision != null)
+                prevision.participantModifie(besoin.getParticipantId(), besoin.getEvenementId());
         } catch (SQLException e) {
             logger.error("createBesoin", e);
         }
@@ -430,16 +479,30 @@ public class RestaurationServiceImpl implements RestaurationService {
                 ps -> ps.setLong(1, participantId), this::mapParticipantRestauration);
     }
 
+    @Override
+    public List<ParticipantRestauration> findBesoinsByEvenementId(Long evenementId) {
+        return executeQuery("SELECT * FROM participant_restauration WHERE evenement_id=?",
+                ps -> ps.setLong(1, evenementId), this::mapParticipantRestauration);
+    }
+
     @Override
     public ParticipantRestauration updateBesoin(ParticipantRestauration besoin) {
-        String sql = "UPDATE participant_restauration SET besoin_libelle=?, restriction_libelle=?, niveau_gravite=?, annule=? WHERE id=?";
+        String sql = """
+                UPDATE participant_restauration
+                SET besoin_libelle=?, restriction_libelle=?, restriction_description=?, niveau_gravite=?, annule=?
+                WHERE id=?
+                """;
         try (Connection c = dbConnection.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, besoin.getBesoinLibelle());
             ps.setString(2, besoin.getRestrictionLibelle());
-            ps.setString(3, besoin.getNiveauGravite());
-            ps.setBoolean(4, besoin.isAnnule());
-            ps.setLong(5, besoin.getId());
+            ps.setString(3, besoin.getRestrictionDescription());
+            ps.setString(4, besoin.getNiveauGravite());
+            ps.setBoolean(5, besoin.isAnnule());
+            ps.setLong(6, besoin.getId());
             ps.executeUpdate();
+            KitchenDemandForecast prevision = KitchenDemandForecast.siChargee();
+            if (prevision != null)
+                prevision.participantModifie(besoin.getParticipantId(), besoin.getEvenementId());
         } catch (SQLException e) {
             logger.error("updateBesoin", e);
         }
@@ -448,10 +511,17 @@ public class RestaurationServiceImpl implements RestaurationService {
 
     @Override
     public boolean deleteBesoin(Long id) {
+        // Le besoin n'est relu que si une prévision suit des événements
+        KitchenDemandForecast prevision = KitchenDemandForecast.siChargee();
+        Optional<ParticipantRestauration> avant = prevision != null && prevision.suitDesEvenements()
+                ? findBesoinById(id) : Optional.empty();
         try (Connection c = dbConnection.getConnection();
                 PreparedStatement ps = c.prepareStatement("DELETE FROM participant_restauration WHERE id=?")) {
             ps.setLong(1, id);
-            return ps.executeUpdate() > 0;
+            boolean supprime = ps.executeUpdate() > 0;
+            if (supprime)
+                avant.ifPresent(b -> prevision.participantModifie(b.getParticipantId(), b.getEvenementId()));
+            return supprime;
         } catch (SQLException e) {
             logger.error("deleteBesoin", e);
         }
@@ -473,6 +543,7 @@ public class RestaurationServiceImpl implements RestaurationService {
         p.setEvenementId(rs.getObject("evenement_id") != null ? rs.getLong("evenement_id") : null);
         p.setBesoinLibelle(rs.getString("besoin_libelle"));
         p.setRestrictionLibelle(rs.getString("restriction_libelle"));
+        p.setRestrictionDescription(rs.getString("restriction_description"));
         p.setNiveauGravite(rs.getString("niveau_gravite"));
         p.setMenuPropositionId(rs.getLong("menu_proposition_id"));
         Date d = rs.getDate("date_limite_modification");
@@ -482,6 +553,16 @@ public class RestaurationServiceImpl implements RestaurationService {
         return p;
     }
 
+    /**
+     * SQL de lecture d'une table, préparé une fois par type.
+     */
+    private record Requetes(String tout, String parId, SQLFunction<ResultSet, Restauration> mapper) {
+
+        static Requetes de(String table, SQLFunction<ResultSet, Restauration> mapper) {
+            return new Requetes("SELECT * FROM " + table, "SELECT * FROM " + table + " WHERE id=?", mapper);
+        }
+    }
+
     @FunctionalInterface
     interface SQLConsumer<T> {
         void accept(T t) throws Exception;
@@ -0,0 +1,142 @@
+package com.gestion.services;
+
+import com.gestion.tools.AhoCorasick;
+import com.gestion.tools.TextUtils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analyse d'une description en un seul passage : contexte social,
+ * mots-clés d'activité et tonalité.
+ * <p>
+ * Tous les lexiques sont compilés une fois dans un même automate
+ * {@link AhoCorasick} qui lit le texte plié à la volée (majuscules et accents
+ * ignorés, sans copie du texte). Un mot du lexique ne compte que s'il commence
+ * un mot du texte et s'il le termine, à une marque de pluriel ou de féminin
+ * près ({@code s}, {@code x}, {@code e}, {@code es}) : « amis » ne se trouve
+ * plus dans « camisole ».
+ */
+public final class TextAnalyzer {
+
+    /** Contextes sociaux par ordre de priorité : le premier reconnu l'emporte. */
+    public enum Contexte { COUPLE, AMIS, FAMILLE, PROFESSIONNEL, SOLO }
+
+    private enum Lexique { CONTEXTE, ACTIVITE, POSITIF, NEGATIF }
+
+    private static final Map<Contexte, String[]> CONTEXTES = new EnumMap<>(Map.of(
+            Contexte.COUPLE, new String[]{"copine", "couple", "romantique", "amoureux"},
+            Contexte.AMIS, new String[]{"amis", "groupe", "équipe", "bande"},
+            Contexte.FAMILLE, new String[]{"famille", "enfants", "parents"},
+            Contexte.PROFESSIONNEL, new String[]{"travail", "professionnel", "collègues"}));
+
+    /** Mots-clés pour les événements de loisirs, dans l'ordre où ils sont rendus. */
+    private static final String[] ACTIVITES = {
+            "camping", "randonnée", "nature", "montagne", "mer", "plage",
+            "barbecue", "musique", "festival", "sport", "aventure",
+            "détente", "spa", "bien-être", "culture", "visite",
+            "gastronomie", "vin", "dégustation", "jeux", "animation"
+    };
+
+    private static final String[] POSITIFS = {
+            "heureux", "content", "excellent", "super", "génial", "fantastique",
+            "amusant", "excitant", "passionnant", "magnifique", "wonderful"
+    };
+
+    private static final String[] NEGATIFS = {
+            "triste", "déçu", "mauvais", "horrible", "terrible",
+            "ennuyeux", "frustrant", "stressant", "difficile", "problème"
+    };
+
+    private static final String[] SUFFIXES = {"s", "x", "e", "es"};
+
+    private static final TextAnalyzer INSTANCE = new TextAnalyzer();
+
+    private final AhoCorasick<Entree> automate;
+
+    private TextAnalyzer() {
+        Map<String, Entree> motifs = new LinkedHashMap<>();
+        CONTEXTES.forEach((contexte, mots) -> {
+            for (String m : mots)
+                motifs.put(TextUtils.plier(m), new Entree(Lexique.CONTEXTE, contexte.ordinal()));
+        });
+        ajouter(motifs, Lexique.ACTIVITE, ACTIVITES);
+        ajouter(motifs, Lexique.POSITIF, POSITIFS);
+        ajouter(motifs, Lexique.NEGATIF, NEGATIFS);
+        this.automate = AhoCorasick.compiler(motifs, c -> TextUtils.plier((char) c));
+    }
+
+    public static TextAnalyzer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Analyse complète de la description ; une description nulle donne SOLO,
+     * aucun mot-clé et une tonalité non positive.
+     */
+    public Analyse analyser(String description) {
+        if (description == null)
+            return new Analyse(Contexte.SOLO, List.of(), 0, 0);
+
+        BitSet contextes = new BitSet();
+        BitSet activites = new BitSet();
+        BitSet positifs = new BitSet();
+        BitSet negatifs = new BitSet();
+        automate.rechercher(description, (debut, fin, e) -> {
+            if (!motEntier(description, debut, fin))
+                return;
+            switch (e.lexique) {
+                case CONTEXTE -> contextes.set(e.rang);
+                case ACTIVITE -> activites.set(e.rang);
+                case POSITIF -> positifs.set(e.rang);
+                case NEGATIF -> negatifs.set(e.rang);
+            }
+        });
+
+        int c = contextes.nextSetBit(0);
+        List<String> motsCles = new ArrayList<>(activites.cardinality());
+        for (int i = activites.nextSetBit(0); i >= 0; i = activites.nextSetBit(i + 1))
+            motsCles.add(ACTIVITES[i]);
+        return new Analyse(c >= 0 ? Contexte.values()[c] : Contexte.SOLO, motsCles,
+                positifs.cardinality(), negatifs.cardinality());
+    }
+
+    private static void ajouter(Map<String, Entree> motifs, Lexique lexique, String[] mots) {
+        for (int i = 0; i < mots.length; i++)
+            motifs.put(TextUtils.plier(mots[i]), new Entree(lexique, i));
+    }
+
+    /** L'occurrence commence un mot et le termine, suffixe de flexion toléré. */
+    private static boolean motEntier(String texte, int debut, int fin) {
+        if (debut > 0 && Character.isLetterOrDigit(texte.charAt(debut - 1)))
+            return false;
+        if (fin == texte.length() || !Character.isLetterOrDigit(texte.charAt(fin)))
+            return true;
+        for (String s : SUFFIXES) {
+            int f = fin + s.length();
+            if (texte.regionMatches(true, fin, s, 0, s.length())
+                    && (f == texte.length() || !Character.isLetterOrDigit(texte.charAt(f))))
+                return true;
+        }
+        return false;
+    }
+
+    private record Entree(Lexique lexique, int rang) {
+    }
+
+    /**
+     * Résultat de l'analyse : contexte social, mots-clés d'activité (dans
+     * l'ordre du lexique, sans doublon) et nombre de mots positifs et négatifs
+     * distincts.
+     */
+    public record Analyse(Contexte contexte, List<String> motsCles, int positifs, int negatifs) {
+
+        public boolean emotionPositive() {
+            return positifs > negatifs;
+        }
+    }
+}
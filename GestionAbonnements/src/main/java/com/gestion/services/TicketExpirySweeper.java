@@ -0,0 +1,203 @@
+package com.gestion.services;
+
+import com.gestion.tools.MyConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tâche de fond qui passe en EXPIRE les tickets VALIDE dont la date
+ * d'expiration est dépassée.
+ * <p>
+ * Chaque passage exécute des {@code UPDATE ... LIMIT n} successifs sur
+ * l'index {@code (statut, date_expiration)} jusqu'à ce qu'un lot revienne
+ * incomplet : les verrous sont tenus lot par lot, jamais sur toute la table.
+ * La borne de date est figée au début du passage pour que la boucle termine
+ * même si des tickets expirent pendant qu'elle tourne.
+ */
+public class TicketExpirySweeper implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketExpirySweeper.class);
+
+    private static final String SQL_EXPIRER = """
+            UPDATE tickets SET statut = 'EXPIRE'
+            WHERE statut = 'VALIDE' AND date_expiration < ?
+            LIMIT ?
+            """;
+    private static final String SQL_PLUS_ANCIEN = """
+            SELECT MIN(date_expiration) FROM tickets
+            WHERE statut = 'VALIDE' AND date_expiration < NOW()
+            """;
+
+    private final MyConnection dbConnection;
+    private final Config config;
+    private final ScheduledExecutorService scheduler;
+
+    // Métriques
+    private final LongAdder passages = new LongAdder();
+    private final LongAdder expires = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+    private volatile long dernierPassage;
+    private volatile long derniereDureeMs;
+    private volatile long dernierRetardMs;
+
+    public TicketExpirySweeper(MyConnection dbConnection, Config config) {
+        this.dbConnection = dbConnection;
+        this.config = config;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ticket-expiry-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Planifie les passages ; le premier a lieu après {@code initialDelayMs}.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::passageSilencieux,
+                config.initialDelayMs, config.intervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Expiration des tickets planifiée toutes les {} ms (lots de {})",
+                config.intervalMs, config.batchSize);
+    }
+
+    /**
+     * Exécute un passage complet et renvoie le nombre de tickets expirés.
+     */
+    public synchronized int sweep() throws SQLException {
+        long debut = System.currentTimeMillis();
+        Timestamp borne = new Timestamp(debut);
+        int total = 0;
+        try (Connection conn = dbConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("Aucune connexion disponible");
+            dernierRetardMs = retard(conn, debut);
+            try (PreparedStatement ps = conn.prepareStatement(SQL_EXPIRER)) {
+                ps.setTimestamp(1, borne);
+                ps.setInt(2, config.batchSize);
+                int n;
+                do {
+                    n = ps.executeUpdate();
+                    total += n;
+                } while (n == config.batchSize);
+            }
+        }
+        passages.increment();
+        expires.add(total);
+        dernierPassage = debut;
+        derniereDureeMs = System.currentTimeMillis() - debut;
+        if (total > 0) {
+            TicketGeoIndex.retirerExpires(borne.toLocalDateTime());
+            logger.info("{} ticket(s) expiré(s) en {} ms (retard max {} ms)",
+                    total, derniereDureeMs, dernierRetardMs);
+        }
+        return total;
+    }
+
+    public Stats getStats() {
+        return new Stats(passages.sum(), expires.sum(), echecs.sum(),
+                dernierPassage, derniereDureeMs, dernierRetardMs);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void passageSilencieux() {
+        try {
+            sweep();
+        } catch (SQLException | RuntimeException e) {
+            echecs.increment();
+            logger.warn("Passage d'expiration des tickets en échec : {}", e.getMessage());
+        }
+    }
+
+    /** Âge du plus ancien ticket expiré encore VALIDE, en ms (0 si aucun). */
+    private static long retard(Connection conn, long maintenant) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_PLUS_ANCIEN);
+                ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) {
+                Timestamp plusAncien = rs.getTimestamp(1);
+                if (plusAncien != null)
+                    return Math.max(0, maintenant - plusAncien.getTime());
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Réglages de cadence ; surchargeables par propriétés système
+     * {@code lamma.tickets.expiry.*}.
+     */
+    public static class Config {
+        long initialDelayMs = 10_000;
+        long intervalMs = 60_000;
+        int batchSize = 1_000;
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.initialDelayMs = Long.getLong("lamma.tickets.expiry.initialDelayMs", c.initialDelayMs);
+            c.intervalMs = Long.getLong("lamma.tickets.expiry.intervalMs", c.intervalMs);
+            c.batchSize(Integer.getInteger("lamma.tickets.expiry.batchSize", c.batchSize));
+            return c;
+        }
+
+        public Config initialDelayMs(long v) { this.initialDelayMs = v; return this; }
+        public Config intervalMs(long v) { this.intervalMs = v; return this; }
+
+        /** Un lot vide ferait boucler le balayage sans fin ({@code n == batchSize}). */
+        public Config batchSize(int v) {
+            if (v < 1)
+                throw new IllegalArgumentException("lamma.tickets.expiry.batchSize doit être au moins 1 : " + v);
+            this.batchSize = v;
+            return this;
+        }
+    }
+
+    /**
+     * Instantané des métriques d'expiration.
+     */
+    public static class Stats {
+        private final long passages;
+        private final long expires;
+        private final long echecs;
+        private final long dernierPassage;
+        private final long derniereDureeMs;
+        private final long dernierRetardMs;
+
+        Stats(long passages, long expires, long echecs, long dernierPassage,
+                long derniereDureeMs, long dernierRetardMs) {
+            this.passages = passages;
+            this.expires = expires;
+            this.echecs = echecs;
+            this.dernierPassage = dernierPassage;
+            this.derniereDureeMs = derniereDureeMs;
+            this.dernierRetardMs = dernierRetardMs;
+        }
+
+        public long getPassages() { return passages; }
+        public long getExpires() { return expires; }
+        public long getEchecs() { return echecs; }
+        /** Début du dernier passage réussi (epoch ms), 0 si aucun. */
+        public long getDernierPassage() { return dernierPassage; }
+        public long getDerniereDureeMs() { return derniereDureeMs; }
+        /** Âge, au début du dernier passage, du plus ancien ticket en attente d'expiration. */
+        public long getDernierRetardMs() { return dernierRetardMs; }
+
+        @Override
+        public String toString() {
+            return String.format("passages=%d expirés=%d échecs=%d dernière durée=%dms retard=%dms",
+                    passages, expires, echecs, derniereDureeMs, dernierRetardMs);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.gestion.services;
+
+import com.gestion.entities.Ticket;
+import com.gestion.tools.BloomFilter;
+import com.gestion.tools.MyConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contrôle d'accès aux portes par code unique de ticket.
+ * <p>
+ * Un passage coûte au plus une requête indexée sur {@code idx_code_unique} :
+ * <ol>
+ * <li>les codes déjà passés récemment sont servis par un cache LRU borné ;</li>
+ * <li>un filtre de Bloom des codes connus rejette les codes inexistants sans
+ * toucher la base ;</li>
+ * <li>sinon un {@code UPDATE} conditionnel fait passer le ticket de VALIDE à
+ * UTILISE de façon atomique : deux portes qui scannent le même code en même
+ * temps ne peuvent pas l'accepter toutes les deux.</li>
+ * </ol>
+ * L'état est partagé entre instances car les contrôleurs instancient leurs
+ * services.
+ */
+public class TicketGateValidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketGateValidator.class);
+
+    private static final int CACHE_MAX = 10_000;
+    private static final long CACHE_TTL_MS = 60_000;
+    /** Délai minimal entre deux rattrapages du filtre sur un code absent. */
+    private static final long REFRESH_MIN_MS = 1_000;
+    private static final long BLOOM_MIN_CAPACITY = 100_000;
+    private static final double BLOOM_FPP = 0.01;
+
+    private static final String SQL_CONSOMMER = """
+            UPDATE tickets SET statut = 'UTILISE'
+            WHERE code_unique = ? AND statut = 'VALIDE'
+              AND (date_expiration IS NULL OR date_expiration > NOW())
+            """;
+    private static final String SQL_STATUT = "SELECT statut FROM tickets WHERE code_unique = ?";
+    private static final String SQL_CODES = "SELECT id, code_unique FROM tickets WHERE id > ? ORDER BY id";
+
+    /** Codes récemment résolus → issue d'un nouveau passage. */
+    private static final Map<String, CacheEntry> RECENTS = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > CACHE_MAX;
+        }
+    };
+
+    private static final Object BLOOM_LOCK = new Object();
+    private static volatile BloomFilter bloom;
+    private static final AtomicLong BLOOM_COUNT = new AtomicLong();
+    private static volatile long bloomMaxId;
+    private static volatile long lastRefresh;
+
+    private final MyConnection dbConnection;
+
+    public TicketGateValidator(MyConnection dbConnection) {
+        this.dbConnection = dbConnection;
+    }
+
+    /**
+     * Passe un ticket au contrôle : l'accepte et le marque UTILISE s'il est
+     * encore valide, sinon indique pourquoi il est refusé.
+     */
+    public Ticket.ResultatScan scanner(String codeUnique) {
+        if (codeUnique == null || codeUnique.isBlank())
+            return Ticket.ResultatScan.INCONNU;
+        String code = codeUnique.trim();
+
+        Ticket.ResultatScan cached = depuisCache(code);
+        if (cached != null)
+            return cached;
+        if (!estConnu(code))
+            return Ticket.ResultatScan.INCONNU;
+
+        try (Connection conn = dbConnection.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_CONSOMMER)) {
+                ps.setString(1, code);
+                if (ps.executeUpdate() == 1) {
+                    memoriser(code, Ticket.ResultatScan.DEJA_UTILISE);
+                    return Ticket.ResultatScan.ACCEPTE;
+                }
+            }
+            Ticket.ResultatScan refus = motifRefus(conn, code);
+            if (refus != Ticket.ResultatScan.INCONNU)
+                memoriser(code, refus);
+            return refus;
+        } catch (SQLException e) {
+            logger.error("Erreur scan ticket {}", code, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Le code existe-t-il peut-être ? {@code false} n'est rendu qu'après un
+     * rattrapage du filtre qui ne contient toujours pas le code ; {@code true}
+     * doit être confirmé en base.
+     */
+    public boolean estConnu(String code) {
+        BloomFilter filtre = filtre();
+        if (filtre == null || filtre.mightContain(code))
+            return true;
+        // Ticket créé par une autre instance depuis le dernier chargement. Si le
+        // rattrapage est différé (REFRESH_MIN_MS), seule la base peut trancher.
+        if (!rattraper())
+            return true;
+        filtre = bloom;
+        return filtre == null || filtre.mightContain(code);
+    }
+
+    /** À appeler après l'insertion d'un ticket. */
+    public static void enregistrer(String code) {
+        BloomFilter filtre = bloom;
+        if (filtre != null && code != null) {
+            filtre.put(code);
+            BLOOM_COUNT.incrementAndGet();
+        }
+    }
+
+    /** À appeler quand le statut d'un ticket change hors du scan. */
+    public static void oublier(String code) {
+        if (code == null)
+            return;
+        synchronized (RECENTS) {
+            RECENTS.remove(code.trim());
+        }
+    }
+
+    private Ticket.ResultatScan motifRefus(Connection conn, String code) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_STATUT)) {
+            ps.setString(1, code);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next())
+                    return Ticket.ResultatScan.INCONNU;
+                Ticket.StatutTicket statut = Ticket.StatutTicket.valueOf(rs.getString("statut"));
+                return switch (statut) {
+                    case UTILISE -> Ticket.ResultatScan.DEJA_UTILISE;
+                    case ANNULE -> Ticket.ResultatScan.ANNULE;
+                    case EXPIRE -> Ticket.ResultatScan.EXPIRE;
+                    // VALIDE mais l'UPDATE n'a rien modifié : date d'expiration dépassée
+                    case VALIDE -> Ticket.ResultatScan.EXPIRE;
+                };
+            }
+        }
+    }
+
+    private static Ticket.ResultatScan depuisCache(String code) {
+        synchronized (RECENTS) {
+            CacheEntry entry = RECENTS.get(code);
+            if (entry == null)
+                return null;
+            if (System.currentTimeMillis() - entry.at > CACHE_TTL_MS) {
+                RECENTS.remove(code);
+                return null;
+            }
+            return entry.resultat;
+        }
+    }
+
+    private static void memoriser(String code, Ticket.ResultatScan resultat) {
+        synchronized (RECENTS) {
+            RECENTS.put(code, new CacheEntry(resultat, System.currentTimeMillis()));
+        }
+    }
+
+    private BloomFilter filtre() {
+        BloomFilter filtre = bloom;
+        if (filtre != null)
+            return filtre;
+        synchronized (BLOOM_LOCK) {
+            if (bloom == null && System.currentTimeMillis() - lastRefresh >= REFRESH_MIN_MS)
+                charger(0, null);
+            return bloom;
+        }
+    }
+
+    /** Recharge les codes récents ; {@code false} si le délai minimal ou la base l'a empêché. */
+    private boolean rattraper() {
+        if (System.currentTimeMillis() - lastRefresh < REFRESH_MIN_MS)
+            return false;
+        synchronized (BLOOM_LOCK) {
+            if (System.currentTimeMillis() - lastRefresh < REFRESH_MIN_MS)
+                return false;
+            BloomFilter filtre = bloom;
+            // Capacité dépassée : le taux de faux positifs se dégrade, on reconstruit
+            if (filtre == null || BLOOM_COUNT.get() > filtre.getCapacity())
+                return charger(0, null);
+            return charger(bloomMaxId, filtre);
+        }
+    }
+
+    /**
+     * Charge les codes d'id supérieur à {@code depuisId} dans {@code cible}, ou
+     * dans un nouveau filtre si {@code cible} est nulle. Appelé sous BLOOM_LOCK.
+     */
+    private boolean charger(long depuisId, BloomFilter cible) {
+        lastRefresh = System.currentTimeMillis();
+        long count = 0;
+        long maxId = depuisId;
+        try (Connection conn = dbConnection.getConnection()) {
+            BloomFilter filtre = cible;
+            if (filtre == null) {
+                long total = 0;
+                try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM tickets");
+                        ResultSet rs = ps.executeQuery()) {
+                    if (rs.next())
+                        total = rs.getLong(1);
+                }
+                filtre = new BloomFilter(Math.max(BLOOM_MIN_CAPACITY, total * 2), BLOOM_FPP);
+            }
+            try (PreparedStatement ps = conn.prepareStatement(SQL_CODES)) {
+                ps.setLong(1, depuisId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        maxId = Math.max(maxId, rs.getLong(1));
+                        filtre.put(rs.getString(2));
+                        count++;
+                    }
+                }
+            }
+            if (cible == null)
+                BLOOM_COUNT.set(count);
+            else
+                BLOOM_COUNT.addAndGet(count);
+            bloomMaxId = maxId;
+            bloom = filtre;
+            if (cible == null)
+                logger.info("Filtre de Bloom des tickets chargé : {} codes", count);
+            return true;
+        } catch (SQLException e) {
+            // Sans filtre, chaque scan interroge la base : plus lent mais correct
+            logger.error("Erreur chargement filtre des codes tickets", e);
+            return false;
+        }
+    }
+
+    private static final class CacheEntry {
+        final Ticket.ResultatScan resultat;
+        final long at;
+
+        CacheEntry(Ticket.ResultatScan resultat, long at) {
+            this.resultat = resultat;
+            this.at = at;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.gestion.services;
+
+import com.gestion.entities.Ticket;
+import com.gestion.tools.GeoGridIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Index en grille des tickets valides géolocalisés, pour les vues carte
+ * (« tickets près de cette entrée ») qui interrogent souvent la même zone.
+ * <p>
+ * L'index est reconstruit à la demande quand il a plus de {@link #TTL_MS} ou
+ * qu'une écriture en masse a appelé {@link #invalidate()}. Les écritures d'un
+ * seul ticket (création, modification, suppression, expiration) le tiennent à
+ * jour sur place par {@link #ajouter}, {@link #mettreAJour}, {@link #retirer}
+ * et {@link #retirerExpires}. Les passages aux portes ne le touchent pas : un
+ * ticket scanné peut y rester visible jusqu'à l'expiration du TTL.
+ */
+public class TicketGeoIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketGeoIndex.class);
+
+    static final long TTL_MS = 60_000;
+    /** ~1,1 km en latitude : quelques cellules pour un rayon de l'ordre du km. */
+    private static final double CELL_DEG = 0.01;
+
+    private static final AtomicLong GENERATION = new AtomicLong();
+    private static final Object LOCK = new Object();
+    private static volatile Snapshot current;
+
+    private final Supplier<List<Ticket>> loader;
+
+    /**
+     * @param loader charge les tickets valides ayant des coordonnées
+     */
+    public TicketGeoIndex(Supplier<List<Ticket>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Tickets valides à moins de {@code rayonKm}, du plus proche au plus éloigné.
+     */
+    public List<Ticket> proches(double latitude, double longitude, double rayonKm) {
+        return index().withinRadius(latitude, longitude, rayonKm);
+    }
+
+    /**
+     * À appeler après une écriture en masse sur la table tickets ; l'index
+     * sera reconstruit à la prochaine lecture.
+     */
+    public static void invalidate() {
+        GENERATION.incrementAndGet();
+    }
+
+    /**
+     * Indexe un ticket créé, s'il est valide et géolocalisé.
+     */
+    public static void ajouter(Ticket t) {
+        mettreAJour(t);
+    }
+
+    /**
+     * Reporte la modification d'un ticket : retiré s'il n'est plus valide,
+     * remplacé sinon. Un ticket sans coordonnées garde celles déjà indexées
+     * (la mise à jour ne touche pas la position).
+     */
+    public static void mettreAJour(Ticket t) {
+        if (t == null || t.getId() == null)
+            return;
+        synchronized (LOCK) {
+            Snapshot s = current;
+            if (s == null)
+                return;
+            Position ancienne = s.retirer(t.getId());
+            if (t.getStatut() != Ticket.StatutTicket.VALIDE)
+                return;
+            if (t.getLatitude() != null && t.getLongitude() != null)
+                s.ajouter(t.getLatitude(), t.getLongitude(), t);
+            else if (ancienne != null)
+                s.ajouter(ancienne.lat(), ancienne.lon(), t);
+        }
+    }
+
+    /**
+     * Retire un ticket supprimé.
+     */
+    public static void retirer(Long id) {
+        if (id == null)
+            return;
+        synchronized (LOCK) {
+            Snapshot s = current;
+            if (s != null)
+                s.retirer(id);
+        }
+    }
+
+    /**
+     * Retire les tickets expirés avant {@code borne}, comme le passage
+     * d'expiration vient de le faire en base.
+     */
+    public static void retirerExpires(LocalDateTime borne) {
+        synchronized (LOCK) {
+            Snapshot s = current;
+            if (s == null)
+                return;
+            List<Long> expires = new ArrayList<>();
+            for (Map.Entry<Long, Position> e : s.parId.entrySet()) {
+                LocalDateTime expiration = e.getValue().ticket().getDateExpiration();
+                if (expiration != null && expiration.isBefore(borne))
+                    expires.add(e.getKey());
+            }
+            for (Long id : expires)
+                s.retirer(id);
+        }
+    }
+
+    private GeoGridIndex<Ticket> index() {
+        Snapshot s = current;
+        if (s != null && s.estFrais())
+            return s.grid;
+        synchronized (LOCK) {
+            s = current;
+            if (s != null && s.estFrais())
+                return s.grid;
+            long generation = GENERATION.get();
+            long debut = System.nanoTime();
+            s = new Snapshot(new GeoGridIndex<>(CELL_DEG), System.currentTimeMillis(), generation);
+            for (Ticket t : loader.get()) {
+                if (t.getLatitude() != null && t.getLongitude() != null)
+                    s.ajouter(t.getLatitude(), t.getLongitude(), t);
+            }
+            current = s;
+            logger.debug("Index géographique des tickets : {} tickets en {} ms",
+                    s.grid.size(), (System.nanoTime() - debut) / 1_000_000);
+            return s.grid;
+        }
+    }
+
+    private static final class Snapshot {
+        final GeoGridIndex<Ticket> grid;
+        final long builtAt;
+        final long generation;
+        /** Tickets indexés par id, pour retrouver la cellule d'un ticket à retirer. */
+        final Map<Long, Position> parId = new HashMap<>();
+
+        Snapshot(GeoGridIndex<Ticket> grid, long builtAt, long generation) {
+            this.grid = grid;
+            this.builtAt = builtAt;
+            this.generation = generation;
+        }
+
+        void ajouter(double lat, double lon, Ticket t) {
+            grid.add(lat, lon, t);
+            if (t.getId() != null)
+                parId.put(t.getId(), new Position(lat, lon, t));
+        }
+
+        Position retirer(Long id) {
+            Position ancienne = parId.remove(id);
+            if (ancienne != null)
+                grid.remove(ancienne.lat(), ancienne.lon(), x -> id.equals(x.getId()));
+            return ancienne;
+        }
+
+        boolean estFrais() {
+            return generation == GENERATION.get() && System.currentTimeMillis() - builtAt < TTL_MS;
+        }
+    }
+
+    private record Position(double lat, double lon, Ticket ticket) {
+    }
+}
@@ -1,11 +1,18 @@
 package com.gestion.services;
 
+import com.gestion.entities.BilanRejeu;
+import com.gestion.entities.Participation;
+import com.gestion.entities.ScanHorsLigne;
 import com.gestion.entities.Ticket;
 import com.gestion.interfaces.TicketService;
+import com.gestion.tools.GeoUtils;
 import com.gestion.tools.MyConnection;
+import com.gestion.tools.TicketSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -16,10 +23,18 @@ import java.util.*;
 public class TicketServiceImpl implements TicketService {
 
     private static final Logger logger = LoggerFactory.getLogger(TicketServiceImpl.class);
+    private static final String SQL_INSERT = "INSERT INTO tickets (user_id, participation_id, type, code_unique, latitude, longitude, lieu, statut, format, date_creation, date_expiration, qr_code, informations_supplementaires) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    /** Lignes par executeBatch lors d'une émission en masse. */
+    private static final int BATCH_SIZE = 1000;
     private final MyConnection dbConnection;
+    private final TicketGateValidator gate;
+    private final TicketGeoIndex geoIndex;
 
     public TicketServiceImpl() {
         this.dbConnection = MyConnection.getInstance();
+        this.gate = new TicketGateValidator(dbConnection);
+        this.geoIndex = new TicketGeoIndex(() -> query(
+                "statut = 'VALIDE' AND latitude IS NOT NULL AND longitude IS NOT NULL", null));
     }
 
     @Override
@@ -31,27 +46,16 @@ public class TicketServiceImpl implements TicketService {
         if (t.getDateExpiration() == null)
             t.setDateExpiration(t.getDateCreation().plusDays(7));
 
-        String sql = "INSERT INTO tickets (user_id, participation_id, type, code_unique, latitude, longitude, lieu, statut, format, date_creation, date_expiration, qr_code, informations_supplementaires) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
         try (Connection conn = dbConnection.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setLong(1, t.getUserId());
-            ps.setLong(2, t.getParticipationId());
-            ps.setString(3, t.getType().name());
-            ps.setString(4, t.getCodeUnique());
-            ps.setObject(5, t.getLatitude(), Types.DOUBLE);
-            ps.setObject(6, t.getLongitude(), Types.DOUBLE);
-            ps.setString(7, t.getLieu());
-            ps.setString(8, t.getStatut().name());
-            ps.setString(9, t.getFormat().name());
-            ps.setTimestamp(10, Timestamp.valueOf(t.getDateCreation()));
-            ps.setTimestamp(11, Timestamp.valueOf(t.getDateExpiration()));
-            ps.setString(12, t.getQrCode());
-            ps.setString(13, t.getInformationsSupplementaires());
+                PreparedStatement ps = conn.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS)) {
+            bindInsert(ps, t);
             ps.executeUpdate();
             try (ResultSet keys = ps.getGeneratedKeys()) {
                 if (keys.next())
                     t.setId(keys.getLong(1));
             }
+            TicketGateValidator.enregistrer(t.getCodeUnique());
+            TicketGeoIndex.ajouter(t);
             return t;
         } catch (SQLException e) {
             logger.error("Error create ticket", e);
@@ -59,6 +63,78 @@ public class TicketServiceImpl implements TicketService {
         }
     }
 
+    /**
+     * Émission groupée : les tickets sont construits en parallèle (code unique,
+     * QR, expiration) puis insérés par lots de {@value #BATCH_SIZE} dans une
+     * seule transaction. Avec {@code rewriteBatchedStatements} chaque lot part
+     * en un seul INSERT multi-lignes ; les ids générés sont reportés dans
+     * l'ordre de la liste.
+     */
+    @Override
+    public List<Ticket> emettreTicketsEnMasse(List<Participation> participations, Ticket.TypeTicket type,
+            Ticket.FormatTicket format, Double latitude, Double longitude, String lieu) {
+        if (participations.isEmpty())
+            return List.of();
+        long debut = System.nanoTime();
+        List<Ticket> tickets = participations.parallelStream()
+                .map(p -> new Ticket(p.getId(), p.getUserId(), type, latitude, longitude, lieu, format))
+                .toList();
+
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS)) {
+            conn.setAutoCommit(false);
+            try {
+                for (int from = 0; from < tickets.size(); from += BATCH_SIZE) {
+                    List<Ticket> lot = tickets.subList(from, Math.min(from + BATCH_SIZE, tickets.size()));
+                    for (Ticket t : lot) {
+                        bindInsert(ps, t);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (Ticket t : lot) {
+                            if (!keys.next())
+                                break;
+                            t.setId(keys.getLong(1));
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Error emission tickets en masse", e);
+            throw new RuntimeException(e);
+        }
+
+        for (Ticket t : tickets)
+            TicketGateValidator.enregistrer(t.getCodeUnique());
+        TicketGeoIndex.invalidate();
+        long ms = Math.max(1, (System.nanoTime() - debut) / 1_000_000);
+        logger.info("{} tickets émis en {} ms ({} tickets/s)", tickets.size(), ms, tickets.size() * 1000L / ms);
+        return tickets;
+    }
+
+    private static void bindInsert(PreparedStatement ps, Ticket t) throws SQLException {
+        ps.setLong(1, t.getUserId());
+        ps.setLong(2, t.getParticipationId());
+        ps.setString(3, t.getType().name());
+        ps.setString(4, t.getCodeUnique());
+        ps.setObject(5, t.getLatitude(), Types.DOUBLE);
+        ps.setObject(6, t.getLongitude(), Types.DOUBLE);
+        ps.setString(7, t.getLieu());
+        ps.setString(8, t.getStatut().name());
+        ps.setString(9, t.getFormat().name());
+        ps.setTimestamp(10, Timestamp.valueOf(t.getDateCreation()));
+        ps.setTimestamp(11, Timestamp.valueOf(t.getDateExpiration()));
+        ps.setString(12, t.getQrCode());
+        ps.setString(13, t.getInformationsSupplementaires());
+    }
+
     private Ticket map(ResultSet rs) throws SQLException {
         Ticket t = new Ticket();
         t.setId(rs.getLong("id"));
@@ -137,7 +213,7 @@ public class TicketServiceImpl implements TicketService {
 
     @Override
     public List<Ticket> findByStatut(Ticket.StatutTicket statut) {
-        return findAll().stream().filter(t -> t.getStatut() == statut).toList();
+        return query("statut = ?", ps -> ps.setString(1, statut.name()));
     }
 
     @Override
@@ -155,6 +231,8 @@ public class TicketServiceImpl implements TicketService {
             ps.setString(3, t.getInformationsSupplementaires());
             ps.setLong(4, t.getId());
             ps.executeUpdate();
+            TicketGateValidator.oublier(t.getCodeUnique());
+            TicketGeoIndex.mettreAJour(t);
             return t;
         } catch (SQLException e) {
             logger.error("Error update ticket", e);
@@ -167,8 +245,22 @@ public class TicketServiceImpl implements TicketService {
         String sql = "DELETE FROM tickets WHERE id = ?";
         try (Connection conn = dbConnection.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            // Code relu avant suppression, pour le retirer des scans récents des portes
+            String code = null;
+            try (PreparedStatement lecture = conn.prepareStatement("SELECT code_unique FROM tickets WHERE id = ?")) {
+                lecture.setLong(1, id);
+                try (ResultSet rs = lecture.executeQuery()) {
+                    if (rs.next())
+                        code = rs.getString(1);
+                }
+            }
             ps.setLong(1, id);
-            return ps.executeUpdate() > 0;
+            boolean supprime = ps.executeUpdate() > 0;
+            if (supprime) {
+                TicketGateValidator.oublier(code);
+                TicketGeoIndex.retirer(id);
+            }
+            return supprime;
         } catch (SQLException e) {
             logger.error("Error delete ticket", e);
             return false;
@@ -180,9 +272,41 @@ public class TicketServiceImpl implements TicketService {
         return findAll();
     }
 
+    /**
+     * Préfiltre SQL sur la boîte englobante (index {@code idx_coordonnees}),
+     * puis distance de haversine ; résultats du plus proche au plus éloigné.
+     */
     @Override
     public List<Ticket> findByCoordonnees(Double latitude, Double longitude, Double rayonKm) {
-        return findAll();
+        verifierPosition(latitude, longitude, rayonKm);
+        GeoUtils.BoundingBox box = GeoUtils.boundingBox(latitude, longitude, rayonKm);
+        String lon = box.traverseAntimeridien() ? "(longitude >= ? OR longitude <= ?)" : "longitude BETWEEN ? AND ?";
+        List<Ticket> candidats = query("latitude BETWEEN ? AND ? AND " + lon, ps -> {
+            ps.setDouble(1, box.minLat());
+            ps.setDouble(2, box.maxLat());
+            ps.setDouble(3, box.minLon());
+            ps.setDouble(4, box.maxLon());
+        });
+        return candidats.stream()
+                .filter(t -> GeoUtils.distanceKm(latitude, longitude, t.getLatitude(), t.getLongitude()) <= rayonKm)
+                .sorted(Comparator.comparingDouble(
+                        t -> GeoUtils.distanceKm(latitude, longitude, t.getLatitude(), t.getLongitude())))
+                .toList();
+    }
+
+    @Override
+    public List<Ticket> findTicketsValidesProches(Double latitude, Double longitude, Double rayonKm) {
+        verifierPosition(latitude, longitude, rayonKm);
+        return geoIndex.proches(latitude, longitude, rayonKm);
+    }
+
+    private static void verifierPosition(Double latitude, Double longitude, Double rayonKm) {
+        if (latitude == null || longitude == null || rayonKm == null)
+            throw new IllegalArgumentException("Latitude, longitude et rayon sont obligatoires");
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180)
+            throw new IllegalArgumentException("Coordonnées hors limites : " + latitude + ", " + longitude);
+        if (rayonKm < 0)
+            throw new IllegalArgumentException("Rayon négatif : " + rayonKm);
     }
 
     @Override
@@ -233,8 +357,89 @@ public class TicketServiceImpl implements TicketService {
 
     @Override
     public boolean validerTicket(String codeUnique) {
-        return findAll().stream()
-                .anyMatch(t -> t.getCodeUnique().equals(codeUnique) && t.getStatut() == Ticket.StatutTicket.VALIDE);
+        if (codeUnique == null || !gate.estConnu(codeUnique.trim()))
+            return false;
+        String sql = "SELECT 1 FROM tickets WHERE code_unique = ? AND statut = 'VALIDE'";
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, codeUnique.trim());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            logger.error("Error validerTicket", e);
+            return false;
+        }
+    }
+
+    @Override
+    public Ticket.ResultatScan scannerTicket(String codeUnique) {
+        return gate.scanner(codeUnique);
+    }
+
+    @Override
+    public int exporterSnapshotHorsLigne(Long evenementId, Path fichier) {
+        String sql = """
+                SELECT t.id, t.code_unique, t.date_expiration
+                FROM tickets t JOIN participations p ON p.id = t.participation_id
+                WHERE p.evenement_id = ? AND t.statut = 'VALIDE'
+                  AND (t.date_expiration IS NULL OR t.date_expiration > NOW())
+                """;
+        List<TicketSnapshot.Entree> entrees = new ArrayList<>();
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, evenementId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp exp = rs.getTimestamp("date_expiration");
+                    entrees.add(new TicketSnapshot.Entree(rs.getLong("id"), rs.getString("code_unique"),
+                            exp != null ? exp.getTime() : Long.MAX_VALUE));
+                }
+            }
+            TicketSnapshot.write(fichier, evenementId, entrees);
+            logger.info("Instantané hors ligne de l'événement {} : {} tickets -> {}", evenementId, entrees.size(), fichier);
+            return entrees.size();
+        } catch (SQLException | IOException e) {
+            logger.error("Error export snapshot tickets", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public BilanRejeu rejouerScans(List<ScanHorsLigne> scans) {
+        BilanRejeu bilan = new BilanRejeu();
+        if (scans.isEmpty())
+            return bilan;
+        String sql = "UPDATE tickets SET statut = 'UTILISE' WHERE id = ? AND statut = 'VALIDE'";
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            try {
+                for (ScanHorsLigne scan : scans) {
+                    ps.setLong(1, scan.getTicketId());
+                    ps.addBatch();
+                }
+                int[] counts = ps.executeBatch();
+                conn.commit();
+                for (int i = 0; i < counts.length; i++) {
+                    // 0 : déjà passé sur un autre scanner (ou annulé entre-temps)
+                    if (counts[i] == 0)
+                        bilan.getDoublons().add(scans.get(i));
+                    else
+                        bilan.ajouterApplique();
+                    TicketGateValidator.oublier(scans.get(i).getCodeUnique());
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            return bilan;
+        } catch (SQLException e) {
+            logger.error("Error rejeu scans hors ligne", e);
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
@@ -245,8 +450,7 @@ public class TicketServiceImpl implements TicketService {
 
     @Override
     public List<Ticket> findByDateExpirationBefore(LocalDateTime date) {
-        return findAll().stream().filter(t -> t.getDateExpiration() != null && t.getDateExpiration().isBefore(date))
-                .toList();
+        return query("date_expiration < ?", ps -> ps.setTimestamp(1, Timestamp.valueOf(date)));
     }
 
     @Override
@@ -258,4 +462,29 @@ public class TicketServiceImpl implements TicketService {
     public boolean peutEtreSupprime(Long id) {
         return true;
     }
+
+    /**
+     * {@code SELECT * FROM tickets WHERE <where>} ; {@code setter} lie les paramètres.
+     */
+    private List<Ticket> query(String where, SQLConsumer<PreparedStatement> setter) {
+        List<Ticket> list = new ArrayList<>();
+        String sql = "SELECT * FROM tickets WHERE " + where + " ORDER BY date_creation DESC";
+        try (Connection conn = dbConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (setter != null)
+                setter.accept(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    list.add(map(rs));
+            }
+        } catch (SQLException e) {
+            logger.error("Error query tickets: {}", where, e);
+        }
+        return list;
+    }
+
+    @FunctionalInterface
+    interface SQLConsumer<T> {
+        void accept(T t) throws SQLException;
+    }
 }
\ No newline at end of file
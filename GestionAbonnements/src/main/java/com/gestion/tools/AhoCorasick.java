@@ -0,0 +1,184 @@
+package com.gestion.tools;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Automate d'Aho-Corasick : trouve toutes les occurrences d'un ensemble de
+ * motifs en un seul passage sur le texte, quel que soit leur nombre.
+ * <p>
+ * Les transitions sont compilées en table dense (automate déterministe) sur
+ * l'alphabet des seuls caractères présents dans les motifs ; un caractère hors
+ * alphabet ramène à la racine. Une fonction de repli optionnelle fait
+ * partager à un caractère latin la classe de sa forme repliée (majuscules,
+ * accents) : le texte est alors reconnu sans être normalisé au préalable.
+ * Immuable une fois construit, donc partageable entre threads.
+ *
+ * @param <T> valeur associée à chaque motif
+ */
+public final class AhoCorasick<T> {
+
+    private static final int RACINE = 0;
+
+    private static final int LATIN = 0x180;
+
+    /** Classe de chaque caractère latin (0 = hors alphabet). */
+    private final int[] classeLatin = new int[LATIN];
+    private final Map<Character, Integer> classeAutres = new HashMap<>();
+    private final int alphabet;
+    /** transitions[etat * alphabet + classe] */
+    private final int[] transitions;
+    /** Motif qui se termine exactement sur l'état, ou -1. */
+    private final int[] motifDe;
+    /** État suffixe le plus proche qui termine un motif, ou -1. */
+    private final int[] sortieSuivante;
+    private final int[] longueurs;
+    private final Object[] valeurs;
+
+    private AhoCorasick(Map<String, T> motifs, IntUnaryOperator repli) {
+        int classes = 1;
+        int taille = 1;
+        for (String m : motifs.keySet()) {
+            taille += m.length();
+            for (int i = 0; i < m.length(); i++) {
+                char c = m.charAt(i);
+                if (classe(c) == 0) {
+                    if (c < LATIN)
+                        classeLatin[c] = classes++;
+                    else
+                        classeAutres.put(c, classes++);
+                }
+            }
+        }
+        alphabet = classes;
+        if (repli != null) {
+            for (int c = 0; c < LATIN; c++) {
+                int r = repli.applyAsInt(c);
+                if (classeLatin[c] == 0 && r > 0 && r < LATIN)
+                    classeLatin[c] = classeLatin[r];
+            }
+        }
+
+        int[] delta = new int[taille * alphabet];
+        Arrays.fill(delta, -1);
+        int[] motif = new int[taille];
+        Arrays.fill(motif, -1);
+        longueurs = new int[motifs.size()];
+        valeurs = new Object[motifs.size()];
+
+        // Trie
+        int etats = 1;
+        int id = 0;
+        for (Map.Entry<String, T> e : motifs.entrySet()) {
+            String m = e.getKey();
+            if (m.isEmpty())
+                throw new IllegalArgumentException("Motif vide");
+            int s = RACINE;
+            for (int i = 0; i < m.length(); i++) {
+                int k = s * alphabet + classe(m.charAt(i));
+                if (delta[k] < 0)
+                    delta[k] = etats++;
+                s = delta[k];
+            }
+            motif[s] = id;
+            longueurs[id] = m.length();
+            valeurs[id] = e.getValue();
+            id++;
+        }
+
+        // Liens d'échec en largeur ; les transitions manquantes suivent celles de l'état d'échec
+        int[] echec = new int[etats];
+        int[] sortie = new int[etats];
+        Arrays.fill(sortie, -1);
+        ArrayDeque<Integer> file = new ArrayDeque<>();
+        for (int c = 1; c < alphabet; c++) {
+            int t = delta[c];
+            if (t < 0) {
+                delta[c] = RACINE;
+            } else {
+                echec[t] = RACINE;
+                file.add(t);
+            }
+        }
+        while (!file.isEmpty()) {
+            int s = file.poll();
+            sortie[s] = motif[echec[s]] >= 0 ? echec[s] : sortie[echec[s]];
+            for (int c = 1; c < alphabet; c++) {
+                int k = s * alphabet + c;
+                int t = delta[k];
+                if (t < 0) {
+                    delta[k] = delta[echec[s] * alphabet + c];
+                } else {
+                    echec[t] = delta[echec[s] * alphabet + c];
+                    file.add(t);
+                }
+            }
+        }
+
+        this.transitions = Arrays.copyOf(delta, etats * alphabet);
+        this.motifDe = Arrays.copyOf(motif, etats);
+        this.sortieSuivante = sortie;
+    }
+
+    /**
+     * Compile les motifs (non vides) ; la valeur de chaque motif est rendue à
+     * chacune de ses occurrences.
+     */
+    public static <T> AhoCorasick<T> compiler(Map<String, T> motifs) {
+        return new AhoCorasick<>(motifs, null);
+    }
+
+    /**
+     * Comme {@link #compiler(Map)}, les motifs étant déjà repliés : chaque
+     * caractère latin {@code c} du texte est lu comme {@code repli(c)}.
+     */
+    public static <T> AhoCorasick<T> compiler(Map<String, T> motifs, IntUnaryOperator repli) {
+        return new AhoCorasick<>(motifs, repli);
+    }
+
+    /**
+     * Parcourt le texte une fois et signale chaque occurrence, motifs
+     * chevauchants compris, dans l'ordre de leur position de fin.
+     */
+    @SuppressWarnings("unchecked")
+    public void rechercher(CharSequence texte, Visiteur<T> visiteur) {
+        int[] classes = classeLatin;
+        int[] delta = transitions;
+        int[] motifs = motifDe;
+        int n = alphabet;
+        int s = RACINE;
+        for (int i = 0, len = texte.length(); i < len; i++) {
+            char ch = texte.charAt(i);
+            int c = ch < LATIN ? classes[ch] : classeAutre(ch);
+            s = c == 0 ? RACINE : delta[s * n + c];
+            for (int o = motifs[s] >= 0 ? s : sortieSuivante[s]; o >= 0; o = sortieSuivante[o]) {
+                int m = motifs[o];
+                visiteur.visiter(i + 1 - longueurs[m], i + 1, (T) valeurs[m]);
+            }
+        }
+    }
+
+    public int getNombreMotifs() {
+        return valeurs.length;
+    }
+
+    private int classe(char c) {
+        return c < LATIN ? classeLatin[c] : classeAutre(c);
+    }
+
+    private int classeAutre(char c) {
+        Integer k = classeAutres.get(c);
+        return k != null ? k : 0;
+    }
+
+    /**
+     * Reçoit une occurrence {@code [debut, fin)} et la valeur du motif.
+     */
+    @FunctionalInterface
+    public interface Visiteur<T> {
+        void visiter(int debut, int fin, T valeur);
+    }
+}
@@ -0,0 +1,478 @@
+package com.gestion.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de connexions JDBC borné.
+ * <p>
+ * Les connexions rendues via {@code close()} retournent dans le pool au lieu de
+ * fermer la socket MySQL. Le pool gère une taille min/max, la validation à
+ * l'emprunt, l'éviction des connexions inactives, la détection de fuites et
+ * des métriques de latence d'emprunt.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Config config;
+
+    /** Connexions libres, la plus récemment rendue en tête (LIFO). */
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    /** Emprunts en cours, indexés par le proxy remis à l'appelant. */
+    private final Map<Connection, PooledConnection> leased = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // Métriques
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowNanos = new LongAdder();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+
+    public ConnectionPool(String url, String user, String password, Config config) {
+        if (config.minSize < 0 || config.maxSize <= 0 || config.minSize > config.maxSize) {
+            throw new IllegalArgumentException("Taille de pool invalide : min=" + config.minSize + ", max=" + config.maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                config.housekeepingIntervalMs, config.housekeepingIntervalMs, TimeUnit.MILLISECONDS);
+        fillToMinimum();
+    }
+
+    // ================= EMPRUNT / RESTITUTION =================
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed)
+            throw new SQLException("Pool de connexions fermé");
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.increment();
+                throw new SQLTransientConnectionException("Pool épuisé : aucune connexion libre après "
+                        + config.borrowTimeoutMs + " ms (max=" + config.maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Attente de connexion interrompue", e);
+        }
+
+        try {
+            PooledConnection pc;
+            while ((pc = idle.pollFirst()) != null) {
+                if (isUsable(pc))
+                    break;
+                destroy(pc);
+            }
+            if (pc == null)
+                pc = open();
+
+            pc.borrowedAt = System.currentTimeMillis();
+            pc.leakReported = false;
+            pc.borrowTrace = config.leakDetectionThresholdMs > 0 ? new Throwable("Emprunt de connexion") : null;
+            Connection proxy = pc.newProxy();
+            leased.put(proxy, pc);
+            recordBorrow(System.nanoTime() - start);
+            return proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Les identifiants sont fixés à la création du pool");
+    }
+
+    private void release(Connection proxy, PooledConnection pc) {
+        if (leased.remove(proxy) == null)
+            return;
+        try {
+            if (closed || pc.raw.isClosed() || isExpired(pc, System.currentTimeMillis())) {
+                destroy(pc);
+                return;
+            }
+            if (!pc.raw.getAutoCommit()) {
+                pc.raw.rollback();
+                pc.raw.setAutoCommit(true);
+            }
+            pc.lastUsed = System.currentTimeMillis();
+            pc.borrowTrace = null;
+            idle.offerFirst(pc);
+        } catch (SQLException e) {
+            logger.warn("Connexion rendue inutilisable, elle est détruite : {}", e.getMessage());
+            destroy(pc);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isUsable(PooledConnection pc) {
+        long now = System.currentTimeMillis();
+        if (isExpired(pc, now))
+            return false;
+        // Une connexion utilisée très récemment est considérée vivante sans aller-retour réseau
+        if (now - pc.lastUsed < config.validationBypassMs)
+            return true;
+        try {
+            if (pc.raw.isValid(config.validationTimeoutSeconds))
+                return true;
+        } catch (SQLException e) {
+            logger.debug("Validation de connexion échouée", e);
+        }
+        validationFailures.increment();
+        return false;
+    }
+
+    private boolean isExpired(PooledConnection pc, long now) {
+        return config.maxLifetimeMs > 0 && now - pc.createdAt > config.maxLifetimeMs;
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, password);
+        total.incrementAndGet();
+        created.increment();
+        return new PooledConnection(raw);
+    }
+
+    private void destroy(PooledConnection pc) {
+        total.decrementAndGet();
+        destroyed.increment();
+        try {
+            pc.raw.close();
+        } catch (SQLException e) {
+            logger.debug("Erreur fermeture connexion physique", e);
+        }
+    }
+
+    private void recordBorrow(long nanos) {
+        borrowCount.increment();
+        borrowNanos.add(nanos);
+        maxBorrowNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // ================= MAINTENANCE =================
+
+    private void housekeep() {
+        try {
+            evictIdle();
+            detectLeaks();
+            fillToMinimum();
+        } catch (Exception e) {
+            logger.error("Erreur maintenance du pool", e);
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pc = it.next();
+            boolean tooOld = isExpired(pc, now);
+            boolean tooIdle = now - pc.lastUsed > config.idleTimeoutMs && total.get() > config.minSize;
+            if ((tooOld || tooIdle) && idle.removeFirstOccurrence(pc)) {
+                destroy(pc);
+            }
+        }
+    }
+
+    private void detectLeaks() {
+        if (config.leakDetectionThresholdMs <= 0)
+            return;
+        long now = System.currentTimeMillis();
+        for (PooledConnection pc : leased.values()) {
+            if (!pc.leakReported && now - pc.borrowedAt > config.leakDetectionThresholdMs) {
+                pc.leakReported = true;
+                leaksDetected.increment();
+                logger.warn("Fuite de connexion probable : empruntée depuis {} ms sans être rendue",
+                        now - pc.borrowedAt, pc.borrowTrace);
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && total.get() < config.minSize) {
+            try {
+                PooledConnection pc = open();
+                idle.offerLast(pc);
+            } catch (SQLException e) {
+                logger.error("Impossible de pré-ouvrir une connexion : {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            destroy(pc);
+        }
+        if (!leased.isEmpty())
+            logger.warn("Pool fermé avec {} connexion(s) encore empruntée(s)", leased.size());
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public Stats getStats() {
+        return new Stats(total.get(), idle.size(), leased.size(), permits.getQueueLength(),
+                borrowCount.sum(), borrowNanos.sum(), maxBorrowNanos.get(), borrowTimeouts.sum(),
+                created.sum(), destroyed.sum(), validationFailures.sum(), leaksDetected.sum());
+    }
+
+    // ================= DataSource =================
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // Journalisation via SLF4J
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        throw new SQLException("Pas un wrapper de " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    // ================= TYPES INTERNES =================
+
+    /**
+     * Connexion physique gérée par le pool.
+     */
+    private final class PooledConnection {
+        final Connection raw;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastUsed = createdAt;
+        volatile long borrowedAt;
+        volatile boolean leakReported;
+        volatile Throwable borrowTrace;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+        }
+
+        Connection newProxy() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Handle(this));
+        }
+    }
+
+    /**
+     * Poignée remise à l'appelant : {@code close()} rend la connexion au pool et
+     * toute utilisation ultérieure échoue.
+     */
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pc;
+        private volatile boolean returned;
+
+        Handle(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        release((Connection) proxy, pc);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || pc.raw.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + pc.raw + (returned ? ", rendue" : "") + "]";
+                }
+                default -> {
+                    if (returned)
+                        throw new SQLException("Connexion déjà rendue au pool");
+                    try {
+                        return method.invoke(pc.raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Paramètres du pool. Les valeurs par défaut peuvent être surchargées par
+     * propriétés système ({@code lamma.db.pool.*}).
+     */
+    public static class Config {
+        int minSize = 2;
+        int maxSize = 10;
+        long borrowTimeoutMs = 5_000;
+        long idleTimeoutMs = 300_000;
+        long maxLifetimeMs = 1_800_000;
+        long validationBypassMs = 500;
+        int validationTimeoutSeconds = 2;
+        long leakDetectionThresholdMs = 30_000;
+        long housekeepingIntervalMs = 15_000;
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.minSize = Integer.getInteger("lamma.db.pool.min", c.minSize);
+            c.maxSize = Integer.getInteger("lamma.db.pool.max", c.maxSize);
+            c.borrowTimeoutMs = Long.getLong("lamma.db.pool.borrowTimeoutMs", c.borrowTimeoutMs);
+            c.idleTimeoutMs = Long.getLong("lamma.db.pool.idleTimeoutMs", c.idleTimeoutMs);
+            c.maxLifetimeMs = Long.getLong("lamma.db.pool.maxLifetimeMs", c.maxLifetimeMs);
+            c.leakDetectionThresholdMs = Long.getLong("lamma.db.pool.leakThresholdMs", c.leakDetectionThresholdMs);
+            return c;
+        }
+
+        public Config minSize(int v) { this.minSize = v; return this; }
+        public Config maxSize(int v) { this.maxSize = v; return this; }
+        public Config borrowTimeoutMs(long v) { this.borrowTimeoutMs = v; return this; }
+        public Config idleTimeoutMs(long v) { this.idleTimeoutMs = v; return this; }
+        public Config maxLifetimeMs(long v) { this.maxLifetimeMs = v; return this; }
+        public Config validationBypassMs(long v) { this.validationBypassMs = v; return this; }
+        public Config validationTimeoutSeconds(int v) { this.validationTimeoutSeconds = v; return this; }
+        public Config leakDetectionThresholdMs(long v) { this.leakDetectionThresholdMs = v; return this; }
+        public Config housekeepingIntervalMs(long v) { this.housekeepingIntervalMs = v; return this; }
+    }
+
+    /**
+     * Instantané des métriques du pool.
+     */
+    public static class Stats {
+        private final int total;
+        private final int idle;
+        private final int active;
+        private final int waiting;
+        private final long borrows;
+        private final long borrowNanosTotal;
+        private final long borrowNanosMax;
+        private final long timeouts;
+        private final long created;
+        private final long destroyed;
+        private final long validationFailures;
+        private final long leaks;
+
+        Stats(int total, int idle, int active, int waiting, long borrows, long borrowNanosTotal,
+                long borrowNanosMax, long timeouts, long created, long destroyed,
+                long validationFailures, long leaks) {
+            this.total = total;
+            this.idle = idle;
+            this.active = active;
+            this.waiting = waiting;
+            this.borrows = borrows;
+            this.borrowNanosTotal = borrowNanosTotal;
+            this.borrowNanosMax = borrowNanosMax;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.validationFailures = validationFailures;
+            this.leaks = leaks;
+        }
+
+        public int getTotal() { return total; }
+        public int getIdle() { return idle; }
+        public int getActive() { return active; }
+        public int getWaiting() { return waiting; }
+        public long getBorrows() { return borrows; }
+        public long getTimeouts() { return timeouts; }
+        public long getCreated() { return created; }
+        public long getDestroyed() { return destroyed; }
+        public long getValidationFailures() { return validationFailures; }
+        public long getLeaks() { return leaks; }
+
+        public double getAvgBorrowMillis() {
+            return borrows == 0 ? 0.0 : borrowNanosTotal / 1_000_000.0 / borrows;
+        }
+
+        public double getMaxBorrowMillis() {
+            return borrowNanosMax / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Pool[total=%d, libres=%d, actives=%d, en attente=%d, emprunts=%d, "
+                    + "moy=%.3f ms, max=%.3f ms, timeouts=%d, créées=%d, détruites=%d, invalides=%d, fuites=%d]",
+                    total, idle, active, waiting, borrows, getAvgBorrowMillis(), getMaxBorrowMillis(),
+                    timeouts, created, destroyed, validationFailures, leaks);
+        }
+    }
+}
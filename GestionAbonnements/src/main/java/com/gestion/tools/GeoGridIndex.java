@@ -0,0 +1,143 @@
+package com.gestion.tools;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Index spatial en grille régulière (cellules de {@code cellDeg} degrés).
+ * <p>
+ * Une recherche par rayon ne parcourt que les cellules couvertes par la boîte
+ * englobante du cercle, puis affine chaque candidat par la distance de
+ * haversine. Les écritures doivent être sérialisées par l'appelant ; les
+ * lectures concurrentes sont sûres, y compris pendant une écriture (chaque
+ * cellule modifiée est remplacée par une copie).
+ */
+public class GeoGridIndex<T> {
+
+    private final double cellDeg;
+    private final Map<Long, List<Point<T>>> cells = new ConcurrentHashMap<>();
+    private volatile int size;
+
+    public GeoGridIndex(double cellDeg) {
+        if (cellDeg <= 0)
+            throw new IllegalArgumentException("Taille de cellule invalide : " + cellDeg);
+        this.cellDeg = cellDeg;
+    }
+
+    public void add(double lat, double lon, T value) {
+        cells.compute(key(cellLat(lat), cellLon(lon)), (k, cell) -> {
+            List<Point<T>> copie = cell == null ? new ArrayList<>(1) : new ArrayList<>(cell);
+            copie.add(new Point<>(lat, lon, value));
+            return copie;
+        });
+        size++;
+    }
+
+    /**
+     * Retire les éléments de la cellule de ({@code lat}, {@code lon}) qui
+     * satisfont {@code cible} ; renvoie le nombre retiré.
+     */
+    public int remove(double lat, double lon, Predicate<T> cible) {
+        int[] retires = new int[1];
+        cells.computeIfPresent(key(cellLat(lat), cellLon(lon)), (k, cell) -> {
+            List<Point<T>> copie = new ArrayList<>(cell.size());
+            for (Point<T> p : cell) {
+                if (cible.test(p.value))
+                    retires[0]++;
+                else
+                    copie.add(p);
+            }
+            return copie.isEmpty() ? null : copie;
+        });
+        size -= retires[0];
+        return retires[0];
+    }
+
+    /**
+     * Éléments à moins de {@code rayonKm}, du plus proche au plus éloigné.
+     */
+    public List<T> withinRadius(double lat, double lon, double rayonKm) {
+        GeoUtils.BoundingBox box = GeoUtils.boundingBox(lat, lon, rayonKm);
+        List<Point<T>> candidats = new ArrayList<>();
+
+        int latMin = cellLat(box.minLat());
+        int latMax = cellLat(box.maxLat());
+        int lonMin = cellLon(box.minLon());
+        int lonMax = cellLon(box.maxLon());
+        long lonCells = box.traverseAntimeridien()
+                ? (cellLon(180) - lonMin + 1L) + (lonMax - cellLon(-180) + 1L)
+                : lonMax - lonMin + 1L;
+
+        if ((latMax - latMin + 1L) * lonCells > cells.size()) {
+            // Boîte plus large que l'index : parcourir les cellules existantes
+            for (List<Point<T>> cell : cells.values())
+                for (Point<T> p : cell)
+                    if (box.contient(p.lat, p.lon))
+                        candidats.add(p);
+        } else {
+            for (int la = latMin; la <= latMax; la++) {
+                if (box.traverseAntimeridien()) {
+                    collect(la, lonMin, cellLon(180), candidats);
+                    collect(la, cellLon(-180), lonMax, candidats);
+                } else {
+                    collect(la, lonMin, lonMax, candidats);
+                }
+            }
+        }
+
+        List<Hit<T>> proches = new ArrayList<>();
+        for (Point<T> p : candidats) {
+            double d = GeoUtils.distanceKm(lat, lon, p.lat, p.lon);
+            if (d <= rayonKm)
+                proches.add(new Hit<>(p.value, d));
+        }
+        proches.sort(Comparator.comparingDouble(Hit::distance));
+        List<T> result = new ArrayList<>(proches.size());
+        for (Hit<T> h : proches)
+            result.add(h.value());
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void collect(int la, int from, int to, List<Point<T>> out) {
+        for (int lo = from; lo <= to; lo++) {
+            List<Point<T>> cell = cells.get(key(la, lo));
+            if (cell != null)
+                out.addAll(cell);
+        }
+    }
+
+    private int cellLat(double lat) {
+        return (int) Math.floor(lat / cellDeg);
+    }
+
+    private int cellLon(double lon) {
+        return (int) Math.floor(lon / cellDeg);
+    }
+
+    private static long key(int cellLat, int cellLon) {
+        return ((long) cellLat << 32) | (cellLon & 0xffffffffL);
+    }
+
+    private static final class Point<T> {
+        final double lat;
+        final double lon;
+        final T value;
+
+        Point(double lat, double lon, T value) {
+            this.lat = lat;
+            this.lon = lon;
+            this.value = value;
+        }
+    }
+
+    private record Hit<T>(T value, double distance) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.gestion.tools;
+
+/**
+ * Calculs de distance et de boîte englobante sur la sphère terrestre.
+ */
+public final class GeoUtils {
+
+    public static final double RAYON_TERRE_KM = 6371.0088;
+    /** Longueur d'un degré de latitude, en km. */
+    private static final double KM_PAR_DEGRE = Math.PI * RAYON_TERRE_KM / 180.0;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Distance orthodromique (formule de haversine), en km.
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RAYON_TERRE_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Boîte englobante du cercle de rayon {@code rayonKm} : tout point du
+     * cercle y est contenu. Près des pôles la boîte couvre toutes les
+     * longitudes ; au-delà de l'antiméridien {@code minLon > maxLon}.
+     */
+    public static BoundingBox boundingBox(double lat, double lon, double rayonKm) {
+        double dLat = rayonKm / KM_PAR_DEGRE;
+        double minLat = lat - dLat;
+        double maxLat = lat + dLat;
+        if (minLat <= -90 || maxLat >= 90) {
+            return new BoundingBox(Math.max(minLat, -90), Math.min(maxLat, 90), -180, 180);
+        }
+        double dLon = Math.toDegrees(Math.asin(Math.min(1.0,
+                Math.sin(rayonKm / RAYON_TERRE_KM) / Math.cos(Math.toRadians(lat)))));
+        if (dLon >= 180) {
+            return new BoundingBox(minLat, maxLat, -180, 180);
+        }
+        return new BoundingBox(minLat, maxLat, normaliserLon(lon - dLon), normaliserLon(lon + dLon));
+    }
+
+    private static double normaliserLon(double lon) {
+        if (lon < -180)
+            return lon + 360;
+        if (lon > 180)
+            return lon - 360;
+        return lon;
+    }
+
+    /**
+     * Rectangle en degrés ; {@link #traverseAntimeridien()} si la plage de
+     * longitudes passe par ±180°.
+     */
+    public record BoundingBox(double minLat, double maxLat, double minLon, double maxLon) {
+
+        public boolean traverseAntimeridien() {
+            return minLon > maxLon;
+        }
+
+        public boolean contient(double lat, double lon) {
+            if (lat < minLat || lat > maxLat)
+                return false;
+            return traverseAntimeridien() ? lon >= minLon || lon <= maxLon : lon >= minLon && lon <= maxLon;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.gestion.tools;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Table de hachage à clés {@code int} primitives (adressage ouvert, sondage
+ * linéaire), sans objet {@code Integer} par entrée. Non thread-safe.
+ */
+public class IntObjectMap<V> {
+
+    private static final int VIDE = 0;
+    private static final float CHARGE_MAX = 0.6f;
+
+    /** La clé 0 est stockée à part pour servir de marqueur de case vide. */
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private boolean hasZero;
+    private V zeroValue;
+
+    public IntObjectMap() {
+        this(16);
+    }
+
+    public IntObjectMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expected / CHARGE_MAX)) - 1) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == VIDE)
+            return hasZero ? zeroValue : null;
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; keys[i] != VIDE; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return (V) values[i];
+        }
+        return null;
+    }
+
+    public void put(int key, V value) {
+        if (key == VIDE) {
+            if (!hasZero)
+                size++;
+            hasZero = true;
+            zeroValue = value;
+            return;
+        }
+        if (size + 1 > keys.length * CHARGE_MAX)
+            resize(keys.length << 1);
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != VIDE) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    public V computeIfAbsent(int key, IntFunction<V> factory) {
+        V v = get(key);
+        if (v == null) {
+            v = factory.apply(key);
+            put(key, v);
+        }
+        return v;
+    }
+
+    public void remove(int key) {
+        if (key == VIDE) {
+            if (hasZero)
+                size--;
+            hasZero = false;
+            zeroValue = null;
+            return;
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == VIDE)
+                return;
+            i = (i + 1) & mask;
+        }
+        // Suppression sans pierre tombale : on recolle la suite du groupe
+        keys[i] = VIDE;
+        values[i] = null;
+        size--;
+        for (int j = (i + 1) & mask; keys[j] != VIDE; j = (j + 1) & mask) {
+            int k = keys[j];
+            Object v = values[j];
+            keys[j] = VIDE;
+            values[j] = null;
+            size--;
+            reinsert(k, v);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Parcourt toutes les entrées. */
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<V> visitor) {
+        if (hasZero)
+            visitor.visit(VIDE, zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != VIDE)
+                visitor.visit(keys[i], (V) values[i]);
+        }
+    }
+
+    private void reinsert(int key, Object value) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != VIDE)
+            i = (i + 1) & mask;
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        size = hasZero ? 1 : 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != VIDE)
+                reinsert(oldKeys[i], oldValues[i]);
+        }
+        Arrays.fill(oldValues, null);
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @FunctionalInterface
+    public interface Visitor<V> {
+        void visit(int key, V value);
+    }
+}
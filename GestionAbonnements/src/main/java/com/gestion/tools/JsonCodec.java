@@ -0,0 +1,75 @@
+package com.gestion.tools;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gestion.entities.EquipementBundle;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link ObjectMapper} partagé de l'application et codecs JSON des colonnes
+ * typées. Un {@code ObjectMapper} configuré est thread-safe et coûteux à
+ * construire : il n'est créé qu'une fois, lecteurs et écrivains en dérivent.
+ */
+public final class JsonCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+    private static final ObjectReader LECTEUR_ARBRE = MAPPER.reader();
+    private static final ObjectWriter ECRIVAIN = MAPPER.writer();
+
+    private JsonCodec() {
+    }
+
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    /**
+     * Bundle lu depuis la colonne {@code equipement_bundle} ; une valeur de
+     * section qui n'est pas un objet devient la section {@code {"valeur": ...}}.
+     * JSON vide, nul ou invalide : {@link EquipementBundle#VIDE}.
+     */
+    public static EquipementBundle lireBundle(String json) {
+        if (json == null || json.isBlank())
+            return EquipementBundle.VIDE;
+        try {
+            JsonNode racine = LECTEUR_ARBRE.readTree(json);
+            if (racine == null || !racine.isObject())
+                return EquipementBundle.VIDE;
+            Map<String, Map<String, String>> sections = new LinkedHashMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = racine.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> s = it.next();
+                Map<String, String> items = new LinkedHashMap<>();
+                if (s.getValue().isObject()) {
+                    s.getValue().fields().forEachRemaining(i -> items.put(i.getKey(), texte(i.getValue())));
+                } else {
+                    items.put("valeur", texte(s.getValue()));
+                }
+                sections.put(s.getKey(), items);
+            }
+            return EquipementBundle.of(sections);
+        } catch (JsonProcessingException e) {
+            return EquipementBundle.VIDE;
+        }
+    }
+
+    public static String ecrireBundle(EquipementBundle bundle) {
+        if (bundle == null)
+            return "{}";
+        try {
+            return ECRIVAIN.writeValueAsString(bundle.getSections());
+        } catch (JsonProcessingException e) {
+            return "{}";
+        }
+    }
+
+    private static String texte(JsonNode n) {
+        return n.isValueNode() ? n.asText() : n.toString();
+    }
+}
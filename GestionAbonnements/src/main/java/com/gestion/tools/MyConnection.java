@@ -61,31 +61,31 @@ public class MyConnection {
 package com.gestion.tools;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import javax.sql.DataSource;
 
 /**
- * Singleton de connexion à la base de données LAMA
+ * Singleton d'accès à la base de données LAMA.
+ * Les connexions sont empruntées à un {@link ConnectionPool} : fermer une
+ * connexion (try-with-resources) la rend au pool sans couper la socket.
  */
 public class MyConnection {
 
-    private static final String URL = "jdbc:mysql://localhost:3306/lama";
+    private static final String URL = "jdbc:mysql://localhost:3306/lama?rewriteBatchedStatements=true";
     private static final String LOGIN = "root";
     private static final String PWD = "";
 
-    private static MyConnection instance;
-    private static Connection cnx;
+    private static volatile MyConnection instance;
+    private final ConnectionPool pool;
 
     private MyConnection() {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
-            cnx = DriverManager.getConnection(URL, LOGIN, PWD);
-            System.out.println("Connexion à la base de données LAMMA établie !");
         } catch (ClassNotFoundException e) {
             System.err.println("Pilote JDBC non trouvé : " + e.getMessage());
-        } catch (SQLException e) {
-            System.err.println("Erreur de connexion initiale : " + e.getMessage());
         }
+        pool = new ConnectionPool(URL, LOGIN, PWD, ConnectionPool.Config.fromSystemProperties());
+        System.out.println("Pool de connexions LAMMA initialisé : " + pool.getStats());
     }
 
     public static MyConnection getInstance() {
@@ -99,32 +99,35 @@ public class MyConnection {
         return instance;
     }
 
+    /**
+     * Emprunte une connexion au pool ; elle doit être fermée après usage.
+     * Retourne null si aucune connexion n'a pu être obtenue.
+     */
     public Connection getConnection() {
-        return getConnectionStatic();
-    }
-
-    public static Connection getConnectionStatic() {
         try {
-            if (cnx == null || cnx.isClosed()) {
-                // S'assurer que les paramètres sont corrects
-                System.out.println("Tentative de (re)connexion à " + URL);
-                cnx = DriverManager.getConnection(URL, LOGIN, PWD);
-            }
+            return pool.getConnection();
         } catch (SQLException e) {
             System.err.println("Erreur fatale ouverture connexion : " + e.getMessage());
-            cnx = null;
+            return null;
         }
-        return cnx;
+    }
+
+    public static Connection getConnectionStatic() {
+        return getInstance().getConnection();
+    }
+
+    public DataSource getDataSource() {
+        return pool;
+    }
+
+    public ConnectionPool.Stats getPoolStats() {
+        return pool.getStats();
     }
 
     public void closeConnection() {
-        try {
-            if (cnx != null && !cnx.isClosed()) {
-                cnx.close();
-                System.out.println("Connexion fermée.");
-            }
-        } catch (SQLException e) {
-            System.err.println("Erreur fermeture connexion : " + e.getMessage());
+        if (!pool.isClosed()) {
+            pool.close();
+            System.out.println("Pool de connexions fermé.");
         }
     }
 }
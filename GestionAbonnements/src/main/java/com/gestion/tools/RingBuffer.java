@@ -0,0 +1,93 @@
+package com.gestion.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * File bornée sans verrou, plusieurs producteurs et un seul consommateur.
+ * <p>
+ * Chaque case porte un numéro de séquence : un producteur réserve une
+ * position par CAS sur la queue puis publie sa valeur en avançant la
+ * séquence de la case ; le consommateur ne lit une case que lorsque sa
+ * séquence annonce la valeur. Une file pleine refuse l'élément au lieu de
+ * bloquer le producteur.
+ *
+ * @param <T> type des éléments
+ */
+public final class RingBuffer<T> {
+
+    private final int masque;
+    private final AtomicReferenceArray<T> cases;
+    private final AtomicLongArray sequences;
+    private final AtomicLong queue = new AtomicLong();
+    private volatile long tete;
+
+    /**
+     * @param capacite arrondie à la puissance de deux supérieure
+     */
+    public RingBuffer(int capacite) {
+        if (capacite < 2 || capacite > (1 << 30))
+            throw new IllegalArgumentException("Capacité invalide : " + capacite);
+        int n = Integer.highestOneBit(capacite - 1) << 1;
+        this.masque = n - 1;
+        this.cases = new AtomicReferenceArray<>(n);
+        this.sequences = new AtomicLongArray(n);
+        for (int i = 0; i < n; i++)
+            sequences.set(i, i);
+    }
+
+    /**
+     * Ajoute l'élément ; renvoie false, sans attendre, si la file est pleine.
+     */
+    public boolean offrir(T valeur) {
+        if (valeur == null)
+            throw new NullPointerException();
+        while (true) {
+            long pos = queue.get();
+            int i = (int) pos & masque;
+            long ecart = sequences.get(i) - pos;
+            if (ecart == 0) {
+                if (queue.compareAndSet(pos, pos + 1)) {
+                    cases.lazySet(i, valeur);
+                    sequences.set(i, pos + 1);
+                    return true;
+                }
+            } else if (ecart < 0) {
+                return false;
+            }
+            // Sinon un autre producteur a pris la position : on relit la queue
+        }
+    }
+
+    /**
+     * Retire au plus {@code max} éléments, dans l'ordre de publication, et
+     * renvoie leur nombre. Réservé au consommateur.
+     */
+    public synchronized int vider(Consumer<? super T> action, int max) {
+        long h = tete;
+        int n = 0;
+        while (n < max) {
+            int i = (int) h & masque;
+            if (sequences.get(i) != h + 1)
+                break;
+            T valeur = cases.get(i);
+            cases.lazySet(i, null);
+            sequences.set(i, h + masque + 1);
+            tete = ++h;
+            n++;
+            action.accept(valeur);
+        }
+        return n;
+    }
+
+    /** Nombre approximatif d'éléments en attente. */
+    public int taille() {
+        return (int) Math.max(0, Math.min(queue.get() - tete, masque + 1));
+    }
+
+    public int getCapacite() {
+        return masque + 1;
+    }
+}
@@ -0,0 +1,44 @@
+package com.gestion.tools;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Lecture du schéma de la base courante ({@code information_schema}) : les
+ * services vérifient qu'une table, une colonne ou une clé attendue existe
+ * avant de compter dessus. Aucune modification du schéma n'est faite ici ;
+ * les mises à niveau sont des scripts de {@code docs/} lancés par un
+ * administrateur.
+ */
+public final class SchemaUtils {
+
+    private SchemaUtils() {
+    }
+
+    public static boolean tableExiste(Connection c, String table) throws SQLException {
+        return compter(c, "SELECT COUNT(*) FROM information_schema.TABLES "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?", table) > 0;
+    }
+
+    public static boolean indexExiste(Connection c, String table, String index) throws SQLException {
+        return compter(c, "SELECT COUNT(*) FROM information_schema.STATISTICS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?", table, index) > 0;
+    }
+
+    public static boolean colonneExiste(Connection c, String table, String colonne) throws SQLException {
+        return compter(c, "SELECT COUNT(*) FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?", table, colonne) > 0;
+    }
+
+    private static int compter(Connection c, String sql, String... parametres) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            for (int i = 0; i < parametres.length; i++)
+                ps.setString(i + 1, parametres[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.gestion.tools;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Normalisation de texte français pour l'indexation et la recherche :
+ * minuscules, accents retirés (« Randonnée » et « randonnee » donnent le même
+ * terme), découpage sur tout ce qui n'est ni lettre ni chiffre.
+ */
+public final class TextUtils {
+
+    /** Mots trop fréquents pour discriminer un événement. */
+    private static final Set<String> MOTS_VIDES = Set.of(
+            "au", "aux", "avec", "ce", "ces", "dans", "de", "des", "du", "elle", "en", "et", "il", "ils",
+            "la", "le", "les", "leur", "lui", "ma", "mais", "me", "mes", "mon", "ne", "nos", "notre",
+            "nous", "on", "ou", "par", "pas", "pour", "qu", "que", "qui", "sa", "se", "ses", "son",
+            "sur", "ta", "te", "tes", "ton", "tu", "un", "une", "vos", "votre", "vous");
+
+    private TextUtils() {
+    }
+
+    /** Caractère plié de chaque caractère latin (jusqu'à Latin étendu A), 0 si ligature. */
+    private static final char[] PLI = new char[0x180];
+
+    static {
+        for (char c = 0; c < PLI.length; c++) {
+            String nfd = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            PLI[c] = Character.toLowerCase(nfd.charAt(0));
+        }
+        for (char c : new char[]{'œ', 'Œ', 'æ', 'Æ'})
+            PLI[c] = 0;
+    }
+
+    /**
+     * Texte en minuscules sans diacritiques ; les ligatures {@code œ}/{@code æ}
+     * sont dépliées. Table précalculée pour l'alphabet latin, {@link Normalizer}
+     * seulement pour les autres caractères.
+     */
+    public static String plier(String texte) {
+        if (texte == null)
+            return "";
+        StringBuilder sb = new StringBuilder(texte.length());
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            if (c < PLI.length && PLI[c] != 0) {
+                sb.append(PLI[c]);
+            } else if (c == 'œ' || c == 'Œ') {
+                sb.append("oe");
+            } else if (c == 'æ' || c == 'Æ') {
+                sb.append("ae");
+            } else {
+                String nfd = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+                for (int k = 0; k < nfd.length(); k++)
+                    if (Character.getType(nfd.charAt(k)) != Character.NON_SPACING_MARK)
+                        sb.append(Character.toLowerCase(nfd.charAt(k)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Caractère latin plié (minuscule sans accent), ou 0 pour une ligature ou
+     * un caractère hors de l'alphabet latin.
+     */
+    public static char plier(char c) {
+        return c < PLI.length ? PLI[c] : 0;
+    }
+
+    /**
+     * Termes du texte plié, dans l'ordre, sans les mots vides ni les termes
+     * d'une lettre.
+     */
+    public static List<String> tokeniser(String texte) {
+        String plie = plier(texte);
+        List<String> termes = new ArrayList<>();
+        int debut = -1;
+        for (int i = 0; i <= plie.length(); i++) {
+            boolean lettre = i < plie.length() && Character.isLetterOrDigit(plie.charAt(i));
+            if (lettre && debut < 0) {
+                debut = i;
+            } else if (!lettre && debut >= 0) {
+                if (i - debut > 1) {
+                    String terme = plie.substring(debut, i);
+                    if (!MOTS_VIDES.contains(terme))
+                        termes.add(terme);
+                }
+                debut = -1;
+            }
+        }
+        return termes;
+    }
+}
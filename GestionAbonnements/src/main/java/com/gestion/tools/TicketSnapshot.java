@@ -0,0 +1,154 @@
+package com.gestion.tools;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Instantané binaire des tickets valides d'un événement, lu par projection
+ * mémoire ({@code mmap}) pour le contrôle d'accès hors ligne.
+ * <p>
+ * Format (little-endian) : un en-tête de {@value #HEADER_BYTES} octets puis une
+ * table de hachage à adressage ouvert de {@code slots} cases (puissance de 2) :
+ * <pre>
+ * en-tête : int magic | int version | long evenementId | long genereLe (ms) | int count | int slots
+ * case    : long hash(codeUnique) | long ticketId (0 = vide) | long expiration (ms, Long.MAX_VALUE = aucune)
+ * </pre>
+ * Le fichier s'ouvre sans désérialisation : une recherche lit une ou deux
+ * cases directement dans la projection.
+ */
+public final class TicketSnapshot implements AutoCloseable {
+
+    private static final int MAGIC = 0x544B534E; // "TKSN"
+    private static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 24;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long evenementId;
+    private final long genereLe;
+    private final int count;
+    private final int mask;
+
+    private TicketSnapshot(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IOException("Fichier d'instantané tickets invalide");
+        this.evenementId = buffer.getLong(8);
+        this.genereLe = buffer.getLong(16);
+        this.count = buffer.getInt(24);
+        int slots = buffer.getInt(28);
+        if (Integer.bitCount(slots) != 1 || buffer.capacity() != HEADER_BYTES + (long) slots * SLOT_BYTES)
+            throw new IOException("Instantané tickets tronqué ou corrompu");
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Projette un instantané existant en lecture seule.
+     */
+    public static TicketSnapshot open(Path fichier) throws IOException {
+        FileChannel channel = FileChannel.open(fichier, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new TicketSnapshot(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Écrit un instantané dans un fichier temporaire puis le renomme, pour
+     * qu'un lecteur ne voie jamais de fichier partiel.
+     */
+    public static void write(Path fichier, long evenementId, List<Entree> entrees) throws IOException {
+        int slots = Integer.highestOneBit(Math.max(16, entrees.size() * 2 - 1)) << 1;
+        long size = HEADER_BYTES + (long) slots * SLOT_BYTES;
+        Path parent = fichier.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        Path tmp = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, evenementId);
+            buffer.putLong(16, System.currentTimeMillis());
+            buffer.putInt(24, entrees.size());
+            buffer.putInt(28, slots);
+            int mask = slots - 1;
+            for (Entree e : entrees) {
+                long hash = hash(e.codeUnique());
+                int slot = (int) hash & mask;
+                while (buffer.getLong(offset(slot) + 8) != 0)
+                    slot = (slot + 1) & mask;
+                int off = offset(slot);
+                buffer.putLong(off, hash);
+                buffer.putLong(off + 8, e.ticketId());
+                buffer.putLong(off + 16, e.expiration());
+            }
+            buffer.force();
+        }
+        try {
+            Files.move(tmp, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, fichier, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Cherche un code ; {@code null} s'il n'est pas dans l'instantané. Le code
+     * lui-même n'est pas stocké, seule son empreinte 64 bits est comparée.
+     */
+    public Entree find(String codeUnique) {
+        long hash = hash(codeUnique);
+        int slot = (int) hash & mask;
+        while (true) {
+            int off = offset(slot);
+            long ticketId = buffer.getLong(off + 8);
+            if (ticketId == 0)
+                return null;
+            if (buffer.getLong(off) == hash)
+                return new Entree(ticketId, codeUnique, buffer.getLong(off + 16));
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public static long hash(String codeUnique) {
+        return BloomFilter.hash64(codeUnique);
+    }
+
+    public long getEvenementId() { return evenementId; }
+    public long getGenereLe() { return genereLe; }
+    public int getCount() { return count; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    /**
+     * Ticket présent dans l'instantané.
+     *
+     * @param expiration epoch en ms, {@link Long#MAX_VALUE} si aucune
+     */
+    public record Entree(long ticketId, String codeUnique, long expiration) {
+    }
+}
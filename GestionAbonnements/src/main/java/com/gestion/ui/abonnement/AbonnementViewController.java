@@ -3,6 +3,7 @@ package com.gestion.ui.abonnement;
 import com.gestion.controllers.AbonnementController;
 import com.gestion.controllers.MainController;
 import com.gestion.entities.Abonnement;
+import com.gestion.entities.AbonnementAnalytics;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -383,14 +384,21 @@ public class AbonnementViewController {
     @FXML
     void onStatistiques() {
         try {
-            BigDecimal totalPoints = controller.getTotalPointsAccumules();
+            AbonnementAnalytics analytics = controller.getAnalytics(3);
             List<Abonnement> prochesExpiration = controller.findProchesExpiration(30);
             
             StringBuilder stats = new StringBuilder();
             stats.append("📊 Statistiques des Abonnements\n\n");
-            stats.append("Total des points accumulés: ").append(totalPoints).append("\n");
+            stats.append("Total des points accumulés: ").append(analytics.getPointsTotal()).append("\n");
             stats.append("Abonnements proches expiration (30 jours): ").append(prochesExpiration.size()).append("\n");
-            stats.append("Total des abonnements: ").append(data.size());
+            stats.append("Total des abonnements: ").append(analytics.getNombreTotal()).append("\n");
+            stats.append("Revenu total: ").append(analytics.getRevenuTotal()).append("\n");
+            analytics.getRevenuParType().forEach((type, revenu) -> stats.append("  • ").append(type)
+                    .append(" : ").append(revenu).append(" (").append(analytics.getNombreParType().get(type))
+                    .append(")\n"));
+            stats.append("Top points: ");
+            analytics.getTopPoints().forEach(t -> stats.append("#").append(t.getUserId())
+                    .append(" (").append(t.getPoints()).append(") "));
             
             Alert statsAlert = new Alert(Alert.AlertType.INFORMATION);
             statsAlert.setTitle("Statistiques");
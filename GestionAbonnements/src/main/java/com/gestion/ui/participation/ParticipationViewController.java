@@ -2,11 +2,13 @@ package com.gestion.ui.participation;
 
 import com.gestion.controllers.MainController;
 import com.gestion.controllers.ParticipationController;
+import com.gestion.criteria.ParticipationCriteria;
 import com.gestion.entities.Participation;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -25,6 +27,7 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public class ParticipationViewController {
@@ -79,12 +82,29 @@ public class ParticipationViewController {
     private Label countLabel;
     @FXML
     private Label validationMessage;
+    @FXML
+    private Button btnChargerPlus;
+
+    /** Taille d'une page chargée depuis la base (pagination par curseur). */
+    private static final int PAGE_SIZE = 50;
 
     private final ParticipationController controller = new ParticipationController();
     private final ObservableList<Participation> data = FXCollections.observableArrayList();
     private FilteredList<Participation> filteredData;
     private Participation selectedParticipation = null;
     private boolean isEditMode = false;
+    private ParticipationCriteria currentCriteria = new ParticipationCriteria();
+    private long totalCount = 0;
+    private boolean hasMore = false;
+    /**
+     * Curseur de la page suivante : date d'inscription et id de la dernière
+     * ligne reçue de la base, relevés à la réception (les lignes affichées
+     * peuvent être modifiées ou complétées localement).
+     */
+    private LocalDateTime curseurDate;
+    private Long curseurId;
+    /** Une page suivante est en cours de chargement (thread de fond). */
+    private boolean chargementEnCours = false;
 
     @FXML
     public void initialize() {
@@ -267,10 +287,17 @@ public class ParticipationViewController {
     @FXML
     void onActualiser() {
         try {
-            List<Participation> list = controller.getAll();
+            currentCriteria = buildCriteria();
+            List<Participation> list = controller.search(currentCriteria);
+            long total = controller.count(currentCriteria);
             Platform.runLater(() -> {
                 data.clear();
                 data.addAll(list);
+                curseurDate = null;
+                curseurId = null;
+                retenirCurseur(list);
+                totalCount = total;
+                hasMore = list.size() == PAGE_SIZE;
                 updateCount();
                 updateStatusInfo("Données actualisées avec succès");
                 listView.refresh();
@@ -280,8 +307,91 @@ public class ParticipationViewController {
         }
     }
 
+    /**
+     * Charge la page suivante à partir de la dernière participation reçue.
+     * La requête tourne hors du thread JavaFX ; la page est ajoutée à la
+     * réception, sauf si une actualisation a remplacé les critères entre-temps.
+     */
+    @FXML
+    void onChargerPlus() {
+        if (!hasMore || curseurId == null || chargementEnCours) {
+            return;
+        }
+        ParticipationCriteria criteria = currentCriteria;
+        criteria.seekAfter(curseurDate, curseurId);
+        Task<List<Participation>> tache = new Task<>() {
+            @Override
+            protected List<Participation> call() {
+                return controller.search(criteria);
+            }
+        };
+        tache.setOnSucceeded(e -> {
+            chargementEnCours = false;
+            if (criteria != currentCriteria) {
+                updateCount();
+                return;
+            }
+            List<Participation> page = tache.getValue();
+            data.addAll(page);
+            retenirCurseur(page);
+            hasMore = page.size() == PAGE_SIZE;
+            updateCount();
+            listView.refresh();
+        });
+        tache.setOnFailed(e -> {
+            chargementEnCours = false;
+            updateCount();
+            Throwable erreur = tache.getException();
+            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors du chargement: "
+                    + (erreur != null ? erreur.getMessage() : ""));
+        });
+        chargementEnCours = true;
+        if (btnChargerPlus != null) {
+            btnChargerPlus.setDisable(true);
+        }
+        Thread t = new Thread(tache, "participations-page-suivante");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void retenirCurseur(List<Participation> page) {
+        if (page.isEmpty()) {
+            return;
+        }
+        Participation derniere = page.get(page.size() - 1);
+        curseurDate = derniere.getDateInscription();
+        curseurId = derniere.getId();
+    }
+
+    /**
+     * Les filtres statut / type / utilisateur / événement sont évalués en base ;
+     * la recherche libre reste appliquée sur les lignes déjà chargées.
+     */
+    private ParticipationCriteria buildCriteria() {
+        ParticipationCriteria criteria = new ParticipationCriteria();
+        String statut = filterStatut.getValue();
+        if (statut != null && !statut.isEmpty()) {
+            criteria.setStatut(Participation.StatutParticipation.valueOf(statut));
+        }
+        String type = filterType.getValue();
+        if (type != null && !type.isEmpty()) {
+            criteria.setType(Participation.TypeParticipation.valueOf(type));
+        }
+        Long userId = parseLong(filterUserId.getText());
+        if (userId != null && userId > 0) {
+            criteria.setUserId(userId);
+        }
+        Long evenementId = parseLong(filterEvenementId.getText());
+        if (evenementId != null && evenementId > 0) {
+            criteria.setEvenementId(evenementId);
+        }
+        criteria.setLimit(PAGE_SIZE);
+        return criteria;
+    }
+
     @FXML
     void onFiltrer() {
+        onActualiser();
         applyFilters();
     }
 
@@ -297,15 +407,12 @@ public class ParticipationViewController {
         filterUserId.clear();
         filterEvenementId.clear();
         searchField.clear();
+        onActualiser();
         applyFilters();
     }
 
     private void applyFilters() {
         String searchText = searchField.getText().toLowerCase();
-        String statut = filterStatut.getValue();
-        String type = filterType.getValue();
-        Long userId = parseLong(filterUserId.getText());
-        Long evenementId = parseLong(filterEvenementId.getText());
 
         filteredData.setPredicate(participation -> {
             boolean match = true;
@@ -319,22 +426,6 @@ public class ParticipationViewController {
                 match = match && searchable.toLowerCase().contains(searchText);
             }
 
-            if (statut != null && !statut.isEmpty()) {
-                match = match && participation.getStatut().name().equals(statut);
-            }
-
-            if (type != null && !type.isEmpty()) {
-                match = match && participation.getType().name().equals(type);
-            }
-
-            if (userId != null) {
-                match = match && participation.getUserId().equals(userId);
-            }
-
-            if (evenementId != null) {
-                match = match && participation.getEvenementId().equals(evenementId);
-            }
-
             return match;
         });
 
@@ -466,11 +557,12 @@ public class ParticipationViewController {
     @FXML
     void onStatistiques() {
         try {
-            int total = data.size();
-            long confirmes = data.stream().filter(p -> p.getStatut() == Participation.StatutParticipation.CONFIRME)
-                    .count();
-            long enAttente = data.stream().filter(p -> p.getStatut() == Participation.StatutParticipation.EN_ATTENTE)
-                    .count();
+            long total = controller.count(new ParticipationCriteria());
+            ParticipationCriteria parStatut = new ParticipationCriteria();
+            parStatut.setStatut(Participation.StatutParticipation.CONFIRME);
+            long confirmes = controller.count(parStatut);
+            parStatut.setStatut(Participation.StatutParticipation.EN_ATTENTE);
+            long enAttente = controller.count(parStatut);
 
             StringBuilder stats = new StringBuilder();
             stats.append("📊 Statistiques des Participations\n\n");
@@ -585,7 +677,10 @@ public class ParticipationViewController {
 
     private void updateCount() {
         int count = filteredData != null ? filteredData.size() : data.size();
-        countLabel.setText(count + " participation(s)");
+        countLabel.setText(count + " / " + totalCount + " participation(s)");
+        if (btnChargerPlus != null) {
+            btnChargerPlus.setDisable(!hasMore);
+        }
     }
 
     private void updateStatusInfo(String message) {
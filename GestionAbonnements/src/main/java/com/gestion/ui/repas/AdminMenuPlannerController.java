@@ -1,10 +1,12 @@
 package com.gestion.ui.repas;
 
 import com.gestion.entities.CompositionMenu;
+import com.gestion.entities.ProfilAlimentaire;
 import com.gestion.entities.RepasDetaille;
 import com.gestion.interfaces.CompositionMenuService;
 import com.gestion.interfaces.RepasDetailleService;
 import com.gestion.services.CompositionMenuServiceImpl;
+import com.gestion.services.IndexCompatibiliteRepas;
 import com.gestion.services.RepasDetailleServiceImpl;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -125,12 +127,18 @@ public class AdminMenuPlannerController implements Initializable {
 
     private void setupSearch() {
         searchField.textProperty().addListener((obs, oldVal, newVal) -> {
-            filteredDishes.setPredicate(dish -> {
-                if (newVal == null || newVal.isEmpty())
-                    return true;
-                String lower = newVal.toLowerCase();
-                return dish.getNom().toLowerCase().contains(lower);
-            });
+            if (newVal == null || newVal.isEmpty()) {
+                filteredDishes.setPredicate(dish -> true);
+                return;
+            }
+            // Un régime saisi (« vegan », « sans gluten », « halal »...) filtre par compatibilité
+            ProfilAlimentaire profil = ProfilAlimentaire.lire(newVal, null);
+            if (!profil.estVide()) {
+                filteredDishes.setPredicate(IndexCompatibiliteRepas.getInstance().filtre(profil));
+                return;
+            }
+            String lower = newVal.toLowerCase();
+            filteredDishes.setPredicate(dish -> dish.getNom().toLowerCase().contains(lower));
         });
     }
 
@@ -21,6 +21,10 @@ public class RestaurationBesoinsController {
     @FXML
     private TextField filterParticipantField;
     @FXML
+    private TextField filterEvenementField;
+    @FXML
+    private Label previsionLabel;
+    @FXML
     private TextField inputParticipantId;
     @FXML
     private TextField inputEvenementId;
@@ -123,14 +127,30 @@ public class RestaurationBesoinsController {
     @FXML
     void onFiltrer() {
         Long partId = parseLong(filterParticipantField.getText());
+        Long evtId = parseLong(filterEvenementField.getText());
         List<ParticipantRestauration> list;
         if (partId != null) {
             list = controller.getBesoinsByParticipantId(partId);
+            if (evtId != null)
+                list = list.stream().filter(b -> evtId.equals(b.getEvenementId())).toList();
+        } else if (evtId != null) {
+            list = controller.getBesoinsByEvenementId(evtId);
         } else {
             list = List.of();
         }
         besoinsData.clear();
         besoinsData.addAll(list);
+        afficherPrevision(evtId);
+    }
+
+    /** Résumé de la prévision cuisine de l'événement filtré. */
+    private void afficherPrevision(Long evtId) {
+        if (previsionLabel == null)
+            return;
+        previsionLabel.setText(evtId == null ? ""
+                : controller.getPrevisionCuisine(evtId)
+                        .map(p -> "Prévision cuisine : " + p.resume())
+                        .orElse("Prévision cuisine indisponible pour l'événement #" + evtId));
     }
 
     @FXML
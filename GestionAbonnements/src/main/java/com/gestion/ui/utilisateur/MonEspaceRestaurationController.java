@@ -4,12 +4,14 @@ import com.gestion.entities.Evenement;
 import com.gestion.controllers.EvenementDAO;
 import com.gestion.entities.CompositionMenu;
 import com.gestion.entities.ParticipantRestauration;
+import com.gestion.entities.ProfilAlimentaire;
 import com.gestion.entities.RepasDetaille;
 import com.gestion.entities.Restauration;
 import com.gestion.interfaces.CompositionMenuService;
 import com.gestion.interfaces.RepasDetailleService;
 import com.gestion.interfaces.RestaurationService;
 import com.gestion.services.CompositionMenuServiceImpl;
+import com.gestion.services.IndexCompatibiliteRepas;
 import com.gestion.services.RepasDetailleServiceImpl;
 import com.gestion.services.RestaurationServiceImpl;
 import javafx.application.Platform;
@@ -83,6 +85,7 @@ public class MonEspaceRestaurationController {
     private Label statTotalMenus;
 
     private final RepasDetailleService repasService = new RepasDetailleServiceImpl();
+    private final IndexCompatibiliteRepas indexRepas = IndexCompatibiliteRepas.getInstance();
     private final RestaurationService restaurationService = new RestaurationServiceImpl();
     private final CompositionMenuService compositionService = new CompositionMenuServiceImpl();
     private final EvenementDAO evenementDAO = new EvenementDAO();
@@ -254,40 +257,18 @@ public class MonEspaceRestaurationController {
 
     private void loadRepas() {
         // Charger les composants de base disponibles pour tout le monde
-        List<RepasDetaille> allRepas = repasService.findAll();
-        composantsDispoList.setAll(allRepas);
+        composantsDispoList.setAll(indexRepas.tous());
 
         // Charger les repas filtrés pour le menu (ceux déjà créés ou compatibles)
-        List<RepasDetaille> compatibleRepas = filterRepasByRestrictions(allRepas);
+        List<RepasDetaille> compatibleRepas = indexRepas.compatibles(profilSaisi());
         comboRepas.getItems().setAll(compatibleRepas);
         if (!compatibleRepas.isEmpty())
             comboRepas.getSelectionModel().selectFirst();
     }
 
-    private List<RepasDetaille> filterRepasByRestrictions(List<RepasDetaille> repas) {
-        return repas.stream()
-                .filter(r -> {
-                    if (checkVegetarien.isSelected() && !r.isVegetarien())
-                        return false;
-                    if (checkVegan.isSelected() && !r.isVegan())
-                        return false;
-                    if (checkSansGluten.isSelected() && !r.isSansGluten())
-                        return false;
-                    if (checkHalal.isSelected() && !r.isHalal())
-                        return false;
-
-                    // Vérifier allergies
-                    String allergies = inputAllergies.getText().toLowerCase();
-                    if (!allergies.isEmpty()) {
-                        for (String allergene : allergies.split(",")) {
-                            if (r.getAllergenes().contains(allergene.trim())) {
-                                return false;
-                            }
-                        }
-                    }
-                    return true;
-                })
-                .collect(Collectors.toList());
+    /** Restrictions cochées et allergies saisies, filtrées via {@link IndexCompatibiliteRepas}. */
+    private ProfilAlimentaire profilSaisi() {
+        return ProfilAlimentaire.lire(buildRestrictionLibelle(), inputAllergies.getText());
     }
 
     private void loadRestrictions() {
@@ -365,13 +346,12 @@ public class MonEspaceRestaurationController {
         }
 
         // Générer menu automatiquement basé sur les restrictions
-        List<RepasDetaille> repasCompatibles = filterRepasByRestrictions(repasService.findAll());
+        ProfilAlimentaire profil = profilSaisi();
 
         // Algorithme simple: sélectionner un repas par type pour la journée
         List<RepasDetaille> menuGenere = new ArrayList<>();
         for (String type : List.of("PETIT_DEJEUNER", "DEJEUNER", "DINER")) {
-            repasCompatibles.stream()
-                    .filter(r -> type.equals(r.getTypeRepas()))
+            indexRepas.compatibles(profil, type).stream()
                     .findFirst()
                     .ifPresent(menuGenere::add);
         }